@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.dataset;
+
+import org.jboss.logging.Logger;
+import org.keycloak.benchmark.dataset.config.DatasetConfig;
+import org.keycloak.benchmark.dataset.config.QueryParamIntFill;
+
+/**
+ * Provides the count of entities to be created in every transaction (batch). If the configured value is "auto", the batch size is adjusted
+ * at runtime with the AIMD (additive increase, multiplicative decrease) controller:
+ * - When the batch transaction failed or took longer than the target latency, the batch size is halved. Batches submitted with the size bigger
+ *   than the current one are ignored, so the batch size is halved just once per congestion event
+ * - When the throughput of the batch (entities per second) did not drop compared to the previous batches, the batch size is increased by 1
+ *
+ * Batches usually run concurrently in multiple threads, so the instance is shared by all of them.
+ */
+public class BatchSizeTuner {
+
+    protected static final Logger logger = Logger.getLogger(BatchSizeTuner.class);
+
+    static final int INITIAL_AUTO_BATCH_SIZE = 10;
+
+    // Log current batch size after every N finished batches
+    private static final int LOG_INTERVAL = 50;
+
+    private final String paramName;
+    private final boolean auto;
+    private final int maxBatchSize;
+    private final long targetLatencyMs;
+    private final TimerLogger timerLogger;
+
+    private int batchSize;
+
+    // Exponentially weighted moving average of the entities created per second in single batch
+    private double throughputAverage = -1;
+    private long finishedBatches = 0;
+
+    public BatchSizeTuner(String paramName, int configuredBatchSize, int maxBatchSize, long targetLatencyMs, TimerLogger timerLogger) {
+        this.paramName = paramName;
+        this.auto = configuredBatchSize == QueryParamIntFill.AUTO;
+        this.batchSize = auto ? Math.min(INITIAL_AUTO_BATCH_SIZE, maxBatchSize) : configuredBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.targetLatencyMs = targetLatencyMs;
+        this.timerLogger = timerLogger;
+    }
+
+    public static BatchSizeTuner forUsers(DatasetConfig config, TimerLogger timerLogger) {
+        return new BatchSizeTuner("users-per-transaction", config.getUsersPerTransaction(), config.getAutoBatchMaxSize(), getTargetLatencyMs(config), timerLogger);
+    }
+
+    public static BatchSizeTuner forClients(DatasetConfig config, TimerLogger timerLogger) {
+        return new BatchSizeTuner("clients-per-transaction", config.getClientsPerTransaction(), config.getAutoBatchMaxSize(), getTargetLatencyMs(config), timerLogger);
+    }
+
+    // Transaction is never allowed to take more than half of the transaction timeout
+    private static long getTargetLatencyMs(DatasetConfig config) {
+        return Math.min(config.getAutoBatchTargetLatency(), config.getTransactionTimeoutInSeconds() * 1000L / 2);
+    }
+
+    public boolean isAuto() {
+        return auto;
+    }
+
+    public synchronized int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @return listener to be notified when the transaction with the batch of given size is finished
+     */
+    public ExecutorHelper.TransactionListener listener(int currentBatchSize) {
+        if (!auto) {
+            return null;
+        }
+        return (durationMs, success) -> batchFinished(currentBatchSize, durationMs, success);
+    }
+
+    synchronized void batchFinished(int currentBatchSize, long durationMs, boolean success) {
+        finishedBatches++;
+
+        if (!success || durationMs > targetLatencyMs) {
+            // Batch was submitted before the last decrease. Concurrent batches usually hit the same congestion, so the batch size is decreased just once for all of them
+            if (currentBatchSize > batchSize) {
+                logger.tracef("Ignored slow batch, %s was already decreased to %d. Batch of %d entities was submitted before", paramName, batchSize, currentBatchSize);
+                return;
+            }
+
+            int newBatchSize = Math.max(1, batchSize / 2);
+            if (newBatchSize != batchSize) {
+                timerLogger.info(logger, "Decreased %s from %d to %d. Batch of %d entities %s after %d ms", paramName, batchSize, newBatchSize,
+                        currentBatchSize, success ? "committed" : "failed", durationMs);
+                batchSize = newBatchSize;
+            }
+            return;
+        }
+
+        double throughput = currentBatchSize * 1000.0 / Math.max(1, durationMs);
+        if (throughputAverage < 0 || throughput >= throughputAverage * 0.9) {
+            if (batchSize < maxBatchSize) {
+                batchSize++;
+                logger.tracef("Increased %s to %d. Batch of %d entities committed after %d ms", paramName, batchSize, currentBatchSize, durationMs);
+            }
+        }
+        throughputAverage = throughputAverage < 0 ? throughput : throughputAverage * 0.8 + throughput * 0.2;
+
+        if (finishedBatches % LOG_INTERVAL == 0) {
+            logCurrentState();
+        }
+    }
+
+    public synchronized void logCurrentState() {
+        if (auto) {
+            timerLogger.info(logger, "Current %s: %d, average throughput of single transaction: %.1f entities/s", paramName, batchSize, throughputAverage);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.dataset;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+/**
+ * Removes the users of the realm directly from the DB tables with the JDBC batches, so that the realm can be removed afterwards without deleting all its users
+ * in the single transaction. Users are removed together with their credentials, role mappings, group memberships, attributes, consents and offline sessions.
+ *
+ * Same like {@link BulkUserWriter}, it uses the JTA datasource of the Keycloak server and assumes the default Keycloak DB schema.
+ */
+public class BulkRealmRemover {
+
+    // Keyset pagination by the realm name, so that the realms removed after the previous page don't shift the next pages
+    private static final String SELECT_REALM_IDS = "SELECT ID, NAME FROM REALM WHERE NAME LIKE ? ESCAPE '!' AND NAME > ? ORDER BY NAME";
+    // Keyset pagination, so that the users already removed by the previous batches don't shift the next pages
+    private static final String SELECT_USER_IDS = "SELECT ID FROM USER_ENTITY WHERE REALM_ID = ? AND ID > ? ORDER BY ID";
+
+    // Order matters due the foreign keys. User itself is deleted as the last one
+    private static final String[] DELETE_USER_ROWS = {
+            "DELETE FROM OFFLINE_CLIENT_SESSION WHERE USER_SESSION_ID IN (SELECT USER_SESSION_ID FROM OFFLINE_USER_SESSION WHERE USER_ID = ?)",
+            "DELETE FROM OFFLINE_USER_SESSION WHERE USER_ID = ?",
+            "DELETE FROM CREDENTIAL WHERE USER_ID = ?",
+            "DELETE FROM USER_ROLE_MAPPING WHERE USER_ID = ?",
+            "DELETE FROM USER_GROUP_MEMBERSHIP WHERE USER_ID = ?",
+            "DELETE FROM USER_REQUIRED_ACTION WHERE USER_ID = ?",
+            "DELETE FROM USER_ATTRIBUTE WHERE USER_ID = ?",
+            "DELETE FROM FEDERATED_IDENTITY WHERE USER_ID = ?",
+            "DELETE FROM USER_CONSENT_CLIENT_SCOPE WHERE USER_CONSENT_ID IN (SELECT ID FROM USER_CONSENT WHERE USER_ID = ?)",
+            "DELETE FROM USER_CONSENT WHERE USER_ID = ?",
+            "DELETE FROM USER_ENTITY WHERE ID = ?"
+    };
+
+    private final DataSource dataSource;
+
+    public BulkRealmRemover(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public static BulkRealmRemover forDataSource(String jndiName) {
+        return new BulkRealmRemover(BulkUserWriter.lookupDataSource(jndiName));
+    }
+
+    /**
+     * @return next page of the realms with the given prefix of the name, which names are bigger than the given name. Empty string as afterName means the first page.
+     * Returned map is ordered by the realm name and maps the realm name to the realm ID. Realms are not loaded to the Keycloak model at all
+     */
+    public Map<String, String> getRealmIds(String namePrefix, String afterName, int maxResults) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_REALM_IDS)) {
+            statement.setString(1, escapeLike(namePrefix) + "%");
+            statement.setString(2, afterName);
+            statement.setMaxRows(maxResults);
+            Map<String, String> realmIds = new LinkedHashMap<>();
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    realmIds.put(rs.getString(2), rs.getString(1));
+                }
+            }
+            return realmIds;
+        } catch (SQLException sqle) {
+            throw new RuntimeException("Failed to obtain realms with prefix " + namePrefix, sqle);
+        }
+    }
+
+    // Characters '_' and '%' are wildcards in the LIKE. Character '!' is used as the escape character as the backslash is not portable across the databases
+    static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("_", "!_").replace("%", "!%");
+    }
+
+    /**
+     * @return next page of the IDs of the users of the realm, which are bigger than the given ID. Empty string as afterId means the first page
+     */
+    public List<String> getUserIds(String realmId, String afterId, int maxResults) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_USER_IDS)) {
+            statement.setString(1, realmId);
+            statement.setString(2, afterId);
+            statement.setMaxRows(maxResults);
+            List<String> userIds = new ArrayList<>(maxResults);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    userIds.add(rs.getString(1));
+                }
+            }
+            return userIds;
+        } catch (SQLException sqle) {
+            throw new RuntimeException("Failed to obtain users of the realm " + realmId, sqle);
+        }
+    }
+
+    /**
+     * Delete the users with all their rows with one JDBC batch per table. Rows are committed with the current transaction
+     */
+    public void deleteUsers(List<String> userIds) {
+        try (Connection connection = dataSource.getConnection()) {
+            for (String sql : DELETE_USER_ROWS) {
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    for (String userId : userIds) {
+                        statement.setString(1, userId);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+            }
+        } catch (SQLException sqle) {
+            throw new RuntimeException("Failed to delete batch of " + userIds.size() + " users", sqle);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.dataset;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import org.keycloak.benchmark.dataset.config.DatasetException;
+import org.keycloak.credential.CredentialModel;
+import org.keycloak.models.utils.KeycloakModelUtils;
+
+/**
+ * Writes the users directly to the DB tables with the JDBC batches instead of creating them one by one through the UserProvider. All the rows of the single batch of users
+ * are written with one JDBC batch per table.
+ *
+ * Role mappings, group memberships and attributes can be also written separately for the users, which were already added through the UserProvider in the same transaction.
+ *
+ * It uses the datasource of the Keycloak server. The datasource is supposed to be JTA datasource, so the rows are committed together with the Keycloak transaction.
+ */
+public class BulkUserWriter {
+
+    // Priority of the first credential of the user. Same value like Keycloak uses
+    private static final int CREDENTIAL_PRIORITY = 10;
+
+    private static final String INSERT_USER = "INSERT INTO USER_ENTITY (ID, EMAIL, EMAIL_CONSTRAINT, EMAIL_VERIFIED, ENABLED, FIRST_NAME, LAST_NAME, REALM_ID, USERNAME, " +
+            "CREATED_TIMESTAMP, NOT_BEFORE) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_CREDENTIAL = "INSERT INTO CREDENTIAL (ID, TYPE, USER_ID, CREATED_DATE, SECRET_DATA, CREDENTIAL_DATA, PRIORITY) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_ROLE_MAPPING = "INSERT INTO USER_ROLE_MAPPING (ROLE_ID, USER_ID) VALUES (?, ?)";
+    private static final String INSERT_GROUP_MEMBERSHIP = "INSERT INTO USER_GROUP_MEMBERSHIP (GROUP_ID, USER_ID) VALUES (?, ?)";
+    private static final String INSERT_REQUIRED_ACTION = "INSERT INTO USER_REQUIRED_ACTION (USER_ID, REQUIRED_ACTION) VALUES (?, ?)";
+    private static final String INSERT_ATTRIBUTE = "INSERT INTO USER_ATTRIBUTE (ID, NAME, VALUE, USER_ID) VALUES (?, ?, ?, ?)";
+
+    private final DataSource dataSource;
+
+    public BulkUserWriter(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public static BulkUserWriter forDataSource(String jndiName) {
+        return new BulkUserWriter(lookupDataSource(jndiName));
+    }
+
+    static DataSource lookupDataSource(String jndiName) {
+        try {
+            return (DataSource) new InitialContext().lookup(jndiName);
+        } catch (NamingException | ClassCastException e) {
+            throw new DatasetException("Datasource '" + jndiName + "' not found", e);
+        }
+    }
+
+    /**
+     * Write all the users in the JDBC batches. Rows are committed with the current transaction
+     */
+    public void writeUsers(String realmId, List<UserRow> users) {
+        try (Connection connection = dataSource.getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_USER)) {
+                for (UserRow user : users) {
+                    statement.setString(1, user.id);
+                    statement.setString(2, user.email);
+                    statement.setString(3, user.email);
+                    statement.setBoolean(4, false);
+                    statement.setBoolean(5, true);
+                    statement.setString(6, user.firstName);
+                    statement.setString(7, user.lastName);
+                    statement.setString(8, realmId);
+                    statement.setString(9, user.username);
+                    statement.setLong(10, user.createdTimestamp);
+                    statement.setInt(11, 0);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_CREDENTIAL)) {
+                for (UserRow user : users) {
+                    if (user.credentialId == null) {
+                        continue;
+                    }
+                    statement.setString(1, user.credentialId);
+                    statement.setString(2, user.credential.getType());
+                    statement.setString(3, user.id);
+                    statement.setLong(4, user.createdTimestamp);
+                    statement.setString(5, user.credential.getSecretData());
+                    statement.setString(6, user.credential.getCredentialData());
+                    statement.setInt(7, CREDENTIAL_PRIORITY);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+
+            writeMappings(connection, INSERT_ROLE_MAPPING, users, user -> user.roleIds, false);
+            writeMappings(connection, INSERT_GROUP_MEMBERSHIP, users, user -> user.groupIds, false);
+            writeMappings(connection, INSERT_REQUIRED_ACTION, users, user -> user.requiredActions, true);
+            writeAttributes(connection, users);
+        } catch (SQLException sqle) {
+            throw new RuntimeException("Failed to write batch of " + users.size() + " users", sqle);
+        }
+    }
+
+    /**
+     * Write just the role mappings, group memberships and attributes of the users with one JDBC batch per table. Users must already exist in the DB
+     * (EG. added through the UserProvider and flushed in the current transaction)
+     */
+    public void writeMappingsAndAttributes(List<UserRow> users) {
+        try (Connection connection = dataSource.getConnection()) {
+            writeMappings(connection, INSERT_ROLE_MAPPING, users, user -> user.roleIds, false);
+            writeMappings(connection, INSERT_GROUP_MEMBERSHIP, users, user -> user.groupIds, false);
+            writeAttributes(connection, users);
+        } catch (SQLException sqle) {
+            throw new RuntimeException("Failed to write role mappings, groups and attributes of batch of " + users.size() + " users", sqle);
+        }
+    }
+
+    // Every value of the multi-valued attribute is the separate row
+    private void writeAttributes(Connection connection, List<UserRow> users) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_ATTRIBUTE)) {
+            int count = 0;
+            for (UserRow user : users) {
+                for (Map.Entry<String, List<String>> attribute : user.attributes.entrySet()) {
+                    for (String value : attribute.getValue()) {
+                        statement.setString(1, KeycloakModelUtils.generateId());
+                        statement.setString(2, attribute.getKey());
+                        statement.setString(3, value);
+                        statement.setString(4, user.id);
+                        statement.addBatch();
+                        count++;
+                    }
+                }
+            }
+            if (count > 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+
+    private void writeMappings(Connection connection, String sql, List<UserRow> users, Function<UserRow, Collection<String>> mappings,
+                               boolean userIdFirst) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int count = 0;
+            for (UserRow user : users) {
+                for (String value : mappings.apply(user)) {
+                    statement.setString(userIdFirst ? 1 : 2, user.id);
+                    statement.setString(userIdFirst ? 2 : 1, value);
+                    statement.addBatch();
+                    count++;
+                }
+            }
+            if (count > 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+
+
+    /**
+     * Rows of the single user. Role IDs, group IDs and required actions are sets, so the same role or group is not assigned twice. Attributes are in the same order
+     * as they were added
+     */
+    public static class UserRow {
+
+        private final String id;
+        private final String username;
+        private final String email;
+        private final String firstName;
+        private final String lastName;
+        private final long createdTimestamp;
+        private String credentialId;
+        private CredentialModel credential;
+        private final Set<String> roleIds = new LinkedHashSet<>();
+        private final Set<String> groupIds = new LinkedHashSet<>();
+        private final Set<String> requiredActions = new LinkedHashSet<>();
+        private final Map<String, List<String>> attributes = new LinkedHashMap<>();
+
+        public UserRow(String id, String username, String email, String firstName, String lastName, long createdTimestamp) {
+            this.id = id;
+            this.username = username;
+            this.email = email;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.createdTimestamp = createdTimestamp;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public void setCredential(String credentialId, CredentialModel credential) {
+            this.credentialId = credentialId;
+            this.credential = credential;
+        }
+
+        public Set<String> getRoleIds() {
+            return roleIds;
+        }
+
+        public Set<String> getGroupIds() {
+            return groupIds;
+        }
+
+        public Set<String> getRequiredActions() {
+            return requiredActions;
+        }
+
+        public Map<String, List<String>> getAttributes() {
+            return attributes;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.dataset;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.logging.Logger;
+import org.keycloak.common.util.Time;
+
+/**
+ * Tracks ranges of entities committed by the task and periodically saves them as {@link TaskCheckpoint} to the work cache. If the task fails or the node is restarted,
+ * the task can be resumed and it will create just the entities from the missing ranges.
+ *
+ * Checkpoint is saved periodically rather than after every batch, so it can miss some of the last committed batches. Hence the resumed task needs to check if the entities
+ * already exist.
+ */
+public class CheckpointTracker {
+
+    protected static final Logger logger = Logger.getLogger(CheckpointTracker.class);
+
+    // Don't update the work cache more often than this
+    private static final long SAVE_INTERVAL_MS = 2000;
+
+    private final TaskManager taskManager;
+    private final TaskCheckpoint checkpoint;
+    private final IndexRanges committed = new IndexRanges();
+    private final AtomicLong lastSaveTime = new AtomicLong(0);
+
+    public CheckpointTracker(TaskManager taskManager, TaskCheckpoint checkpoint) {
+        this.taskManager = taskManager;
+        this.checkpoint = checkpoint;
+        for (IndexRange range : checkpoint.getCommitted()) {
+            committed.add(range.getFrom(), range.getTo());
+        }
+    }
+
+    public TaskCheckpoint getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * @return listener to be notified when the transaction with the batch of entities from the given range is finished
+     */
+    public ExecutorHelper.TransactionListener listener(int from, int to) {
+        return (durationMs, success) -> {
+            if (success) {
+                batchCommitted(from, to);
+            }
+        };
+    }
+
+    public void batchCommitted(int from, int to) {
+        committed.add(from, to);
+
+        long now = Time.currentTimeMillis();
+        long lastSave = lastSaveTime.get();
+        if (now - lastSave >= SAVE_INTERVAL_MS && lastSaveTime.compareAndSet(lastSave, now)) {
+            save();
+        }
+    }
+
+    public List<IndexRange> getMissingRanges() {
+        return committed.getMissingRanges(checkpoint.getStart(), checkpoint.getEnd());
+    }
+
+    public int getMissingCount() {
+        return getMissingRanges().stream().mapToInt(IndexRange::size).sum();
+    }
+
+    public synchronized void save() {
+        checkpoint.setCommitted(committed.getRanges());
+        try {
+            taskManager.saveCheckpoint(checkpoint);
+        } catch (RuntimeException re) {
+            // Failure to save the checkpoint should not fail the task itself
+            logger.warnf(re, "Failed to save the checkpoint of the operation '%s' in the realm '%s'", checkpoint.getOperation(), checkpoint.getRealmName());
+        }
+    }
+
+    /**
+     * Remove the checkpoint from the work cache if all the entities were committed. Otherwise save the checkpoint, so the task can be resumed.
+     *
+     * @return true if the checkpoint was removed
+     */
+    public boolean finish() {
+        List<IndexRange> missing = getMissingRanges();
+        if (missing.isEmpty()) {
+            taskManager.removeCheckpoint(checkpoint.getOperation(), checkpoint.getRealmName());
+            return true;
+        } else {
+            save();
+            int missingCount = missing.stream().mapToInt(IndexRange::size).sum();
+            logger.warnf("Operation '%s' in the realm '%s' did not create %d entities in %d ranges. Use the 'resume' endpoint to create them",
+                    checkpoint.getOperation(), checkpoint.getRealmName(), missingCount, missing.size());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.dataset;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.keycloak.benchmark.dataset.config.DatasetConfig;
+import org.keycloak.benchmark.dataset.config.DatasetException;
+
+/**
+ * Shape of the composite role graph built over the roles of the same container (realm roles or the roles of single client). Roles are split to the levels, where
+ * level 0 contains the top-level composite roles with the lowest indexes and the last level contains the leaf roles with the highest indexes. Every composite role
+ * has "fan-out" child roles from the level just below it and every role below the top level is the child of "fan-in" composite roles on average.
+ *
+ * Level sizes follow from the fan-in and fan-out. For example with fan-out 3 and fan-in 1, every level is 3 times bigger than the level above it.
+ */
+public class CompositeRoleGraph {
+
+    private final int rolesCount;
+    private final int fanOut;
+    // Index of the first role of every level. There is one more item with the count of the roles
+    private final int[] levelStart;
+
+    public CompositeRoleGraph(int rolesCount, int depth, int fanOut, int fanIn) {
+        this.rolesCount = rolesCount;
+        this.fanOut = fanOut;
+
+        // At least one role is needed on every level
+        int levels = Math.max(1, Math.min(depth + 1, rolesCount));
+        double ratio = (double) fanIn / fanOut;
+
+        // Size of the leaf level, when size of the level above is always "ratio" times the size of the level below
+        double sum = 0;
+        for (int level = 0; level < levels; level++) {
+            sum += Math.pow(ratio, level);
+        }
+        double leafSize = rolesCount / sum;
+
+        levelStart = new int[levels + 1];
+        int remaining = rolesCount;
+        for (int level = 0; level < levels - 1; level++) {
+            int levelsBelow = levels - 1 - level;
+            int size = (int) Math.round(leafSize * Math.pow(ratio, levelsBelow));
+            size = Math.max(1, Math.min(size, remaining - levelsBelow));
+            levelStart[level + 1] = levelStart[level] + size;
+            remaining -= size;
+        }
+        levelStart[levels] = rolesCount;
+    }
+
+    public static CompositeRoleGraph forRealmRoles(DatasetConfig config) {
+        validate(config);
+        return new CompositeRoleGraph(config.getRealmRolesPerRealm(), config.getCompositeRoleDepth(), config.getCompositeRoleFanOut(), config.getCompositeRoleFanIn());
+    }
+
+    public static CompositeRoleGraph forClientRoles(DatasetConfig config) {
+        validate(config);
+        return new CompositeRoleGraph(config.getClientRolesPerClient(), config.getCompositeRoleDepth(), config.getCompositeRoleFanOut(), config.getCompositeRoleFanIn());
+    }
+
+    private static void validate(DatasetConfig config) {
+        if (config.getCompositeRoleDepth() < 0) {
+            throw new DatasetException("Parameter composite-role-depth must not be negative");
+        }
+        if (config.getCompositeRoleFanOut() < 1 || config.getCompositeRoleFanIn() < 1) {
+            throw new DatasetException("Both composite-role-fan-out and composite-role-fan-in must be positive");
+        }
+    }
+
+    /**
+     * @return count of composite levels. It can be lower than the configured depth if there are not enough roles
+     */
+    public int getDepth() {
+        return levelStart.length - 2;
+    }
+
+    public int getLevelSize(int level) {
+        return levelStart[level + 1] - levelStart[level];
+    }
+
+    /**
+     * @return count of composite roles. Composite roles are the roles with the indexes lower than this count
+     */
+    public int getCompositeCount() {
+        return levelStart[getDepth()];
+    }
+
+    public int getLevel(int roleIndex) {
+        int level = 0;
+        while (roleIndex >= levelStart[level + 1]) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * @return indexes of the child roles of the given role. Empty array for the leaf roles
+     */
+    public int[] getChildren(int roleIndex) {
+        int level = getLevel(roleIndex);
+        if (level >= getDepth()) {
+            return new int[0];
+        }
+
+        // Edges of the whole level are spread round-robin over the roles of the level below, so every child has about the same count of parents
+        int childLevelSize = getLevelSize(level + 1);
+        int[] children = new int[Math.min(fanOut, childLevelSize)];
+        long firstEdge = (long) (roleIndex - levelStart[level]) * children.length;
+        for (int j = 0; j < children.length; j++) {
+            children[j] = levelStart[level + 1] + (int) ((firstEdge + j) % childLevelSize);
+        }
+        return children;
+    }
+
+    /**
+     * @return count of the roles the given role expands to (including the role itself)
+     */
+    public int getExpandedCount(int roleIndex) {
+        Set<Integer> expanded = new HashSet<>();
+        Deque<Integer> toExpand = new ArrayDeque<>();
+        toExpand.add(roleIndex);
+        while (!toExpand.isEmpty()) {
+            int index = toExpand.poll();
+            if (expanded.add(index)) {
+                for (int child : getChildren(index)) {
+                    toExpand.add(child);
+                }
+            }
+        }
+        return expanded.size();
+    }
+
+    public int getRolesCount() {
+        return rolesCount;
+    }
+}
@@ -18,66 +18,129 @@
 
 package org.keycloak.benchmark.dataset;
 
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 
+import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
+import org.infinispan.AdvancedCache;
+import org.infinispan.Cache;
+import org.infinispan.context.Flag;
 import org.jboss.logging.Logger;
 import org.jboss.resteasy.annotations.cache.NoCache;
 import org.jboss.resteasy.spi.HttpRequest;
+import org.keycloak.authorization.AuthorizationProvider;
+import org.keycloak.authorization.model.Resource;
+import org.keycloak.authorization.model.ResourceServer;
+import org.keycloak.authorization.model.Scope;
+import org.keycloak.authorization.store.StoreFactory;
 import org.keycloak.benchmark.dataset.config.ConfigUtil;
 import org.keycloak.benchmark.dataset.config.DatasetConfig;
 import org.keycloak.benchmark.dataset.config.DatasetException;
+import org.keycloak.benchmark.dataset.config.DatasetOperation;
+import org.keycloak.benchmark.dataset.config.DatasetProfile;
+import org.keycloak.common.util.Time;
+import org.keycloak.connections.infinispan.InfinispanConnectionProvider;
+import org.keycloak.credential.hash.PasswordHashProvider;
+import org.keycloak.events.Details;
+import org.keycloak.events.Errors;
 import org.keycloak.events.Event;
 import org.keycloak.events.EventStoreProvider;
 import org.keycloak.events.EventType;
 import org.keycloak.models.AuthenticatedClientSessionModel;
 import org.keycloak.models.ClientModel;
+import org.keycloak.models.ClientScopeModel;
 import org.keycloak.models.GroupModel;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.KeycloakSessionTask;
 import org.keycloak.models.PasswordPolicy;
+import org.keycloak.models.ProtocolMapperModel;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.RealmProvider;
+import org.keycloak.models.RequiredActionProviderModel;
 import org.keycloak.models.RoleModel;
 import org.keycloak.models.UserCredentialModel;
 import org.keycloak.models.UserModel;
 import org.keycloak.models.UserProvider;
 import org.keycloak.models.UserSessionModel;
 import org.keycloak.models.cache.CacheRealmProvider;
+import org.keycloak.models.cache.UserCache;
+import org.keycloak.models.credential.PasswordCredentialModel;
+import org.keycloak.models.session.PersistentAuthenticatedClientSessionAdapter;
+import org.keycloak.models.session.PersistentClientSessionModel;
+import org.keycloak.models.session.PersistentUserSessionAdapter;
+import org.keycloak.models.session.PersistentUserSessionModel;
 import org.keycloak.models.session.UserSessionPersisterProvider;
+import org.keycloak.models.sessions.infinispan.changes.SessionEntityWrapper;
+import org.keycloak.models.sessions.infinispan.entities.AuthenticatedClientSessionEntity;
+import org.keycloak.models.sessions.infinispan.entities.UserSessionEntity;
 import org.keycloak.models.utils.DefaultRoles;
 import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.models.utils.RoleUtils;
 import org.keycloak.protocol.oidc.OIDCLoginProtocol;
+import org.keycloak.protocol.oidc.mappers.AudienceProtocolMapper;
+import org.keycloak.protocol.oidc.mappers.GroupMembershipMapper;
+import org.keycloak.protocol.oidc.mappers.HardcodedClaim;
+import org.keycloak.protocol.oidc.mappers.UserAttributeMapper;
 import org.keycloak.representations.idm.ClientRepresentation;
 import org.keycloak.representations.idm.RealmRepresentation;
+import org.keycloak.representations.idm.authorization.AbstractPolicyRepresentation;
+import org.keycloak.representations.idm.authorization.AggregatePolicyRepresentation;
+import org.keycloak.representations.idm.authorization.GroupPolicyRepresentation;
+import org.keycloak.representations.idm.authorization.ResourcePermissionRepresentation;
+import org.keycloak.representations.idm.authorization.RolePolicyRepresentation;
+import org.keycloak.representations.idm.authorization.UserPolicyRepresentation;
 import org.keycloak.services.managers.ClientManager;
 import org.keycloak.services.managers.RealmManager;
 import org.keycloak.services.resource.RealmResourceProvider;
+import org.keycloak.storage.adapter.InMemoryUserAdapter;
+import org.keycloak.util.JsonSerialization;
 
+import static org.keycloak.benchmark.dataset.config.DatasetOperation.CREATE_AUTHZ;
 import static org.keycloak.benchmark.dataset.config.DatasetOperation.CREATE_CLIENTS;
 import static org.keycloak.benchmark.dataset.config.DatasetOperation.CREATE_EVENTS;
 import static org.keycloak.benchmark.dataset.config.DatasetOperation.CREATE_OFFLINE_SESSIONS;
+import static org.keycloak.benchmark.dataset.config.DatasetOperation.CREATE_ONLINE_SESSIONS;
 import static org.keycloak.benchmark.dataset.config.DatasetOperation.CREATE_REALMS;
 import static org.keycloak.benchmark.dataset.config.DatasetOperation.CREATE_USERS;
 import static org.keycloak.benchmark.dataset.config.DatasetOperation.LAST_CLIENT;
 import static org.keycloak.benchmark.dataset.config.DatasetOperation.LAST_REALM;
 import static org.keycloak.benchmark.dataset.config.DatasetOperation.LAST_USER;
 import static org.keycloak.benchmark.dataset.config.DatasetOperation.REMOVE_REALMS;
+import static org.keycloak.benchmark.dataset.config.DatasetOperation.RESUME;
 
 /**
  * @author <a href="mailto:mposolda@redhat.com">Marek Posolda</a>
@@ -86,17 +149,26 @@ public class DatasetResourceProvider implements RealmResourceProvider {
 
     protected static final Logger logger = Logger.getLogger(DatasetResourceProvider.class);
 
+    // Max count of the realm roles, groups and users referenced by the policies created by "create-authz"
+    private static final int AUTHZ_SUBJECTS_LIMIT = 1000;
+
+    // Count of realms listed from the DB at once when removing all the realms with "bulk-users-removal"
+    private static final int REMOVED_REALMS_PAGE_SIZE = 100;
+
     // Ideally don't use this session to run any DB transactions
     private final KeycloakSession baseSession;
 
+    private final DistributedTaskWorker distributedTaskWorker;
+
     @Context
     private HttpRequest httpRequest;
 
     @Context
     private UriInfo uriInfo;
 
-    public DatasetResourceProvider(KeycloakSession session) {
+    public DatasetResourceProvider(KeycloakSession session, DistributedTaskWorker distributedTaskWorker) {
         this.baseSession = session;
+        this.distributedTaskWorker = distributedTaskWorker;
     }
 
     @Override
@@ -118,7 +190,7 @@ public class DatasetResourceProvider implements RealmResourceProvider {
 
             logger.infof("Trigger creating realms with the configuration: %s", config);
 
-            int startIndex = ConfigUtil.findFreeEntityIndex(index -> {
+            int startIndex = findFreeEntityIndexToCreate(NextIndexTracker.realmsKey(config.getRealmPrefix()), index -> {
                 String realmName = config.getRealmPrefix() + index;
                 return baseSession.getProvider(RealmProvider.class).getRealmByName(realmName) != null;
             });
@@ -126,6 +198,7 @@ public class DatasetResourceProvider implements RealmResourceProvider {
 
 
             int realmEndIndex = startIndex + config.getCount();
+            RealmTier tier = new RealmTier("default", config, startIndex, realmEndIndex);
 
             TimerLogger timerLogger = TimerLogger.start("Creation of " + config.getCount() + " realms from " + config.getRealmPrefix() + startIndex + " to " + config.getRealmPrefix() + (realmEndIndex - 1));
             TaskManager taskManager = new TaskManager(baseSession);
@@ -139,7 +212,69 @@ public class DatasetResourceProvider implements RealmResourceProvider {
             // Run this in separate thread to not block HTTP request
             new Thread(() -> {
 
-                createRealmsImpl(timerLogger, baseSession.getKeycloakSessionFactory(), config, startIndex, realmEndIndex);
+                createRealmsImpl(timerLogger, baseSession.getKeycloakSessionFactory(), config, Collections.singletonList(tier));
+
+            }).start();
+            started = true;
+
+            return Response.ok(TaskResponse.taskStarted(timerLogger.toString(), getStatusUrl())).build();
+        } catch (DatasetException de) {
+            return handleDatasetException(de);
+        } finally {
+            if (taskAdded && !started) {
+                new TaskManager(baseSession).removeExistingTask(false);
+            }
+        }
+    }
+
+    // Create realms of all the tiers described by the profile in the request body (see "DatasetProfile" class). Realms of all the tiers are created by single task
+    @POST
+    @Path("/create-dataset")
+    @NoCache
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response createDataset(String profileJson) {
+        boolean started = false;
+        boolean taskAdded = false;
+        try {
+            DatasetProfile profile = DatasetProfile.parse(profileJson);
+            MultivaluedMap<String, String> queryParameters = httpRequest.getUri().getQueryParameters();
+            DatasetConfig config = profile.createConfig(queryParameters);
+
+            logger.infof("Trigger creating dataset with the configuration: %s", config);
+
+            // Tiers with the same realm prefix are created in the consecutive ranges of realms
+            List<RealmTier> tiers = new ArrayList<>();
+            Map<String, Integer> nextRealmIndexes = new HashMap<>();
+            for (DatasetProfile.Tier tierRep : profile.getTiers()) {
+                DatasetConfig tierConfig = profile.createTierConfig(queryParameters, tierRep);
+                String realmPrefix = tierConfig.getRealmPrefix();
+
+                int startIndex = nextRealmIndexes.computeIfAbsent(realmPrefix, prefix -> findFreeEntityIndexToCreate(NextIndexTracker.realmsKey(prefix), index -> {
+                    String realmName = prefix + index;
+                    return baseSession.getProvider(RealmProvider.class).getRealmByName(realmName) != null;
+                }));
+                int endIndex = startIndex + tierConfig.getCount();
+                nextRealmIndexes.put(realmPrefix, endIndex);
+                tierConfig.setStart(startIndex);
+
+                logger.infof("Tier '%s' with realms from '%s' to '%s' and the configuration: %s", tierRep.getName(), realmPrefix + startIndex, realmPrefix + (endIndex - 1), tierConfig);
+                tiers.add(new RealmTier(tierRep.getName(), tierConfig, startIndex, endIndex));
+            }
+
+            TimerLogger timerLogger = TimerLogger.start("Creation of dataset with " + config.getCount() + " realms in " + tiers.size() + " tiers");
+            TaskManager taskManager = new TaskManager(baseSession);
+            String existingTask = taskManager.addTaskIfNotInProgress(timerLogger, config.getTaskTimeout());
+            if (existingTask != null) {
+                return Response.status(400).entity(TaskResponse.errorSomeTaskInProgress(existingTask, getStatusUrl())).build();
+            } else {
+                taskAdded = true;
+            }
+
+            // Run this in separate thread to not block HTTP request
+            new Thread(() -> {
+
+                createRealmsImpl(timerLogger, baseSession.getKeycloakSessionFactory(), config, tiers);
 
             }).start();
             started = true;
@@ -155,88 +290,469 @@ public class DatasetResourceProvider implements RealmResourceProvider {
     }
 
     // Implementation of creating many realms. This is triggered outside of HTTP request to not block HTTP request
-    private void createRealmsImpl(TimerLogger timerLogger, KeycloakSessionFactory sessionFactory, DatasetConfig config, int startIndex, int realmEndIndex) {
+    //
+    // Creation of every realm is split into the steps: realm, batches of realm roles and groups, batches of clients, batches of composite roles, caching of the realm
+    // and batches of users.
+    // Every batch is separate task of the executor, so any worker thread can run any batch of any realm. Next step of the realm is scheduled once all the batches
+    // of the previous step are finished. New realm is started whenever some worker thread is idle, so threads are busy regardless of the count of realms and users.
+    private void createRealmsImpl(TimerLogger timerLogger, KeycloakSessionFactory sessionFactory, DatasetConfig config, List<RealmTier> tiers) {
         KeycloakModelUtils.runJobInTransactionWithTimeout(sessionFactory, (sessionn -> {
             ExecutorHelper executor = null;
             try {
-                logger.infof("Will start creating realms from '%s' to '%s'", config.getRealmPrefix() + startIndex, config.getRealmPrefix() + (realmEndIndex - 1));
+                for (RealmTier tier : tiers) {
+                    logger.infof("Will start creating realms of tier '%s' from '%s' to '%s'", tier.name, tier.config.getRealmPrefix() + tier.startIndex,
+                            tier.config.getRealmPrefix() + (tier.endIndex - 1));
+                }
 
                 executor = new ExecutorHelper(config.getThreadsCount(), baseSession.getKeycloakSessionFactory(), config);
+                int workersCount = DatasetConfig.EXECUTOR_MODE_VIRTUAL.equals(config.getExecutorMode()) ? config.getConcurrentTransactions() : config.getThreadsCount();
+
+                // Shared by all the realms
+                BulkUserWriter bulkUserWriter = lookupBulkUserWriter(config, timerLogger);
+
+                TaskProgress progress = new TaskProgress(new TaskManager(sessionn), config.getTaskTimeout());
+                progress.phase(TaskProgress.PHASE_REALMS, 0);
+                progress.phase(TaskProgress.PHASE_ROLES_AND_GROUPS, 0);
+                progress.phase(TaskProgress.PHASE_CLIENT_SCOPES, 0);
+                progress.phase(TaskProgress.PHASE_CLIENTS, 0);
+                progress.phase(TaskProgress.PHASE_COMPOSITE_ROLES, 0);
+                progress.phase(TaskProgress.PHASE_CACHING, 0);
+                progress.phase(TaskProgress.PHASE_USERS, 0);
+                progress.phase(TaskProgress.PHASE_OFFLINE_SESSIONS, 0);
+
+                // Shared by all the realms of the tier
+                Map<String, NextIndexTracker> realmsIndexes = new HashMap<>();
+                for (RealmTier tier : tiers) {
+                    DatasetConfig tierConfig = tier.config;
+                    long count = tier.endIndex - tier.startIndex;
+                    tier.clientsBatchSize = BatchSizeTuner.forClients(tierConfig, timerLogger);
+                    tier.usersBatchSize = BatchSizeTuner.forUsers(tierConfig, timerLogger);
+                    tier.realmsIndex = realmsIndexes.computeIfAbsent(tierConfig.getRealmPrefix(),
+                            realmPrefix -> new NextIndexTracker(new TaskManager(sessionn), NextIndexTracker.realmsKey(realmPrefix)));
+
+                    progress.phase(TaskProgress.PHASE_REALMS, 0).addToTotal(count);
+                    long groupsPerRealm = (long) tierConfig.getGroupsPerRealm() * GroupHierarchy.fromConfig(tierConfig).getTreeSize();
+                    progress.phase(TaskProgress.PHASE_ROLES_AND_GROUPS, 0).addToTotal(count * (tierConfig.getRealmRolesPerRealm() + groupsPerRealm));
+                    progress.phase(TaskProgress.PHASE_CLIENT_SCOPES, 0).addToTotal(count * tierConfig.getClientScopesPerRealm());
+                    progress.phase(TaskProgress.PHASE_CLIENTS, 0).addToTotal(count * tierConfig.getClientsPerRealm());
+                    progress.phase(TaskProgress.PHASE_COMPOSITE_ROLES, 0).addToTotal(count * tier.getCompositeRolesPerRealm());
+                    progress.phase(TaskProgress.PHASE_CACHING, 0).addToTotal(count);
+                    progress.phase(TaskProgress.PHASE_USERS, 0).addToTotal(count * tierConfig.getUsersPerRealm());
+                    progress.phase(TaskProgress.PHASE_OFFLINE_SESSIONS, 0).addToTotal(count * tierConfig.getOfflineSessionsPerRealm());
+                }
+                progress.publish();
+
+                // Expanded roles of the sampled users of all the realms
+                ExpandedRolesSummary rolesSummary = new ExpandedRolesSummary();
+
+                // Released whenever some batch is finished, so that the scheduling loop can submit next step of the realm
+                Semaphore batchFinished = new Semaphore(0);
+
+                List<RealmCreation> realmsInProgress = new LinkedList<>();
+                Iterator<RealmTier> nextTiers = tiers.stream().filter(t -> t.endIndex > t.startIndex).iterator();
+                RealmTier tier = nextTiers.hasNext() ? nextTiers.next() : null;
+                int nextRealmIndex = tier == null ? 0 : tier.startIndex;
+                while (tier != null || !realmsInProgress.isEmpty()) {
+                    boolean submitted = false;
+                    for (RealmCreation realmCreation : realmsInProgress) {
+                        submitted |= realmCreation.submitNextBatch(executor);
+                    }
+                    realmsInProgress.removeIf(RealmCreation::isFinished);
 
-                for (int realmIndex = startIndex ; realmIndex < realmEndIndex ; realmIndex++) {
+                    if (tier != null && executor.getTasksInProgressCount() < workersCount) {
+                        RealmCreation realmCreation = new RealmCreation(nextRealmIndex++, tier, timerLogger, progress, bulkUserWriter, rolesSummary, batchFinished);
+                        realmsInProgress.add(realmCreation);
+                        submitted |= realmCreation.submitNextBatch(executor);
 
-                    final int currentRealmIndex = realmIndex;
+                        // Tiers are started in the order, so the realms of the first tiers (EG. the biggest realms) are started first
+                        if (nextRealmIndex >= tier.endIndex) {
+                            tier = nextTiers.hasNext() ? nextTiers.next() : null;
+                            nextRealmIndex = tier == null ? 0 : tier.startIndex;
+                        }
+                    }
 
-                    // Run this concurrently with multiple threads
-                    executor.addTask(executorSession -> {
-                        logger.infof("Started creation of realm %s", config.getRealmPrefix() + currentRealmIndex);
+                    if (!submitted) {
+                        try {
+                            batchFinished.tryAcquire(100, TimeUnit.MILLISECONDS);
+                            batchFinished.drainPermits();
+                        } catch (InterruptedException ie) {
+                            Thread.currentThread().interrupt();
+                            throw new RuntimeException(ie);
+                        }
+                    }
+                }
 
-                        RealmContext context = new RealmContext(config);
+                executor.waitForAllToFinish();
 
-                        // Step 1 - create realm, realmRoles and groups
-                        KeycloakModelUtils.runJobInTransactionWithTimeout(baseSession.getKeycloakSessionFactory(), session -> {
-                            createAndSetRealm(context, currentRealmIndex, session);
-                            timerLogger.debug(logger, "Created realm %s", context.getRealm().getName());
+                realmsIndexes.values().forEach(NextIndexTracker::save);
 
-                            createRealmRoles(context);
-                            timerLogger.debug(logger, "Created %d roles in realm %s", context.getRealmRoles().size(), context.getRealm().getName());
+                for (RealmTier createdTier : tiers) {
+                    createdTier.clientsBatchSize.logCurrentState();
+                    createdTier.usersBatchSize.logCurrentState();
+                    timerLogger.info(logger, "Created all realms of tier '%s' from '%s' to '%s'", createdTier.name, createdTier.config.getRealmPrefix() + createdTier.startIndex,
+                            createdTier.config.getRealmPrefix() + (createdTier.endIndex - 1));
+                }
+                if (rolesSummary.getUsersCount() > 0) {
+                    timerLogger.info(logger, "Expanded roles per user in all the created realms: %s", rolesSummary);
+                }
 
-                            createGroups(context);
-                            timerLogger.debug(logger, "Created %d groups in realm %s", context.getGroups().size(), context.getRealm().getName());
-                            timerLogger.info(logger, "Created realm, realm roles and groups in realm %s", context.getRealm().getName());
+            } finally {
+                if (executor != null) {
+                    executor.shutDown();
+                }
+                new TaskManager(sessionn).removeExistingTask(true);
+            }
+        }), config.getTaskTimeout());
+    }
 
-                        }, config.getTransactionTimeoutInSeconds());
+    // Range of realms created with the same configuration. Realms created by the "create-realms" are single tier. Profile of the "create-dataset" can have many tiers
+    private static class RealmTier {
+
+        private final String name;
+        private final DatasetConfig config;
+        private final int startIndex;
+        private final int endIndex;
+
+        private final IndexDistribution usersDistribution;
+        private final CompositeRoleGraph realmRolesGraph;
+        private final CompositeRoleGraph clientRolesGraph;
+
+        // Initialized when the creation of realms is started
+        private BatchSizeTuner clientsBatchSize;
+        private BatchSizeTuner usersBatchSize;
+        private NextIndexTracker realmsIndex;
+
+        private RealmTier(String name, DatasetConfig config, int startIndex, int endIndex) {
+            this.name = name;
+            this.config = config;
+            this.startIndex = startIndex;
+            this.endIndex = endIndex;
+            this.usersDistribution = IndexDistribution.parse(config.getUsersPerRealmDistribution());
+            validateDistributions(config);
+            GroupHierarchy.fromConfig(config);
+            parseMapperTypes(config);
+            this.realmRolesGraph = CompositeRoleGraph.forRealmRoles(config);
+            this.clientRolesGraph = CompositeRoleGraph.forClientRoles(config);
+        }
 
-                        // Step 2 - create clients (Using single executor for now... For multiple executors run separate create-clients endpoint)
-                        for (int i = 0; i < config.getClientsPerRealm(); i += config.getClientsPerTransaction()) {
-                            int clientsStartIndex = i;
-                            int endIndex = Math.min(clientsStartIndex + config.getClientsPerTransaction(), config.getClientsPerRealm());
-                            logger.tracef("clientsStartIndex: %d, clientsEndIndex: %d", clientsStartIndex, endIndex);
+        // The first role of the client is composite also if it has just the roles of the other clients
+        private int getClientCompositeRolesCount() {
+            if (clientRolesGraph.getCompositeCount() == 0 && hasCrossClientComposites()) {
+                return 1;
+            }
+            return clientRolesGraph.getCompositeCount();
+        }
 
-                            KeycloakModelUtils.runJobInTransactionWithTimeout(baseSession.getKeycloakSessionFactory(), session -> {
+        // The last role of the other client is used as it is always a leaf role. Without this check, there might be a cycle among the first roles of the clients
+        private boolean hasCrossClientComposites() {
+            return config.getCrossClientComposites() > 0 && config.getClientsPerRealm() > 1 && config.getClientRolesPerClient() > 1;
+        }
 
-                                createClients(context, timerLogger, session, clientsStartIndex, endIndex);
+        private long getCompositeRolesPerRealm() {
+            return realmRolesGraph.getCompositeCount() + (long) config.getClientsPerRealm() * getClientCompositeRolesCount();
+        }
 
-                            }, config.getTransactionTimeoutInSeconds());
+        // Total count of users of the tier is split to the realms according to the distribution
+        private int getUsersCount(int realmIndex) {
+            int count = endIndex - startIndex;
+            return usersDistribution.share(realmIndex - startIndex, count, (long) count * config.getUsersPerRealm());
+        }
+    }
 
-                            timerLogger.debug(logger, "Created %d clients in realm %s", context.getClients().size(), context.getRealm().getName());
-                        }
-                        timerLogger.info(logger, "Created all %d clients in realm %s", context.getClients().size(), context.getRealm().getName());
+    // Steps of creating single realm. Batches are submitted just by the scheduling loop of createRealmsImpl and they are finished by the worker threads
+    private class RealmCreation {
+
+        private static final int STEP_REALM = 0;
+        private static final int STEP_ROLES_AND_GROUPS = 1;
+        private static final int STEP_CLIENTS = 2;
+        private static final int STEP_COMPOSITE_ROLES = 3;
+        private static final int STEP_CACHING = 4;
+        private static final int STEP_USERS = 5;
+        private static final int STEP_ROLES_SUMMARY = 6;
+        private static final int STEP_OFFLINE_SESSIONS = 7;
+        private static final int STEP_FINISHED = 8;
+
+        private final int realmIndex;
+        private final RealmTier tier;
+        private final DatasetConfig config;
+        private final int usersCount;
+        private final RealmContext context;
+        private final TimerLogger timerLogger;
+        private final TaskProgress progress;
+        private final NextIndexTracker realmsIndex;
+        private final BatchSizeTuner clientsBatchSize;
+        private final BatchSizeTuner usersBatchSize;
+        private final ExpandedRolesSummary rolesSummary;
+        private final Semaphore batchFinished;
+
+        private int step = STEP_REALM;
+        // Index of the first entity of the next batch of the current step
+        private int nextIndex = 0;
+
+        // Count of submitted batches of the current step, which are not yet finished
+        private final AtomicInteger batchesInProgress = new AtomicInteger();
+        private volatile boolean failed = false;
+
+        // Users and clients of the realm, which offline sessions are spread over. Resolved by the first batch of the offline sessions
+        private RealmSubjects sessionSubjects;
+
+        private RealmCreation(int realmIndex, RealmTier tier, TimerLogger timerLogger, TaskProgress progress, BulkUserWriter bulkUserWriter, ExpandedRolesSummary rolesSummary,
+                              Semaphore batchFinished) {
+            this.realmIndex = realmIndex;
+            this.tier = tier;
+            this.config = tier.config;
+            this.usersCount = tier.getUsersCount(realmIndex);
+            this.context = new RealmContext(config);
+            this.context.setBulkUserWriter(bulkUserWriter);
+            this.timerLogger = timerLogger;
+            this.progress = progress;
+            this.realmsIndex = tier.realmsIndex;
+            this.clientsBatchSize = tier.clientsBatchSize;
+            this.usersBatchSize = tier.usersBatchSize;
+            this.rolesSummary = rolesSummary;
+            this.batchFinished = batchFinished;
+        }
 
-                        // Step 3 - cache realm. This will cache the realm in Keycloak cache (looks like best regarding performance to do it in separate transaction)
-                        cacheRealmAndPopulateContext(context);
+        private boolean isFinished() {
+            return step == STEP_FINISHED;
+        }
 
-                        // Step 4 - create users
-                        for (int i = 0; i < config.getUsersPerRealm(); i += config.getUsersPerTransaction()) {
-                            int usersStartIndex = i;
-                            int endIndex = Math.min(usersStartIndex + config.getUsersPerTransaction(), config.getUsersPerRealm());
-                            logger.tracef("usersStartIndex: %d, usersEndIndex: %d", usersStartIndex, endIndex);
+        /**
+         * Submit next batch of the current step or move to the next step if all the batches of the current step are finished
+         *
+         * @return true if some batch was submitted
+         */
+        private boolean submitNextBatch(ExecutorHelper executor) {
+            if (failed) {
+                // Failure is reported by the executor. Next steps of this realm are skipped
+                if (batchesInProgress.get() == 0) {
+                    step = STEP_FINISHED;
+                }
+                return false;
+            }
 
-                            KeycloakModelUtils.runJobInTransactionWithTimeout(baseSession.getKeycloakSessionFactory(), session -> {
+            switch (step) {
+                case STEP_REALM:
+                    if (nextIndex == 0) {
+                        nextIndex = 1;
+                        logger.infof("Started creation of realm %s", config.getRealmPrefix() + realmIndex);
+                        submit(executor, session -> {
+                            createAndSetRealm(context, realmIndex, session);
+                            timerLogger.info(logger, "Created realm %s", context.getRealm().getName());
+                        }, ExecutorHelper.TransactionListener.combine(progress.phase(TaskProgress.PHASE_REALMS, 0).listener(1), realmsIndex.listener(realmIndex + 1)));
+                        return true;
+                    }
+                    break;
+                case STEP_ROLES_AND_GROUPS:
+                    // Roles are created first and then groups. Batches of both can run concurrently
+                    if (nextIndex < config.getRealmRolesPerRealm()) {
+                        int rolesStartIndex = nextIndex;
+                        int endIndex = Math.min(rolesStartIndex + config.getRolesPerTransaction(), config.getRealmRolesPerRealm());
+                        nextIndex = endIndex;
+                        logger.tracef("rolesStartIndex: %d, rolesEndIndex: %d", rolesStartIndex, endIndex);
+
+                        submit(executor, session -> {
+                            createRealmRoles(context, session, rolesStartIndex, endIndex);
+                        }, progress.phase(TaskProgress.PHASE_ROLES_AND_GROUPS, 0).listener(endIndex - rolesStartIndex));
+                        return true;
+                    } else if (nextIndex < config.getRealmRolesPerRealm() + config.getGroupsPerRealm()) {
+                        GroupHierarchy hierarchy = context.getGroupHierarchy();
+                        if (nextIndex == config.getRealmRolesPerRealm() && hierarchy.hasRoleMappings() && batchesInProgress.get() > 0) {
+                            // Roles need to be committed before they are mapped to the groups
+                            return false;
+                        }
 
-                                createUsers(context, timerLogger, session, usersStartIndex, endIndex);
+                        // Indexes of the top-level groups. Whole tree of every top-level group is created in the same transaction
+                        int groupsStartIndex = nextIndex - config.getRealmRolesPerRealm();
+                        int treesPerTransaction = Math.max(1, config.getGroupsPerTransaction() / hierarchy.getTreeSize());
+                        int endIndex = Math.min(groupsStartIndex + treesPerTransaction, config.getGroupsPerRealm());
+                        nextIndex = config.getRealmRolesPerRealm() + endIndex;
+                        logger.tracef("groupsStartIndex: %d, groupsEndIndex: %d", groupsStartIndex, endIndex);
+
+                        submit(executor, session -> {
+                            createGroups(context, session, groupsStartIndex, endIndex);
+                        }, progress.phase(TaskProgress.PHASE_ROLES_AND_GROUPS, 0).listener((long) (endIndex - groupsStartIndex) * hierarchy.getTreeSize()));
+                        return true;
+                    } else if (nextIndex < config.getRealmRolesPerRealm() + config.getGroupsPerRealm() + config.getClientScopesPerRealm()) {
+                        // Client scopes need to be committed before the clients are created, so they are created in this step
+                        int scopesStartIndex = nextIndex - config.getRealmRolesPerRealm() - config.getGroupsPerRealm();
+                        int endIndex = Math.min(scopesStartIndex + config.getClientScopesPerTransaction(), config.getClientScopesPerRealm());
+                        nextIndex = config.getRealmRolesPerRealm() + config.getGroupsPerRealm() + endIndex;
+                        logger.tracef("clientScopesStartIndex: %d, clientScopesEndIndex: %d", scopesStartIndex, endIndex);
+
+                        submit(executor, session -> {
+                            createClientScopes(context, session, scopesStartIndex, endIndex);
+                        }, progress.phase(TaskProgress.PHASE_CLIENT_SCOPES, 0).listener(endIndex - scopesStartIndex));
+                        return true;
+                    }
+                    break;
+                case STEP_CLIENTS:
+                    if (nextIndex < config.getClientsPerRealm()) {
+                        int clientsStartIndex = nextIndex;
+                        int endIndex = Math.min(clientsStartIndex + clientsBatchSize.getBatchSize(), config.getClientsPerRealm());
+                        nextIndex = endIndex;
+                        logger.tracef("clientsStartIndex: %d, clientsEndIndex: %d", clientsStartIndex, endIndex);
+
+                        submit(executor, session -> {
+                            createClients(context, timerLogger, session, clientsStartIndex, endIndex);
+                        }, ExecutorHelper.TransactionListener.combine(clientsBatchSize.listener(endIndex - clientsStartIndex),
+                                progress.phase(TaskProgress.PHASE_CLIENTS, 0).listener(endIndex - clientsStartIndex)));
+                        return true;
+                    }
+                    break;
+                case STEP_COMPOSITE_ROLES:
+                    // Realm composite roles first, then composite roles of the clients and finally the default roles. Batches of all of them can run concurrently
+                    int realmComposites = tier.realmRolesGraph.getCompositeCount();
+                    int clientComposites = tier.getClientCompositeRolesCount();
+                    int compositeClients = clientComposites > 0 ? config.getClientsPerRealm() : 0;
+                    if (nextIndex < realmComposites) {
+                        int rolesStartIndex = nextIndex;
+                        int endIndex = Math.min(rolesStartIndex + config.getRolesPerTransaction(), realmComposites);
+                        nextIndex = endIndex;
+
+                        submit(executor, session -> {
+                            addRealmCompositeRoles(context, session, tier.realmRolesGraph, rolesStartIndex, endIndex);
+                        }, progress.phase(TaskProgress.PHASE_COMPOSITE_ROLES, 0).listener(endIndex - rolesStartIndex));
+                        return true;
+                    } else if (nextIndex < realmComposites + compositeClients) {
+                        int clientsStartIndex = nextIndex - realmComposites;
+                        int clientsPerTransaction = Math.max(1, config.getRolesPerTransaction() / clientComposites);
+                        int endIndex = Math.min(clientsStartIndex + clientsPerTransaction, compositeClients);
+                        nextIndex = realmComposites + endIndex;
+
+                        submit(executor, session -> {
+                            addClientCompositeRoles(context, session, tier.clientRolesGraph, tier.hasCrossClientComposites(), clientsStartIndex, endIndex);
+                        }, progress.phase(TaskProgress.PHASE_COMPOSITE_ROLES, 0).listener((long) (endIndex - clientsStartIndex) * clientComposites));
+                        return true;
+                    } else if (nextIndex == realmComposites + compositeClients && config.getDefaultRolesPerRealm() > 0) {
+                        nextIndex++;
+                        // Default roles are in the single transaction as all of them update the realm
+                        submit(executor, session -> addDefaultRoles(context, session), null);
+                        return true;
+                    }
+                    break;
+                case STEP_CACHING:
+                    if (nextIndex == 0) {
+                        nextIndex = 1;
+                        // This will cache the realm in Keycloak cache (looks like best regarding performance to do it in separate transaction)
+                        submit(executor, session -> populateRealmContext(context, session), progress.phase(TaskProgress.PHASE_CACHING, 0).listener(1));
+                        return true;
+                    }
+                    break;
+                case STEP_USERS:
+                    if (nextIndex < usersCount) {
+                        int usersStartIndex = nextIndex;
+                        int endIndex = Math.min(usersStartIndex + usersBatchSize.getBatchSize(), usersCount);
+                        nextIndex = endIndex;
+                        logger.tracef("usersStartIndex: %d, usersEndIndex: %d", usersStartIndex, endIndex);
+
+                        submit(executor, session -> {
+                            createUsers(context, timerLogger, session, usersStartIndex, endIndex, null);
+                            timerLogger.debug(logger, "Created %d users in realm %s", context.getUsersCount(), context.getRealm().getName());
+                        }, ExecutorHelper.TransactionListener.combine(usersBatchSize.listener(endIndex - usersStartIndex),
+                                progress.phase(TaskProgress.PHASE_USERS, 0).listener(endIndex - usersStartIndex)));
+                        return true;
+                    }
+                    break;
+                case STEP_ROLES_SUMMARY:
+                    if (nextIndex == 0 && config.getRoleSummaryUsers() > 0 && usersCount > 0) {
+                        nextIndex = 1;
+                        submit(executor, session -> summarizeExpandedRoles(context, timerLogger, session, usersCount, rolesSummary), null);
+                        return true;
+                    }
+                    break;
+                case STEP_OFFLINE_SESSIONS:
+                    if (nextIndex < config.getOfflineSessionsPerRealm()) {
+                        int sessionsStartIndex = nextIndex;
+                        int endIndex = Math.min(sessionsStartIndex + config.getOfflineSessionsPerTransaction(), config.getOfflineSessionsPerRealm());
+                        nextIndex = endIndex;
+
+                        submit(executor, session -> {
+                            createOfflineSessions(session, config, getSessionSubjects(session), endIndex - sessionsStartIndex);
+                        }, progress.phase(TaskProgress.PHASE_OFFLINE_SESSIONS, 0).listener(endIndex - sessionsStartIndex));
+                        return true;
+                    }
+                    break;
+                default:
+                    return false;
+            }
 
-                            }, config.getTransactionTimeoutInSeconds());
+            // All batches of the current step were submitted. Wait for them to finish before moving to the next step
+            if (batchesInProgress.get() > 0) {
+                return false;
+            }
 
-                            timerLogger.debug(logger, "Created %d users in realm %s", context.getUsers().size(), context.getRealm().getName());
-                        }
+            if (step == STEP_ROLES_AND_GROUPS) {
+                timerLogger.info(logger, "Created all %d realm roles, %d groups and %d client scopes in realm %s", context.getRealmRolesCount(), context.getGroupsCount(),
+                        config.getClientScopesPerRealm(), context.getRealm().getName());
+            } else if (step == STEP_CLIENTS) {
+                timerLogger.info(logger, "Created all %d clients in realm %s", context.getClientsCount(), context.getRealm().getName());
+                saveNextFreeIndex(NextIndexTracker.clientsKey(context.getRealm().getName(), config.getClientPrefix()), config.getClientsPerRealm());
+            } else if (step == STEP_COMPOSITE_ROLES && (tier.getCompositeRolesPerRealm() > 0 || config.getDefaultRolesPerRealm() > 0)) {
+                timerLogger.info(logger, "Created %d composite roles and %d default roles in realm %s", tier.getCompositeRolesPerRealm(),
+                        Math.min(config.getDefaultRolesPerRealm(), config.getRealmRolesPerRealm()), context.getRealm().getName());
+            } else if (step == STEP_USERS) {
+                timerLogger.info(logger, "Created all %d users in realm %s", context.getUsersCount(), context.getRealm().getName());
+                saveNextFreeIndex(NextIndexTracker.usersKey(context.getRealm().getName(), config.getUserPrefix()), usersCount);
+            } else if (step == STEP_OFFLINE_SESSIONS) {
+                timerLogger.info(logger, "Created all %d offline sessions in realm %s. Finished creation of realm.", config.getOfflineSessionsPerRealm(), context.getRealm().getName());
+            }
+            step++;
+            nextIndex = 0;
+            return submitNextBatch(executor);
+        }
+
+        // Sessions need just as many users as the count of sessions, so all the users of the huge realm are not looked-up
+        private synchronized RealmSubjects getSessionSubjects(KeycloakSession session) {
+            if (sessionSubjects == null) {
+                sessionSubjects = loadSessionSubjects(session, config, context.getRealm().getName(), Math.min(usersCount, config.getOfflineSessionsPerRealm()));
+            }
+            return sessionSubjects;
+        }
 
-                        timerLogger.info(logger, "Created all %d users in realm %s. Finished creation of realm.", context.getUsers().size(), context.getRealm().getName());
-                    });
+        // All the batches of the step were committed at this point, so the index can be saved immediately
+        private void saveNextFreeIndex(String entityKey, int nextFreeIndex) {
+            NextIndexTracker tracker = new NextIndexTracker(realmsIndex.getTaskManager(), entityKey);
+            tracker.batchCommitted(nextFreeIndex);
+            tracker.save();
+        }
 
+        private void submit(ExecutorHelper executor, KeycloakSessionTask task, ExecutorHelper.TransactionListener listener) {
+            batchesInProgress.incrementAndGet();
+            executor.addTask(task, ExecutorHelper.TransactionListener.combine(listener, (durationMs, success) -> {
+                if (!success) {
+                    failed = true;
                 }
+                batchesInProgress.decrementAndGet();
+                batchFinished.release();
+            }));
+        }
+    }
 
-                executor.waitForAllToFinish();
+    // Mapper types of the client scopes in the order they are used in every client scope
+    private static List<String> parseMapperTypes(DatasetConfig config) {
+        List<String> supportedTypes = Arrays.asList(DatasetConfig.MAPPER_HARDCODED_CLAIM, DatasetConfig.MAPPER_USER_ATTRIBUTE, DatasetConfig.MAPPER_GROUP_MEMBERSHIP,
+                DatasetConfig.MAPPER_AUDIENCE);
+        List<String> mapperTypes = new ArrayList<>();
+        for (String mapperType : config.getClientScopeMapperTypes().split(",")) {
+            mapperType = mapperType.trim();
+            if (!supportedTypes.contains(mapperType)) {
+                throw new DatasetException("Unsupported mapper type '" + mapperType + "' in client-scope-mapper-types. Supported types are " + supportedTypes);
+            }
+            mapperTypes.add(mapperType);
+        }
+        return mapperTypes;
+    }
 
-                timerLogger.info(logger, "Created all realms from '%s' to '%s'", config.getRealmPrefix() + startIndex, config.getRealmPrefix() + (realmEndIndex - 1));
+    // Fail early in case of invalid distributions of the roles and groups assigned to the users or invalid attributes of the users
+    private static void validateDistributions(DatasetConfig config) {
+        IndexDistribution.parse(config.getRealmRolesDistribution());
+        IndexDistribution.parse(config.getClientRolesDistribution());
+        IndexDistribution.parse(config.getGroupsDistribution());
 
-            } finally {
-                if (executor != null) {
-                    executor.shutDown();
-                }
-                new TaskManager(sessionn).removeExistingTask(true);
-            }
-        }), config.getTaskTimeout());
+        if (config.getAttributeValuesCardinality() < 1 || config.getValuesPerAttribute() < 1) {
+            throw new DatasetException("Both attribute-values-cardinality and values-per-attribute must be positive");
+        }
     }
 
     private Response handleDatasetException(DatasetException de) {
@@ -276,18 +792,31 @@ public class DatasetResourceProvider implements RealmResourceProvider {
                 throw new DatasetException("Realm '" + config.getRealmName() + "' not found");
             }
 
-            int startIndex = ConfigUtil.findFreeEntityIndex(index -> {
+            int startIndex = findFreeEntityIndexToCreate(NextIndexTracker.clientsKey(realm.getName(), config.getClientPrefix()), index -> {
                 String clientId = config.getClientPrefix() + index;
                 return realm.getClientByClientId(clientId) != null;
             });
             config.setStart(startIndex);
 
-            // Run this in separate thread to not block HTTP request
-            new Thread(() -> {
+            if (config.getDistributed()) {
+                DistributedTask task = createDistributedTask(DatasetConfig.OPERATION_CREATE_CLIENTS, config, startIndex);
 
-                createClientsImpl(timerLogger, baseSession.getKeycloakSessionFactory(), config, realm);
+                // Run this in separate thread to not block HTTP request
+                new Thread(() -> {
 
-            }).start();
+                    runDistributedTask(timerLogger, baseSession.getKeycloakSessionFactory(), config, task);
+
+                }).start();
+            } else {
+                CheckpointTracker checkpointTracker = new CheckpointTracker(taskManager, createCheckpoint(taskManager, DatasetConfig.OPERATION_CREATE_CLIENTS, config));
+
+                // Run this in separate thread to not block HTTP request
+                new Thread(() -> {
+
+                    createClientsImpl(timerLogger, baseSession.getKeycloakSessionFactory(), config, realm, checkpointTracker);
+
+                }).start();
+            }
             started = true;
 
             return Response.ok(TaskResponse.taskStarted(timerLogger.toString(), getStatusUrl())).build();
@@ -301,21 +830,50 @@ public class DatasetResourceProvider implements RealmResourceProvider {
     }
 
     // Implementation of creating many clients. This is triggered outside of HTTP request to not block HTTP request
-    private void createClientsImpl(TimerLogger timerLogger, KeycloakSessionFactory sessionFactory, DatasetConfig config, RealmModel realm) {
+    private void createClientsImpl(TimerLogger timerLogger, KeycloakSessionFactory sessionFactory, DatasetConfig config, RealmModel realm, CheckpointTracker checkpointTracker) {
         KeycloakModelUtils.runJobInTransactionWithTimeout(sessionFactory, (sessionn -> {
-            ExecutorHelper executor = null;
+            boolean checkpointFinished = false;
             try {
                 int startIndex = config.getStart();
                 logger.infof("Will start creating clients in the realm '%s' from '%s' to '%s'", config.getRealmName(), config.getClientPrefix() + startIndex, config.getClientPrefix() + (startIndex + config.getCount() - 1));
 
-                RealmContext context = new RealmContext(config);
-                context.setRealm(realm);
-                executor = new ExecutorHelper(config.getThreadsCount(), sessionFactory, config);
+                TaskProgress progress = new TaskProgress(new TaskManager(sessionn), config.getTaskTimeout());
+                progress.phase(TaskProgress.PHASE_CLIENTS, checkpointTracker.getMissingCount());
+                progress.publish();
+                checkpointTracker.save();
+
+                // In case that task is resumed, just the ranges, which were not yet committed, are created
+                createClientsInRanges(timerLogger, config, realm, checkpointTracker.getMissingRanges(), progress, checkpointTracker);
+
+                checkpointFinished = checkpointTracker.finish();
+            } finally {
+                if (!checkpointFinished) {
+                    checkpointTracker.save();
+                }
+                new TaskManager(sessionn).removeExistingTask(true);
+            }
+        }), config.getTaskTimeout());
+    }
 
-                // Create clients now
-                for (int i = startIndex; i < (startIndex + config.getCount()); i += config.getClientsPerTransaction()) {
+    // Create clients from the given ranges concurrently with multiple threads and wait for them to be created. Checkpoint tracker can be null
+    private void createClientsInRanges(TimerLogger timerLogger, DatasetConfig config, RealmModel realm, List<IndexRange> ranges, TaskProgress progress, CheckpointTracker checkpointTracker) {
+        ExecutorHelper executor = null;
+        NextIndexTracker clientsIndex = null;
+        try {
+            RealmContext context = new RealmContext(config);
+            context.setRealm(realm);
+            executor = new ExecutorHelper(config.getThreadsCount(), baseSession.getKeycloakSessionFactory(), config);
+            BatchSizeTuner clientsBatchSize = BatchSizeTuner.forClients(config, timerLogger);
+            TaskProgress.PhaseProgress clientsPhase = progress.phase(TaskProgress.PHASE_CLIENTS, 0);
+            clientsIndex = new NextIndexTracker(new TaskManager(baseSession), NextIndexTracker.clientsKey(realm.getName(), config.getClientPrefix()));
+
+            // Create clients now
+            int batchNumber = 0;
+            for (IndexRange range : ranges) {
+                for (int i = range.getFrom(); i < range.getTo(); ) {
                     final int clientsStartIndex = i;
-                    final int endIndex = Math.min(clientsStartIndex + config.getClientsPerTransaction(), startIndex + config.getCount());
+                    final int endIndex = Math.min(clientsStartIndex + clientsBatchSize.getBatchSize(), range.getTo());
+                    final int currentBatchNumber = ++batchNumber;
 
                     logger.tracef("clientsStartIndex: %d, clientsEndIndex: %d", clientsStartIndex, endIndex);
 
@@ -326,24 +884,31 @@ public class DatasetResourceProvider implements RealmResourceProvider {
 
                         timerLogger.debug(logger, "Created clients in realm %s from %d to %d", context.getRealm().getName(), clientsStartIndex, endIndex);
 
-                        if (((endIndex - startIndex) / config.getClientsPerTransaction()) % 20 == 0) {
-                            timerLogger.info(logger, "Created %d clients in realm %s", context.getClients().size(), context.getRealm().getName());
+                        if (currentBatchNumber % 20 == 0) {
+                            timerLogger.info(logger, "Created %d clients in realm %s", context.getClientsCount(), context.getRealm().getName());
                         }
 
-                    });
+                    }, ExecutorHelper.TransactionListener.combine(ExecutorHelper.TransactionListener.combine(clientsBatchSize.listener(endIndex - clientsStartIndex),
+                            clientsPhase.listener(endIndex - clientsStartIndex)), ExecutorHelper.TransactionListener.combine(clientsIndex.listener(endIndex),
+                            checkpointTracker == null ? null : checkpointTracker.listener(clientsStartIndex, endIndex))));
 
+                    i = endIndex;
                 }
+            }
 
-                executor.waitForAllToFinish();
+            executor.waitForAllToFinish();
 
-                timerLogger.info(logger, "Created all %d clients in realm %s", context.getClients().size(), context.getRealm().getName());
-            } finally {
-                if (executor != null) {
-                    executor.shutDown();
-                }
-                new TaskManager(sessionn).removeExistingTask(true);
+            clientsBatchSize.logCurrentState();
+
+            timerLogger.info(logger, "Created all %d clients in realm %s", context.getClientsCount(), context.getRealm().getName());
+        } finally {
+            if (executor != null) {
+                executor.shutDown();
             }
-        }), config.getTaskTimeout());
+            if (clientsIndex != null) {
+                clientsIndex.save();
+            }
+        }
     }
 
 
@@ -374,18 +939,39 @@ public class DatasetResourceProvider implements RealmResourceProvider {
                 throw new DatasetException("Realm '" + config.getRealmName() + "' not found");
             }
 
-            int startIndex = ConfigUtil.findFreeEntityIndex(index -> {
+            validateDistributions(config);
+            GroupHierarchy.fromConfig(config);
+
+            if (DatasetConfig.USERS_ENGINE_BULK.equals(config.getUsersEngine())) {
+                // Fail early if the datasource is not available
+                BulkUserWriter.forDataSource(config.getBulkDatasource());
+            }
+
+            int startIndex = findFreeEntityIndexToCreate(NextIndexTracker.usersKey(realm.getName(), config.getUserPrefix()), index -> {
                 String username = config.getUserPrefix() + index;
                 return baseSession.users().getUserByUsername(username, realm) != null;
             });
             config.setStart(startIndex);
 
-            // Run this in separate thread to not block HTTP request
-            new Thread(() -> {
+            if (config.getDistributed()) {
+                DistributedTask task = createDistributedTask(DatasetConfig.OPERATION_CREATE_USERS, config, startIndex);
 
-                createUsersImpl(timerLogger, baseSession.getKeycloakSessionFactory(), config, realm);
+                // Run this in separate thread to not block HTTP request
+                new Thread(() -> {
 
-            }).start();
+                    runDistributedTask(timerLogger, baseSession.getKeycloakSessionFactory(), config, task);
+
+                }).start();
+            } else {
+                CheckpointTracker checkpointTracker = new CheckpointTracker(taskManager, createCheckpoint(taskManager, DatasetConfig.OPERATION_CREATE_USERS, config));
+
+                // Run this in separate thread to not block HTTP request
+                new Thread(() -> {
+
+                    createUsersImpl(timerLogger, baseSession.getKeycloakSessionFactory(), config, realm, checkpointTracker);
+
+                }).start();
+            }
             started = true;
 
             return Response.ok(TaskResponse.taskStarted(timerLogger.toString(), getStatusUrl())).build();
@@ -399,57 +985,155 @@ public class DatasetResourceProvider implements RealmResourceProvider {
     }
 
     // Implementation of creating many users. This is triggered outside of HTTP request to not block HTTP request
-    private void createUsersImpl(TimerLogger timerLogger, KeycloakSessionFactory sessionFactory, DatasetConfig config, RealmModel realm) {
+    private void createUsersImpl(TimerLogger timerLogger, KeycloakSessionFactory sessionFactory, DatasetConfig config, RealmModel realm, CheckpointTracker checkpointTracker) {
         KeycloakModelUtils.runJobInTransactionWithTimeout(sessionFactory, (sessionn -> {
-            ExecutorHelper executor = null;
+            boolean checkpointFinished = false;
             try {
                 int startIndex = config.getStart();
 
                 logger.infof("Will start creating users in the realm '%s' from '%s' to '%s'", config.getRealmName(), config.getUserPrefix() + startIndex, config.getUserPrefix() + (startIndex + config.getCount() - 1));
                 logger.infof("Realm password policy: %s", realm.getPasswordPolicy().toString());
 
-                RealmContext context = new RealmContext(config);
-                context.setRealm(realm);
+                TaskProgress progress = new TaskProgress(new TaskManager(sessionn), config.getTaskTimeout());
+                progress.phase(TaskProgress.PHASE_CACHING, 1);
+                progress.phase(TaskProgress.PHASE_USERS, checkpointTracker.getMissingCount());
+                progress.publish();
+                checkpointTracker.save();
 
-                // Cache the realm (It is probably good due the defaultRoles and defaultGroups when creating users, which would otherwise need to be lookup from DB)
-                cacheRealmAndPopulateContext(context);
-                timerLogger.info(logger, "Cached realm %s", context.getRealm().getName());
+                // In case that task is resumed, just the ranges, which were not yet committed, are created
+                createUsersInRanges(timerLogger, sessionn, config, realm, checkpointTracker.getMissingRanges(), progress, checkpointTracker);
 
-                executor = new ExecutorHelper(config.getThreadsCount(), baseSession.getKeycloakSessionFactory(), config);
+                checkpointFinished = checkpointTracker.finish();
+            } finally {
+                if (!checkpointFinished) {
+                    checkpointTracker.save();
+                }
+                new TaskManager(sessionn).removeExistingTask(true);
+            }
+        }), config.getTaskTimeout());
+    }
+
+    // Create users from the given ranges concurrently with multiple threads and wait for them to be created. Checkpoint tracker can be null
+    private void createUsersInRanges(TimerLogger timerLogger, KeycloakSession sessionn, DatasetConfig config, RealmModel realm, List<IndexRange> ranges, TaskProgress progress,
+                                     CheckpointTracker checkpointTracker) {
+        ExecutorHelper executor = null;
+        PasswordHashingPipeline pipeline = null;
+        NextIndexTracker usersIndex = null;
+        try {
+            RealmContext context = new RealmContext(config);
+            context.setRealm(realm);
+            context.setBulkUserWriter(lookupBulkUserWriter(config, timerLogger));
+
+            TaskProgress.PhaseProgress cachingPhase = progress.phase(TaskProgress.PHASE_CACHING, 0);
+            TaskProgress.PhaseProgress usersPhase = progress.phase(TaskProgress.PHASE_USERS, 0);
+            usersIndex = new NextIndexTracker(new TaskManager(sessionn), NextIndexTracker.usersKey(realm.getName(), config.getUserPrefix()));
+
+            // Cache the realm (It is probably good due the defaultRoles and defaultGroups when creating users, which would otherwise need to be lookup from DB)
+            cacheRealmAndPopulateContext(context, cachingPhase.listener(1));
+            timerLogger.info(logger, "Cached realm %s", context.getRealm().getName());
+
+            executor = new ExecutorHelper(config.getThreadsCount(), baseSession.getKeycloakSessionFactory(), config);
+
+            if (context.getSharedPassword() != null) {
+                timerLogger.info(logger, "Using shared password hash for all the users. Password hashing pipeline not used");
+            } else if (config.getPasswordHashingPipeline()) {
+                pipeline = new PasswordHashingPipeline(config.getHashingThreadsCount(), config.getHashingQueueSize(), executor);
+                timerLogger.info(logger, "Using password hashing pipeline with %d hashing threads and %d writer threads", config.getHashingThreadsCount(), config.getThreadsCount());
+            }
 
-                // Create users now
-                for (int i = startIndex; i < (startIndex + config.getCount()); i += config.getUsersPerTransaction()) {
+            PasswordPolicy passwordPolicy = context.getRealm().getPasswordPolicy();
+            PasswordHashProvider hashProvider = getPasswordHashProvider(sessionn, passwordPolicy);
+            BatchSizeTuner usersBatchSize = BatchSizeTuner.forUsers(config, timerLogger);
+
+            // Create users now
+            int batchNumber = 0;
+            for (IndexRange range : ranges) {
+                for (int i = range.getFrom(); i < range.getTo(); ) {
                     final int usersStartIndex = i;
-                    final int endIndex = Math.min(usersStartIndex + config.getUsersPerTransaction(), startIndex + config.getCount());
+                    final int endIndex = Math.min(usersStartIndex + usersBatchSize.getBatchSize(), range.getTo());
+                    final int currentBatchNumber = ++batchNumber;
 
                     logger.tracef("usersStartIndex: %d, usersEndIndex: %d", usersStartIndex, endIndex);
 
-                    // Run this concurrently with multiple threads
-                    executor.addTask(session -> {
+                    ExecutorHelper.TransactionListener listener = ExecutorHelper.TransactionListener.combine(ExecutorHelper.TransactionListener.combine(
+                            usersBatchSize.listener(endIndex - usersStartIndex), usersPhase.listener(endIndex - usersStartIndex)),
+                            ExecutorHelper.TransactionListener.combine(usersIndex.listener(endIndex),
+                            checkpointTracker == null ? null : checkpointTracker.listener(usersStartIndex, endIndex)));
 
-                        createUsers(context, timerLogger, session, usersStartIndex, endIndex);
+                    if (pipeline == null) {
+                        // Run this concurrently with multiple threads
+                        executor.addTask(session -> {
 
-                        timerLogger.debug(logger, "Created users in realm %s from %d to %d", context.getRealm().getName(), usersStartIndex, endIndex);
+                            createUsers(context, timerLogger, session, usersStartIndex, endIndex, null);
 
-                        if (((endIndex - startIndex) / config.getUsersPerTransaction()) % 20 == 0) {
-                            timerLogger.info(logger, "Created %d users in realm %s", context.getUsers().size(), context.getRealm().getName());
-                        }
+                            logUsersBatchCreated(context, timerLogger, currentBatchNumber, usersStartIndex, endIndex);
 
-                    });
+                        }, listener);
+                    } else {
+                        // Hash passwords in the hashing stage and then create users by the DB writers
+                        pipeline.addTask(() -> hashPasswords(hashProvider, passwordPolicy, config, usersStartIndex, endIndex), (session, hashedPasswords) -> {
+
+                            createUsers(context, timerLogger, session, usersStartIndex, endIndex, hashedPasswords);
+
+                            logUsersBatchCreated(context, timerLogger, currentBatchNumber, usersStartIndex, endIndex);
+
+                        }, listener);
+                    }
 
+                    i = endIndex;
                 }
+            }
 
+            if (pipeline == null) {
                 executor.waitForAllToFinish();
+            } else {
+                pipeline.waitForAllToFinish();
+            }
 
-                timerLogger.info(logger, "Created all %d users in realm %s", context.getUsers().size(), context.getRealm().getName());
+            usersBatchSize.logCurrentState();
 
-            } finally {
-                if (executor != null) {
-                    executor.shutDown();
-                }
-                new TaskManager(sessionn).removeExistingTask(true);
+            timerLogger.info(logger, "Created all %d users in realm %s", context.getUsersCount(), context.getRealm().getName());
+
+        } finally {
+            if (pipeline != null) {
+                pipeline.shutDown();
             }
-        }), config.getTaskTimeout());
+            if (executor != null) {
+                executor.shutDown();
+            }
+            if (usersIndex != null) {
+                usersIndex.save();
+            }
+        }
+    }
+
+    // Writer is mandatory for the "bulk" users engine. For the "orm" engine, it is used just with "batched-assignments" to assign roles and groups to the whole batch of users.
+    // Otherwise or if the datasource is not available, roles and groups are assigned to the users one by one
+    private BulkUserWriter lookupBulkUserWriter(DatasetConfig config, TimerLogger timerLogger) {
+        if (DatasetConfig.USERS_ENGINE_BULK.equals(config.getUsersEngine())) {
+            BulkUserWriter writer = BulkUserWriter.forDataSource(config.getBulkDatasource());
+            timerLogger.info(logger, "Using bulk engine for creating users with the datasource %s", config.getBulkDatasource());
+            return writer;
+        }
+
+        if (!config.getBatchedAssignments()) {
+            return null;
+        }
+
+        try {
+            return BulkUserWriter.forDataSource(config.getBulkDatasource());
+        } catch (DatasetException de) {
+            logger.warnf("Datasource '%s' not available. Roles and groups will be assigned to the users one by one", config.getBulkDatasource());
+            return null;
+        }
+    }
+
+    private void logUsersBatchCreated(RealmContext context, TimerLogger timerLogger, int batchNumber, int usersStartIndex, int endIndex) {
+        timerLogger.debug(logger, "Created users in realm %s from %d to %d", context.getRealm().getName(), usersStartIndex, endIndex);
+
+        if (batchNumber % 20 == 0) {
+            timerLogger.info(logger, "Created %d users in realm %s", context.getUsersCount(), context.getRealm().getName());
+        }
     }
 
 
@@ -463,7 +1147,7 @@ public class DatasetResourceProvider implements RealmResourceProvider {
         try {
             DatasetConfig config = ConfigUtil.createConfigFromQueryParams(httpRequest, CREATE_EVENTS);
 
-            int lastRealmIndex = ConfigUtil.findFreeEntityIndex(index -> {
+            int lastRealmIndex = findFreeEntityIndex(NextIndexTracker.realmsKey(config.getRealmPrefix()), index -> {
                 String realmName = config.getRealmPrefix() + index;
                 return baseSession.getProvider(RealmProvider.class).getRealmByName(realmName) != null;
             }) - 1;
@@ -471,6 +1155,9 @@ public class DatasetResourceProvider implements RealmResourceProvider {
                 throw new DatasetException("Not found any realm with prefix '" + config.getRealmName() + "'");
             }
 
+            // Validate the event types before the task is started
+            EventTypeDistribution eventTypes = EventTypeDistribution.parse(config.getEventTypes());
+
             TimerLogger timerLogger = TimerLogger.start("Creation of " + config.getCount() + " events");
             TaskManager taskManager = new TaskManager(baseSession);
             String existingTask = taskManager.addTaskIfNotInProgress(timerLogger, config.getTaskTimeout());
@@ -486,7 +1173,7 @@ public class DatasetResourceProvider implements RealmResourceProvider {
             // Run this in separate thread to not block HTTP request
             new Thread(() -> {
 
-                createEventsImpl(timerLogger, baseSession.getKeycloakSessionFactory(), config, lastRealmIndex);
+                createEventsImpl(timerLogger, baseSession.getKeycloakSessionFactory(), config, lastRealmIndex, eventTypes);
 
             }).start();
             started = true;
@@ -502,36 +1189,54 @@ public class DatasetResourceProvider implements RealmResourceProvider {
     }
 
     // Implementation of creating many events. This is triggered outside of HTTP request to not block HTTP request
-    private void createEventsImpl(TimerLogger timerLogger, KeycloakSessionFactory sessionFactory, DatasetConfig config, int lastRealmIndex) {
+    private void createEventsImpl(TimerLogger timerLogger, KeycloakSessionFactory sessionFactory, DatasetConfig config, int lastRealmIndex, EventTypeDistribution eventTypes) {
         KeycloakModelUtils.runJobInTransactionWithTimeout(sessionFactory, (sessionn -> {
             ExecutorHelper executor = null;
             try {
                 executor = new ExecutorHelper(config.getThreadsCount(), baseSession.getKeycloakSessionFactory(), config);
 
+                TaskProgress progress = new TaskProgress(new TaskManager(sessionn), config.getTaskTimeout());
+                TaskProgress.PhaseProgress eventsPhase = progress.phase(TaskProgress.PHASE_EVENTS, config.getCount());
+                progress.publish();
+
+                // Users and clients of the realm are loaded by the first transaction, which creates the events in that realm
+                Map<String, RealmSubjects> realmSubjects = new ConcurrentHashMap<>();
+                long createdTime = Time.currentTimeMillis();
+
                 // Create events now
-                int eventsPerTransaction = 10000;
+                int eventsPerTransaction = config.getEventsPerTransaction();
                 for (int i = 0; i < config.getCount(); i += eventsPerTransaction) {
-                    final int eventsEndIndex = i + eventsPerTransaction;
+                    final int eventsStartIndex = i;
+                    final int eventsEndIndex = Math.min(i + eventsPerTransaction, config.getCount());
 
                     // Run this concurrently with multiple threads
                     executor.addTask(session -> {
 
                         EventStoreProvider eventStore = session.getProvider(EventStoreProvider.class);
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
 
-                        for (int j = 0 ; j<eventsPerTransaction ; j++) {
-                            int realmIdx = new Random().nextInt(lastRealmIndex + 1);
+                        for (int j = eventsStartIndex ; j < eventsEndIndex ; j++) {
+                            int realmIdx = random.nextInt(lastRealmIndex + 1);
                             String realmName = config.getRealmPrefix() + realmIdx;
+                            RealmSubjects subjects = getRealmSubjects(realmSubjects, realmName, name -> loadEventSubjects(session, config, name));
+
+                            EventType type = eventTypes.next(random);
+                            boolean error = type.name().endsWith("_ERROR");
+
+                            Map<String, String> details = new HashMap<>();
+                            details.put(Details.AUTH_METHOD, OIDCLoginProtocol.LOGIN_PROTOCOL);
 
                             Event event = new Event();
-                            event.setClientId("account");
-                            event.setDetails(new HashMap());
-                            event.setError("error");
-                            event.setIpAddress("127.0.0.1");
+                            event.setClientId(subjects.clientIds.isEmpty() ? "account" : subjects.clientIds.get(random.nextInt(subjects.clientIds.size())));
+                            event.setDetails(details);
+                            event.setError(error ? Errors.INVALID_USER_CREDENTIALS : null);
+                            event.setIpAddress("10." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256));
+                            // Just rely that realmName is same as realmId to avoid additional lookups
                             event.setRealmId(realmName);
-                            event.setSessionId(null);
-                            event.setTime(System.currentTimeMillis());
-                            event.setType(EventType.LOGIN);
-                            event.setUserId("123");
+                            event.setSessionId(error ? null : new UUID(random.nextLong(), random.nextLong()).toString());
+                            event.setTime(createdTime - (long) (random.nextDouble() * config.getEventsTimeRange() * 1000));
+                            event.setType(type);
+                            event.setUserId(subjects.userIds.isEmpty() ? null : subjects.userIds.get(random.nextInt(subjects.userIds.size())));
                             eventStore.onEvent(event);
                         }
 
@@ -539,7 +1244,7 @@ public class DatasetResourceProvider implements RealmResourceProvider {
                             timerLogger.info(logger, "Created %d events", eventsEndIndex);
                         }
 
-                    });
+                    }, eventsPhase.listener(eventsEndIndex - eventsStartIndex));
 
                 }
 
@@ -556,6 +1261,45 @@ public class DatasetResourceProvider implements RealmResourceProvider {
         }), config.getTaskTimeout());
     }
 
+    // Subjects are loaded outside of the ConcurrentHashMap.computeIfAbsent as the DB queries in the mapping function would block other threads accessing the map.
+    // Concurrent transactions may load the subjects of the same realm, but all of them then use the subjects, which were stored first
+    private static RealmSubjects getRealmSubjects(Map<String, RealmSubjects> realmSubjects, String realmName, Function<String, RealmSubjects> loader) {
+        RealmSubjects subjects = realmSubjects.get(realmName);
+        if (subjects == null) {
+            RealmSubjects loaded = loader.apply(realmName);
+            subjects = realmSubjects.putIfAbsent(realmName, loaded);
+            if (subjects == null) {
+                subjects = loaded;
+            }
+        }
+        return subjects;
+    }
+
+    private RealmSubjects loadEventSubjects(KeycloakSession session, DatasetConfig config, String realmName) {
+        RealmSubjects subjects = new RealmSubjects();
+        RealmModel realm = session.realms().getRealmByName(realmName);
+        if (realm != null) {
+            subjects.userIds = session.users().getUsers(realm, 0, config.getEventUsersPerRealm(), false).stream()
+                    .map(UserModel::getId)
+                    .collect(Collectors.toList());
+            subjects.clientIds = realm.getClients(0, config.getEventClientsPerRealm()).stream()
+                    .map(ClientModel::getClientId)
+                    .collect(Collectors.toList());
+        }
+        logger.debugf("Loaded %d users and %d clients for the events of realm %s", subjects.userIds.size(), subjects.clientIds.size(), realmName);
+        return subjects;
+    }
+
+    // Users and clients of the single realm, which are referenced by the created events or offline sessions
+    private static class RealmSubjects {
+
+        private String realmId;
+        private List<String> userIds = Collections.emptyList();
+        // Usernames with the same order like userIds. Filled just for the sessions
+        private List<String> usernames = Collections.emptyList();
+        private List<String> clientIds = Collections.emptyList();
+    }
+
 
     @GET
     @Path("/create-offline-sessions")
@@ -567,13 +1311,7 @@ public class DatasetResourceProvider implements RealmResourceProvider {
         try {
             DatasetConfig config = ConfigUtil.createConfigFromQueryParams(httpRequest, CREATE_OFFLINE_SESSIONS);
 
-            int lastRealmIndex = ConfigUtil.findFreeEntityIndex(index -> {
-                String realmName = config.getRealmPrefix() + index;
-                return baseSession.getProvider(RealmProvider.class).getRealmByName(realmName) != null;
-            }) - 1;
-            if (lastRealmIndex < 0) {
-                throw new DatasetException("Not found any realm with prefix '" + config.getRealmName() + "'");
-            }
+            int lastRealmIndex = findLastRealmIndex(config);
 
             TimerLogger timerLogger = TimerLogger.start("Creation of " + config.getCount() + " offline sessions");
             TaskManager taskManager = new TaskManager(baseSession);
@@ -587,12 +1325,23 @@ public class DatasetResourceProvider implements RealmResourceProvider {
             logger.infof("Trigger creating offline sessions with the configuration: %s", config);
             logger.infof("Will create offline sessions in the realms '" + config.getRealmPrefix() + "0' - '" + config.getRealmPrefix() + lastRealmIndex + "'");
 
-            // Run this in separate thread to not block HTTP request
-            new Thread(() -> {
+            if (config.getDistributed()) {
+                DistributedTask task = createDistributedTask(DatasetConfig.OPERATION_CREATE_OFFLINE_SESSIONS, config, 0);
 
-                createOfflineSessionsImpl(timerLogger, baseSession.getKeycloakSessionFactory(), config, lastRealmIndex);
+                // Run this in separate thread to not block HTTP request
+                new Thread(() -> {
 
-            }).start();
+                    runDistributedTask(timerLogger, baseSession.getKeycloakSessionFactory(), config, task);
+
+                }).start();
+            } else {
+                // Run this in separate thread to not block HTTP request
+                new Thread(() -> {
+
+                    createOfflineSessionsImpl(timerLogger, baseSession.getKeycloakSessionFactory(), config, lastRealmIndex);
+
+                }).start();
+            }
             started = true;
 
             return Response.ok(TaskResponse.taskStarted(timerLogger.toString(), getStatusUrl())).build();
@@ -605,61 +1354,297 @@ public class DatasetResourceProvider implements RealmResourceProvider {
         }
     }
 
+    // Find the free index with the help of the next free index saved in the work cache. It never updates the work cache, so it is used by the read-only endpoints
+    private int findFreeEntityIndex(String entityKey, Function<Integer, Boolean> finder) {
+        Integer knownFreeIndex = new TaskManager(baseSession).getNextFreeIndex(entityKey);
+        return ConfigUtil.findFreeEntityIndex(knownFreeIndex, finder);
+    }
+
+    // Same like findFreeEntityIndex, but used by the tasks, which create the entities. If the DB needed to be probed, the found index is saved, so the next lookup is fast
+    private int findFreeEntityIndexToCreate(String entityKey, Function<Integer, Boolean> finder) {
+        NextIndexTracker tracker = new NextIndexTracker(new TaskManager(baseSession), entityKey);
+        Integer knownFreeIndex = tracker.getTaskManager().getNextFreeIndex(entityKey);
+        int freeIndex = ConfigUtil.findFreeEntityIndex(knownFreeIndex, finder);
+        if (knownFreeIndex == null || knownFreeIndex != freeIndex) {
+            tracker.saveProbedIndex(freeIndex);
+        }
+        return freeIndex;
+    }
+
+    private int findLastRealmIndex(DatasetConfig config) {
+        int lastRealmIndex = findFreeEntityIndex(NextIndexTracker.realmsKey(config.getRealmPrefix()), index -> {
+            String realmName = config.getRealmPrefix() + index;
+            return baseSession.getProvider(RealmProvider.class).getRealmByName(realmName) != null;
+        }) - 1;
+        if (lastRealmIndex < 0) {
+            throw new DatasetException("Not found any realm with prefix '" + config.getRealmPrefix() + "'");
+        }
+        return lastRealmIndex;
+    }
+
     // Implementation of creating many offline sessions. This is triggered outside of HTTP request to not block HTTP request
     private void createOfflineSessionsImpl(TimerLogger timerLogger, KeycloakSessionFactory sessionFactory, DatasetConfig config, int lastRealmIndex) {
         KeycloakModelUtils.runJobInTransactionWithTimeout(sessionFactory, (sessionn -> {
-            ExecutorHelper executor = null;
             try {
-                executor = new ExecutorHelper(config.getThreadsCount(), baseSession.getKeycloakSessionFactory(), config);
+                TaskProgress progress = new TaskProgress(new TaskManager(sessionn), config.getTaskTimeout());
+                progress.phase(TaskProgress.PHASE_OFFLINE_SESSIONS, config.getCount());
+                progress.publish();
 
-                // Create events now
-                int offlineSessionsPerTransaction = 100;
-                for (int i = 0; i < config.getCount(); i += offlineSessionsPerTransaction) {
-                    final int sessionIndex = i + offlineSessionsPerTransaction;
+                createOfflineSessionsInRange(timerLogger, config, lastRealmIndex, 0, config.getCount(), progress);
 
-                    // Run this concurrently with multiple threads
-                    executor.addTask(session -> {
+                timerLogger.info(logger, "Created all %d offline sessions", config.getCount());
 
-                        UserSessionPersisterProvider persister = session.getProvider(UserSessionPersisterProvider.class);
+            } finally {
+                new TaskManager(sessionn).removeExistingTask(true);
+            }
+        }), config.getTaskTimeout());
+    }
 
-                        int realmIdx = new Random().nextInt(lastRealmIndex + 1);
-                        String realmName = config.getRealmPrefix() + realmIdx;
-                        RealmModel realm = session.realms().getRealmByName(realmName);
-                        if (realm == null) {
-                            throw new IllegalStateException("Not found realm with name '" + realmName + "'");
-                        }
-                        // Just use user like "user-0"
-                        String username = config.getUserPrefix() + "0";
-                        UserModel user = session.users().getUserByUsername(username, realm);
-                        if (user == null) {
-                            throw new IllegalStateException("Not found user with username '" + username + "' in the realm '" + realmName + "'");
-                        }
-                        // Just use client like "client-0"
-                        String clientId = config.getClientPrefix() + "0";
-                        ClientModel client = session.realms().getClientByClientId(clientId, realm);
-                        if (client == null) {
-                            throw new IllegalStateException("Not found client with clientId  '" + client + "' in the realm '" + clientId + "'");
-                        }
+    // Create offline sessions with the indexes from the given range concurrently with multiple threads and wait for them to be created
+    private void createOfflineSessionsInRange(TimerLogger timerLogger, DatasetConfig config, int lastRealmIndex, int startIndex, int endIndex, TaskProgress progress) {
+        ExecutorHelper executor = null;
+        try {
+            executor = new ExecutorHelper(config.getThreadsCount(), baseSession.getKeycloakSessionFactory(), config);
+            TaskProgress.PhaseProgress offlineSessionsPhase = progress.phase(TaskProgress.PHASE_OFFLINE_SESSIONS, 0);
 
-                        for (int j = 0 ; j<offlineSessionsPerTransaction ; j++) {
-                            UserSessionModel userSession = session.sessions().createUserSession(realm, user, username, "127.0.0.1", "form", false, null, null);
-                            AuthenticatedClientSessionModel clientSession = session.sessions().createClientSession(userSession.getRealm(), client, userSession);
+            // Users and clients of the realm are resolved by the first transaction, which creates the offline sessions in that realm
+            Map<String, RealmSubjects> realmSubjects = new ConcurrentHashMap<>();
 
-                            persister.createUserSession(userSession, true);
-                            persister.createClientSession(clientSession, true);
-                        }
+            // Create offline sessions now
+            int offlineSessionsPerTransaction = config.getOfflineSessionsPerTransaction();
+            for (int i = startIndex; i < endIndex; i += offlineSessionsPerTransaction) {
+                final int sessionIndex = i + offlineSessionsPerTransaction;
+                final int sessionsCount = Math.min(offlineSessionsPerTransaction, endIndex - i);
 
-                        if (sessionIndex % (config.getThreadsCount() * offlineSessionsPerTransaction) == 0) {
-                            timerLogger.info(logger, "Created %d offline sessions", sessionIndex);
-                        }
+                // Run this concurrently with multiple threads
+                executor.addTask(session -> {
 
-                    });
+                    int realmIdx = ThreadLocalRandom.current().nextInt(lastRealmIndex + 1);
+                    String realmName = config.getRealmPrefix() + realmIdx;
+                    RealmSubjects subjects = getRealmSubjects(realmSubjects, realmName, name -> loadSessionSubjects(session, config, name, config.getUsersPerRealm()));
 
-                }
+                    createOfflineSessions(session, config, subjects, sessionsCount);
 
-                executor.waitForAllToFinish();
+                    if (sessionIndex % (config.getThreadsCount() * offlineSessionsPerTransaction) == 0) {
+                        timerLogger.info(logger, "Created %d offline sessions", sessionIndex);
+                    }
 
-                timerLogger.info(logger, "Created all %d offline sessions", config.getCount());
+                }, offlineSessionsPhase.listener(sessionsCount));
+
+            }
+
+            executor.waitForAllToFinish();
+
+        } finally {
+            if (executor != null) {
+                executor.shutDown();
+            }
+        }
+    }
+
+    // Create offline sessions of random users and clients of the realm
+    private void createOfflineSessions(KeycloakSession session, DatasetConfig config, RealmSubjects subjects, int sessionsCount) {
+        UserSessionPersisterProvider persister = session.getProvider(UserSessionPersisterProvider.class);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        // Realm and clients are cached, so these are not DB lookups
+        RealmModel realm = session.realms().getRealm(subjects.realmId);
+        List<ClientModel> clients = subjects.clientIds.stream().map(realm::getClientById).collect(Collectors.toList());
+        int clientSessionsCount = Math.min(config.getClientSessionsPerUserSession(), clients.size());
+
+        for (int j = 0 ; j<sessionsCount ; j++) {
+            String userId = subjects.userIds.get(random.nextInt(subjects.userIds.size()));
+            Map<String, AuthenticatedClientSessionModel> clientSessions = new HashMap<>();
+            UserSessionModel userSession = newOfflineUserSession(session, realm, userId, clientSessions);
+            persister.createUserSession(userSession, true);
+
+            // Consecutive clients from the random index, so every client session is for the different client
+            int clientIndex = random.nextInt(clients.size());
+            for (int k = 0 ; k<clientSessionsCount ; k++) {
+                ClientModel client = clients.get((clientIndex + k) % clients.size());
+                AuthenticatedClientSessionModel clientSession = newOfflineClientSession(realm, client, userSession);
+                clientSessions.put(client.getId(), clientSession);
+                persister.createClientSession(clientSession, true);
+            }
+        }
+    }
+
+    // Resolve first "usersCount" users like "user-0", "user-1" ... and clients like "client-0", "client-1" ... of the realm, which offline or online sessions are spread over
+    private RealmSubjects loadSessionSubjects(KeycloakSession session, DatasetConfig config, String realmName, int usersCount) {
+        RealmModel realm = session.realms().getRealmByName(realmName);
+        if (realm == null) {
+            throw new IllegalStateException("Not found realm with name '" + realmName + "'");
+        }
+
+        RealmSubjects subjects = new RealmSubjects();
+        subjects.realmId = realm.getId();
+        subjects.userIds = new ArrayList<>();
+        subjects.usernames = new ArrayList<>();
+
+        // Just the users with the needed indexes are looked-up by the unique username. Only their IDs and usernames are kept, not the whole models
+        for (int i = 0; i < usersCount; i++) {
+            String username = (config.getUserPrefix() + i).toLowerCase();
+            UserModel user = session.users().getUserByUsername(username, realm);
+            if (user != null) {
+                subjects.userIds.add(user.getId());
+                subjects.usernames.add(username);
+            }
+        }
+        subjects.clientIds = new ArrayList<>();
+        for (int i = 0; i < config.getClientsPerRealm(); i++) {
+            ClientModel client = realm.getClientByClientId(config.getClientPrefix() + i);
+            if (client != null) {
+                subjects.clientIds.add(client.getId());
+            }
+        }
+
+        if (subjects.userIds.isEmpty()) {
+            throw new IllegalStateException("Not found any user with prefix '" + config.getUserPrefix() + "' in the realm '" + realmName + "'");
+        }
+        if (subjects.clientIds.isEmpty()) {
+            throw new IllegalStateException("Not found any client with prefix '" + config.getClientPrefix() + "' in the realm '" + realmName + "'");
+        }
+        logger.debugf("Resolved %d users and %d clients for the sessions of realm %s", subjects.userIds.size(), subjects.clientIds.size(), realmName);
+        return subjects;
+    }
+
+    // Offline user session, which is just written to the DB by the persister. Unlike the sessions created by the UserSessionProvider, it is not added to the infinispan cache
+    // and the user is not looked-up
+    private UserSessionModel newOfflineUserSession(KeycloakSession session, RealmModel realm, String userId, Map<String, AuthenticatedClientSessionModel> clientSessions) {
+        int currentTime = Time.currentTime();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("ipAddress", "10." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256));
+        data.put("authMethod", "form");
+        data.put("rememberMe", false);
+        data.put("started", currentTime);
+        data.put("notes", new HashMap<>());
+        data.put("state", UserSessionModel.State.LOGGED_IN.toString());
+
+        PersistentUserSessionModel model = new PersistentUserSessionModel();
+        model.setUserSessionId(new UUID(random.nextLong(), random.nextLong()).toString());
+        model.setStarted(currentTime);
+        model.setLastSessionRefresh(currentTime);
+        model.setOffline(true);
+        model.setData(writeSessionData(data));
+
+        UserModel user = new InMemoryUserAdapter(session, realm, userId);
+        return new PersistentUserSessionAdapter(session, model, realm, userId, clientSessions) {
+
+            @Override
+            public UserModel getUser() {
+                return user;
+            }
+
+        };
+    }
+
+    private AuthenticatedClientSessionModel newOfflineClientSession(RealmModel realm, ClientModel client, UserSessionModel userSession) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("authMethod", OIDCLoginProtocol.LOGIN_PROTOCOL);
+        data.put("notes", new HashMap<>());
+
+        PersistentClientSessionModel model = new PersistentClientSessionModel();
+        model.setUserSessionId(userSession.getId());
+        model.setClientId(client.getId());
+        model.setUserId(userSession.getUser().getId());
+        model.setTimestamp(Time.currentTime());
+        model.setData(writeSessionData(data));
+
+        return new PersistentAuthenticatedClientSessionAdapter(model, realm, client, userSession);
+    }
+
+    private String writeSessionData(Map<String, Object> data) {
+        try {
+            return JsonSerialization.writeValueAsString(data);
+        } catch (IOException ioe) {
+            throw new RuntimeException(ioe);
+        }
+    }
+
+
+    @GET
+    @Path("/create-online-sessions")
+    @NoCache
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response createOnlineSessions() {
+        boolean started = false;
+        boolean taskAdded = false;
+        try {
+            DatasetConfig config = ConfigUtil.createConfigFromQueryParams(httpRequest, CREATE_ONLINE_SESSIONS);
+
+            int lastRealmIndex = findLastRealmIndex(config);
+
+            TimerLogger timerLogger = TimerLogger.start("Creation of " + config.getCount() + " online sessions");
+            TaskManager taskManager = new TaskManager(baseSession);
+            String existingTask = taskManager.addTaskIfNotInProgress(timerLogger, config.getTaskTimeout());
+            if (existingTask != null) {
+                return Response.status(400).entity(TaskResponse.errorSomeTaskInProgress(existingTask, getStatusUrl())).build();
+            } else {
+                taskAdded = true;
+            }
+
+            logger.infof("Trigger creating online sessions with the configuration: %s", config);
+            logger.infof("Will create online sessions in the realms '" + config.getRealmPrefix() + "0' - '" + config.getRealmPrefix() + lastRealmIndex + "'");
+
+            // Run this in separate thread to not block HTTP request
+            new Thread(() -> {
+
+                createOnlineSessionsImpl(timerLogger, baseSession.getKeycloakSessionFactory(), config, lastRealmIndex);
+
+            }).start();
+            started = true;
+
+            return Response.ok(TaskResponse.taskStarted(timerLogger.toString(), getStatusUrl())).build();
+        } catch (DatasetException de) {
+            return handleDatasetException(de);
+        } finally {
+            if (taskAdded && !started) {
+                new TaskManager(baseSession).removeExistingTask(false);
+            }
+        }
+    }
+
+    // Implementation of creating many online sessions. Sessions are added directly to the "sessions" and "clientSessions" caches rather than through the
+    // UserSessionProvider, so that every batch is added to each cache with single bulk operation
+    private void createOnlineSessionsImpl(TimerLogger timerLogger, KeycloakSessionFactory sessionFactory, DatasetConfig config, int lastRealmIndex) {
+        KeycloakModelUtils.runJobInTransactionWithTimeout(sessionFactory, (sessionn -> {
+            ExecutorHelper executor = null;
+            try {
+                executor = new ExecutorHelper(config.getThreadsCount(), baseSession.getKeycloakSessionFactory(), config);
+
+                TaskProgress progress = new TaskProgress(new TaskManager(sessionn), config.getTaskTimeout());
+                TaskProgress.PhaseProgress onlineSessionsPhase = progress.phase(TaskProgress.PHASE_ONLINE_SESSIONS, config.getCount());
+                progress.publish();
+
+                // Users and clients of the realm are resolved by the first batch, which creates the sessions in that realm
+                Map<String, RealmSubjects> realmSubjects = new ConcurrentHashMap<>();
+
+                int sessionsPerBatch = config.getOnlineSessionsPerBatch();
+                for (int i = 0; i < config.getCount(); i += sessionsPerBatch) {
+                    final int sessionIndex = i + sessionsPerBatch;
+                    final int sessionsCount = Math.min(sessionsPerBatch, config.getCount() - i);
+
+                    // Run this concurrently with multiple threads
+                    executor.addTask(session -> {
+
+                        int realmIdx = ThreadLocalRandom.current().nextInt(lastRealmIndex + 1);
+                        String realmName = config.getRealmPrefix() + realmIdx;
+                        RealmSubjects subjects = getRealmSubjects(realmSubjects, realmName, name -> loadSessionSubjects(session, config, name, config.getUsersPerRealm()));
+
+                        createOnlineSessions(session, config, subjects, sessionsCount);
+
+                        if (sessionIndex % (config.getThreadsCount() * sessionsPerBatch) == 0) {
+                            timerLogger.info(logger, "Created %d online sessions", sessionIndex);
+                        }
+
+                    }, onlineSessionsPhase.listener(sessionsCount));
+                }
+
+                executor.waitForAllToFinish();
+
+                timerLogger.info(logger, "Created all %d online sessions", config.getCount());
 
             } finally {
                 if (executor != null) {
@@ -670,6 +1655,307 @@ public class DatasetResourceProvider implements RealmResourceProvider {
         }), config.getTaskTimeout());
     }
 
+    // Worker task to be triggered by single executor thread. All the sessions are in the same realm, so they have same lifespan and can be added with single putAll
+    private void createOnlineSessions(KeycloakSession session, DatasetConfig config, RealmSubjects subjects, int sessionsCount) {
+        RealmModel realm = session.realms().getRealm(subjects.realmId);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int currentTime = Time.currentTime();
+        int clientSessionsCount = Math.min(config.getClientSessionsPerUserSession(), subjects.clientIds.size());
+
+        Map<String, SessionEntityWrapper<UserSessionEntity>> userSessions = new HashMap<>();
+        Map<UUID, SessionEntityWrapper<AuthenticatedClientSessionEntity>> clientSessions = new HashMap<>();
+
+        for (int i = 0; i < sessionsCount; i++) {
+            int userIndex = random.nextInt(subjects.userIds.size());
+
+            UserSessionEntity userSession = new UserSessionEntity();
+            userSession.setId(new UUID(random.nextLong(), random.nextLong()).toString());
+            userSession.setRealmId(realm.getId());
+            userSession.setUser(subjects.userIds.get(userIndex));
+            userSession.setLoginUsername(subjects.usernames.get(userIndex));
+            userSession.setIpAddress("10." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256));
+            userSession.setAuthMethod("form");
+            userSession.setRememberMe(false);
+            userSession.setStarted(currentTime);
+            userSession.setLastSessionRefresh(currentTime);
+            userSession.setState(UserSessionModel.State.LOGGED_IN);
+
+            // Consecutive clients from the random index, so every client session is for the different client
+            int clientIndex = random.nextInt(subjects.clientIds.size());
+            for (int k = 0; k < clientSessionsCount; k++) {
+                String clientUuid = subjects.clientIds.get((clientIndex + k) % subjects.clientIds.size());
+
+                AuthenticatedClientSessionEntity clientSession = new AuthenticatedClientSessionEntity(new UUID(random.nextLong(), random.nextLong()));
+                clientSession.setRealmId(realm.getId());
+                clientSession.setAuthMethod(OIDCLoginProtocol.LOGIN_PROTOCOL);
+                clientSession.setTimestamp(currentTime);
+
+                userSession.getAuthenticatedClientSessions().put(clientUuid, clientSession.getId());
+                clientSessions.put(clientSession.getId(), new SessionEntityWrapper<>(clientSession));
+            }
+
+            userSessions.put(userSession.getId(), new SessionEntityWrapper<>(userSession));
+        }
+
+        long lifespanMs = toExpirationMs(config.getSessionLifespan() == -1 ? realm.getSsoSessionMaxLifespan() : config.getSessionLifespan());
+        long maxIdleMs = toExpirationMs(config.getSessionMaxIdle() == -1 ? realm.getSsoSessionIdleTimeout() : config.getSessionMaxIdle());
+
+        InfinispanConnectionProvider provider = session.getProvider(InfinispanConnectionProvider.class);
+        Cache<String, SessionEntityWrapper<UserSessionEntity>> userSessionsCache = provider.getCache(InfinispanConnectionProvider.USER_SESSION_CACHE_NAME);
+        Cache<UUID, SessionEntityWrapper<AuthenticatedClientSessionEntity>> clientSessionsCache = provider.getCache(InfinispanConnectionProvider.CLIENT_SESSION_CACHE_NAME);
+
+        // Client sessions first, so that user session never references missing client session
+        withSessionCacheFlags(clientSessionsCache, config).putAll(clientSessions, lifespanMs, TimeUnit.MILLISECONDS, maxIdleMs, TimeUnit.MILLISECONDS);
+        withSessionCacheFlags(userSessionsCache, config).putAll(userSessions, lifespanMs, TimeUnit.MILLISECONDS, maxIdleMs, TimeUnit.MILLISECONDS);
+    }
+
+    private <K, V> AdvancedCache<K, V> withSessionCacheFlags(Cache<K, V> cache, DatasetConfig config) {
+        if (config.getUseRemoteStore()) {
+            return cache.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES);
+        } else {
+            return cache.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES, Flag.SKIP_CACHE_STORE, Flag.SKIP_CACHE_LOAD);
+        }
+    }
+
+    // Infinispan uses -1 for the entries, which never expire
+    private long toExpirationMs(int seconds) {
+        return seconds > 0 ? TimeUnit.SECONDS.toMillis(seconds) : -1;
+    }
+
+
+    @GET
+    @Path("/create-authz")
+    @NoCache
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response createAuthz() {
+        boolean started = false;
+        boolean taskAdded = false;
+        try {
+            DatasetConfig config = ConfigUtil.createConfigFromQueryParams(httpRequest, CREATE_AUTHZ);
+
+            TimerLogger timerLogger = TimerLogger.start("Creation of " + config.getCount() + " resource servers in the realm " + config.getRealmName());
+            TaskManager taskManager = new TaskManager(baseSession);
+            String existingTask = taskManager.addTaskIfNotInProgress(timerLogger, config.getTaskTimeout());
+            if (existingTask != null) {
+                return Response.status(400).entity(TaskResponse.errorSomeTaskInProgress(existingTask, getStatusUrl())).build();
+            } else {
+                taskAdded = true;
+            }
+
+            logger.infof("Trigger creating resource servers with the configuration: %s", config);
+
+            RealmModel realm = baseSession.getProvider(RealmProvider.class).getRealmByName(config.getRealmName());
+            if (realm == null) {
+                throw new DatasetException("Realm '" + config.getRealmName() + "' not found");
+            }
+
+            // Clients, which are not yet resource servers, in the same order as they were created. Indexes of the clients may have gaps (EG. after failed batches
+            // or removed clients), so every index up to the probed count of clients is checked
+            StoreFactory storeFactory = baseSession.getProvider(AuthorizationProvider.class).getStoreFactory();
+            int clientsCount = findFreeEntityIndex(NextIndexTracker.clientsKey(realm.getName(), config.getClientPrefix()),
+                    index -> realm.getClientByClientId(config.getClientPrefix() + index) != null);
+            List<Integer> clientIndexes = new ArrayList<>(config.getCount());
+            for (int i = 0; i < clientsCount && clientIndexes.size() < config.getCount(); i++) {
+                ClientModel client = realm.getClientByClientId(config.getClientPrefix() + i);
+                if (client != null && storeFactory.getResourceServerStore().findById(client.getId()) == null) {
+                    clientIndexes.add(i);
+                }
+            }
+            if (clientIndexes.size() < config.getCount()) {
+                throw new DatasetException("Found just " + clientIndexes.size() + " clients with prefix '" + config.getClientPrefix() + "', which are not yet resource servers in the realm '"
+                        + realm.getName() + "'. Create the clients before creating the resource servers");
+            }
+
+            // Policies reference the existing roles, groups and users of the realm. Just the existing ones are referenced, so the gaps in the indexes don't matter
+            AuthzSubjects subjects = new AuthzSubjects();
+            subjects.roleNames = findExistingSubjects(ConfigUtil.findFreeEntityIndex(index -> realm.getRole(config.getRealmRolePrefix() + index) != null),
+                    index -> realm.getRole(config.getRealmRolePrefix() + index) == null ? null : config.getRealmRolePrefix() + index);
+            subjects.groupPaths = findExistingSubjects(ConfigUtil.findFreeEntityIndex(index -> KeycloakModelUtils.findGroupByPath(realm, "/" + config.getGroupPrefix() + index) != null),
+                    index -> KeycloakModelUtils.findGroupByPath(realm, "/" + config.getGroupPrefix() + index) == null ? null : "/" + config.getGroupPrefix() + index);
+            int usersCount = findFreeEntityIndex(NextIndexTracker.usersKey(realm.getName(), config.getUserPrefix()), index -> {
+                String username = config.getUserPrefix() + index;
+                return baseSession.users().getUserByUsername(username, realm) != null;
+            });
+            subjects.usernames = findExistingSubjects(usersCount, index -> {
+                String username = config.getUserPrefix() + index;
+                return baseSession.users().getUserByUsername(username, realm) == null ? null : username;
+            });
+            logger.infof("Policies will reference %d realm roles, %d groups and %d users of the realm '%s'", subjects.roleNames.size(), subjects.groupPaths.size(),
+                    subjects.usernames.size(), realm.getName());
+
+            // Run this in separate thread to not block HTTP request
+            new Thread(() -> {
+
+                createAuthzImpl(timerLogger, baseSession.getKeycloakSessionFactory(), config, realm, clientIndexes, subjects);
+
+            }).start();
+            started = true;
+
+            return Response.ok(TaskResponse.taskStarted(timerLogger.toString(), getStatusUrl())).build();
+        } catch (DatasetException de) {
+            return handleDatasetException(de);
+        } finally {
+            if (taskAdded && !started) {
+                new TaskManager(baseSession).removeExistingTask(false);
+            }
+        }
+    }
+
+    // Implementation of creating many resource servers. This is triggered outside of HTTP request to not block HTTP request
+    private void createAuthzImpl(TimerLogger timerLogger, KeycloakSessionFactory sessionFactory, DatasetConfig config, RealmModel realm, List<Integer> clientIndexes,
+                                 AuthzSubjects subjects) {
+        KeycloakModelUtils.runJobInTransactionWithTimeout(sessionFactory, (sessionn -> {
+            ExecutorHelper executor = null;
+            try {
+                logger.infof("Will start creating resource servers in the realm '%s' for the clients from '%s' to '%s'", realm.getName(),
+                        config.getClientPrefix() + clientIndexes.get(0), config.getClientPrefix() + clientIndexes.get(clientIndexes.size() - 1));
+
+                executor = new ExecutorHelper(config.getThreadsCount(), sessionFactory, config);
+
+                TaskProgress progress = new TaskProgress(new TaskManager(sessionn), config.getTaskTimeout());
+                TaskProgress.PhaseProgress authzPhase = progress.phase(TaskProgress.PHASE_AUTHZ, config.getCount());
+                progress.publish();
+
+                for (int i = 0; i < clientIndexes.size(); i += config.getAuthzClientsPerTransaction()) {
+                    final List<Integer> batch = new ArrayList<>(clientIndexes.subList(i, Math.min(i + config.getAuthzClientsPerTransaction(), clientIndexes.size())));
+
+                    // Run this concurrently with multiple threads
+                    executor.addTask(session -> {
+                        createResourceServers(session, config, realm.getId(), subjects, batch);
+                        timerLogger.debug(logger, "Created resource servers for the clients from '%s' to '%s'", config.getClientPrefix() + batch.get(0),
+                                config.getClientPrefix() + batch.get(batch.size() - 1));
+                    }, authzPhase.listener(batch.size()));
+                }
+
+                executor.waitForAllToFinish();
+
+                timerLogger.info(logger, "Created all %d resource servers in the realm %s", config.getCount(), realm.getName());
+            } finally {
+                if (executor != null) {
+                    executor.shutDown();
+                }
+                new TaskManager(sessionn).removeExistingTask(true);
+            }
+        }), config.getTaskTimeout());
+    }
+
+    // Worker task to be triggered by single executor thread. Every client becomes the resource server with its scopes, resources, policies and the resource permission for every resource.
+    // Policies reference the roles, groups and users round-robin, so the policies of different clients reference different subjects
+    private void createResourceServers(KeycloakSession session, DatasetConfig config, String realmId, AuthzSubjects subjects, List<Integer> clientIndexes) {
+        RealmModel realm = session.realms().getRealm(realmId);
+        session.getContext().setRealm(realm);
+        StoreFactory storeFactory = session.getProvider(AuthorizationProvider.class).getStoreFactory();
+
+        for (int i : clientIndexes) {
+            // Clients could be removed or turned to the resource servers by someone else since they were selected
+            ClientModel client = realm.getClientByClientId(config.getClientPrefix() + i);
+            if (client == null) {
+                logger.warnf("Client '%s' not found in the realm '%s'. Skip creating the resource server", config.getClientPrefix() + i, realm.getName());
+                continue;
+            }
+            if (storeFactory.getResourceServerStore().findById(client.getId()) != null) {
+                logger.warnf("Client '%s' is already resource server in the realm '%s'", config.getClientPrefix() + i, realm.getName());
+                continue;
+            }
+            ResourceServer resourceServer = storeFactory.getResourceServerStore().create(client.getId());
+
+            List<Scope> scopes = new ArrayList<>();
+            for (int k = 0; k < config.getScopesPerClient(); k++) {
+                scopes.add(storeFactory.getScopeStore().create("scope-" + k, resourceServer));
+            }
+
+            List<Resource> resources = new ArrayList<>();
+            for (int k = 0; k < config.getResourcesPerClient(); k++) {
+                Resource resource = storeFactory.getResourceStore().create("resource-" + k, resourceServer, resourceServer.getId());
+                Set<Scope> resourceScopes = new HashSet<>();
+                for (int j = 0; j < Math.min(config.getScopesPerResource(), scopes.size()); j++) {
+                    resourceScopes.add(scopes.get((k * config.getScopesPerResource() + j) % scopes.size()));
+                }
+                resource.updateScopes(resourceScopes);
+                resources.add(resource);
+            }
+
+            // Policies are referenced by the names from the aggregate policies and the permissions
+            List<String> policies = new ArrayList<>();
+            if (!subjects.roleNames.isEmpty()) {
+                for (int k = 0; k < config.getRolePoliciesPerClient(); k++) {
+                    RolePolicyRepresentation policy = new RolePolicyRepresentation();
+                    forEachSubject(config, subjects.roleNames.size(), i * config.getRolePoliciesPerClient() + k, index -> policy.addRole(subjects.roleNames.get(index)));
+                    policies.add(createPolicy(storeFactory, resourceServer, policy, "role-policy-" + k));
+                }
+            }
+            if (!subjects.groupPaths.isEmpty()) {
+                for (int k = 0; k < config.getGroupPoliciesPerClient(); k++) {
+                    GroupPolicyRepresentation policy = new GroupPolicyRepresentation();
+                    forEachSubject(config, subjects.groupPaths.size(), i * config.getGroupPoliciesPerClient() + k, index -> policy.addGroupPath(subjects.groupPaths.get(index)));
+                    policies.add(createPolicy(storeFactory, resourceServer, policy, "group-policy-" + k));
+                }
+            }
+            if (!subjects.usernames.isEmpty()) {
+                for (int k = 0; k < config.getUserPoliciesPerClient(); k++) {
+                    UserPolicyRepresentation policy = new UserPolicyRepresentation();
+                    forEachSubject(config, subjects.usernames.size(), i * config.getUserPoliciesPerClient() + k, index -> policy.addUser(subjects.usernames.get(index)));
+                    policies.add(createPolicy(storeFactory, resourceServer, policy, "user-policy-" + k));
+                }
+            }
+
+            int basePoliciesCount = policies.size();
+            if (basePoliciesCount > 0) {
+                for (int k = 0; k < config.getAggregatePoliciesPerClient(); k++) {
+                    AggregatePolicyRepresentation policy = new AggregatePolicyRepresentation();
+                    for (int j = 0; j < Math.min(config.getPoliciesPerAggregate(), basePoliciesCount); j++) {
+                        policy.addPolicy(policies.get((k * config.getPoliciesPerAggregate() + j) % basePoliciesCount));
+                    }
+                    policies.add(createPolicy(storeFactory, resourceServer, policy, "aggregate-policy-" + k));
+                }
+            }
+
+            for (int k = 0; k < resources.size(); k++) {
+                ResourcePermissionRepresentation permission = new ResourcePermissionRepresentation();
+                permission.addResource(resources.get(k).getId());
+                for (int j = 0; j < Math.min(config.getPoliciesPerPermission(), policies.size()); j++) {
+                    permission.addPolicy(policies.get((k * config.getPoliciesPerPermission() + j) % policies.size()));
+                }
+                createPolicy(storeFactory, resourceServer, permission, "resource-permission-" + k);
+            }
+        }
+    }
+
+    // Indexes of the subjects of the policy with the given ordinal. Subjects of the same policy are always different
+    private void forEachSubject(DatasetConfig config, int subjectsCount, int policyOrdinal, IntConsumer consumer) {
+        int count = Math.min(config.getSubjectsPerPolicy(), subjectsCount);
+        for (int j = 0; j < count; j++) {
+            consumer.accept((int) (((long) policyOrdinal * count + j) % subjectsCount));
+        }
+    }
+
+    // PolicyStore of the AuthorizationProvider configures the policy through its provider, so the roles, groups and users can be referenced by their names
+    private String createPolicy(StoreFactory storeFactory, ResourceServer resourceServer, AbstractPolicyRepresentation policy, String name) {
+        policy.setName(name);
+        storeFactory.getPolicyStore().create(policy, resourceServer);
+        return name;
+    }
+
+    // Count of the roles, groups and users of the realm, which can be referenced by the policies
+    private static class AuthzSubjects {
+
+        private List<String> roleNames;
+        private List<String> groupPaths;
+        private List<String> usernames;
+    }
+
+    // Names of the existing subjects with the indexes lower than the given count. The count of looked-up subjects is limited as the policies don't need all the users of the huge realm
+    private static List<String> findExistingSubjects(int count, IntFunction<String> existingName) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < count && names.size() < AUTHZ_SUBJECTS_LIMIT; i++) {
+            String name = existingName.apply(i);
+            if (name != null) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
 
     @GET
     @Path("/remove-realms")
@@ -728,52 +2014,62 @@ public class DatasetResourceProvider implements RealmResourceProvider {
 
                 executor = new ExecutorHelper(config.getThreadsCount(), baseSession.getKeycloakSessionFactory(), config);
 
-                List<String> realmIds;
-                if (config.getRemoveAll()) {
+                BulkRealmRemover bulkRemover = lookupBulkRealmRemover(config);
 
-                    timerLogger.info(logger, "Will obtain list of all realms to remove");
+                TaskProgress progress = new TaskProgress(new TaskManager(sessionn), config.getTaskTimeout());
+                TaskProgress.PhaseProgress usersPhase = progress.phase(TaskProgress.PHASE_USERS_REMOVAL, 0);
+                TaskProgress.PhaseProgress removalPhase = progress.phase(TaskProgress.PHASE_REALMS_REMOVAL, 0);
+                progress.publish();
 
-                    // Don't cache realms as we are just about to remove them
-                    realmIds = sessionn.getProvider(RealmProvider.class).getRealms()
-                            .stream()
-                            .filter(realm -> realm.getName().startsWith(config.getRealmPrefix()))
-                            .map(RealmModel::getId)
-                            .collect(Collectors.toList());
+                int realmsCount = 0;
+                if (config.getRemoveAll() && bulkRemover != null) {
 
-                    timerLogger.info(logger, "Will delete %d realms.", realmIds.size());
-                } else {
-                    // Just rely that realmName is same as realmId to avoid additional lookups
-                    realmIds = new LinkedList<>();
-                    for (int i = config.getFirstToRemove() ; i < config.getLastToRemove() ; i++) {
-                        realmIds.add(config.getRealmPrefix() + i);
-                    }
-                }
-
-                for (String realmId : realmIds) {
+                    timerLogger.info(logger, "Will remove all realms in pages of %d realms", REMOVED_REALMS_PAGE_SIZE);
 
-                    final String currentRealmId = realmId;
+                    // Just the IDs are read from the DB page by page. Realms are not loaded to the model at all
+                    String lastRealmName = "";
+                    while (true) {
+                        Map<String, String> realmIds = bulkRemover.getRealmIds(config.getRealmPrefix(), lastRealmName, REMOVED_REALMS_PAGE_SIZE);
+                        if (realmIds.isEmpty()) {
+                            break;
+                        }
 
-                    // Run this concurrently with multiple threads
-                    executor.addTask(session -> {
-                        logger.debugf("Will delete realm %s", currentRealmId);
+                        removeRealms(timerLogger, executor, bulkRemover, config, new ArrayList<>(realmIds.values()), usersPhase, removalPhase);
+                        realmsCount += realmIds.size();
+                        for (String realmName : realmIds.keySet()) {
+                            lastRealmName = realmName;
+                        }
+                        if (realmIds.size() < REMOVED_REALMS_PAGE_SIZE) {
+                            break;
+                        }
+                    }
+                } else {
+                    List<String> realmIds;
+                    if (config.getRemoveAll()) {
 
-                        RealmContext context = new RealmContext(config);
+                        timerLogger.info(logger, "Will obtain list of all realms to remove");
 
-                        boolean deleted = session.realms().removeRealm(currentRealmId);
+                        // RealmProvider does not support paging of the realms. Don't cache realms as we are just about to remove them
+                        realmIds = sessionn.getProvider(RealmProvider.class).getRealms()
+                                .stream()
+                                .filter(realm -> realm.getName().startsWith(config.getRealmPrefix()))
+                                .map(RealmModel::getId)
+                                .collect(Collectors.toList());
 
-                        if (deleted) {
-                            timerLogger.info(logger, "Deleted realm %s", currentRealmId);
-                        } else {
-                            logger.warnf("Realm %s did not exist", currentRealmId);
+                        timerLogger.info(logger, "Will delete %d realms.", realmIds.size());
+                    } else {
+                        // Just rely that realmName is same as realmId to avoid additional lookups
+                        realmIds = new LinkedList<>();
+                        for (int i = config.getFirstToRemove() ; i < config.getLastToRemove() ; i++) {
+                            realmIds.add(config.getRealmPrefix() + i);
                         }
-                    });
+                    }
 
+                    removeRealms(timerLogger, executor, bulkRemover, config, realmIds, usersPhase, removalPhase);
+                    realmsCount = realmIds.size();
                 }
 
-                executor.waitForAllToFinish();
-
-
-                timerLogger.info(logger, "Deleted all %d realms", realmIds.size());
+                timerLogger.info(logger, "Deleted all %d realms", realmsCount);
 
             } finally {
                 if (executor != null) {
@@ -785,6 +2081,294 @@ public class DatasetResourceProvider implements RealmResourceProvider {
     }
 
 
+    // Remove the users of the given realms first in many smaller transactions (just with "bulk-users-removal"). Removing the realm itself is then fast as it does not have any users
+    private void removeRealms(TimerLogger timerLogger, ExecutorHelper executor, BulkRealmRemover bulkRemover, DatasetConfig config, List<String> realmIds,
+                              TaskProgress.PhaseProgress usersPhase, TaskProgress.PhaseProgress removalPhase) {
+        removalPhase.addToTotal(realmIds.size());
+
+        if (bulkRemover != null) {
+            long usersCount = 0;
+            for (String realmId : realmIds) {
+                usersCount += removeRealmUsers(executor, bulkRemover, config, realmId, usersPhase);
+            }
+
+            executor.waitForAllToFinish();
+
+            timerLogger.info(logger, "Deleted %d users of %d realms", usersCount, realmIds.size());
+        }
+
+        for (String realmId : realmIds) {
+
+            final String currentRealmId = realmId;
+
+            // Run this concurrently with multiple threads
+            executor.addTask(session -> {
+                logger.debugf("Will delete realm %s", currentRealmId);
+
+                boolean deleted = session.realms().removeRealm(currentRealmId);
+
+                if (deleted) {
+                    timerLogger.info(logger, "Deleted realm %s", currentRealmId);
+                } else {
+                    logger.warnf("Realm %s did not exist", currentRealmId);
+                }
+            }, removalPhase.listener(1));
+
+        }
+
+        executor.waitForAllToFinish();
+    }
+
+    // Users are removed through the datasource just if it is explicitly requested as it bypasses the UserProvider
+    private BulkRealmRemover lookupBulkRealmRemover(DatasetConfig config) {
+        if (!config.getBulkUsersRemoval()) {
+            return null;
+        }
+
+        try {
+            return BulkRealmRemover.forDataSource(config.getBulkDatasource());
+        } catch (DatasetException de) {
+            logger.warnf("Datasource '%s' not available. Users will be removed together with the realms", config.getBulkDatasource());
+            return null;
+        }
+    }
+
+    // Submit removal of the users of the realm in the batches. Users are paged by their IDs, so the batches already removed by the worker threads don't shift the next pages
+    private long removeRealmUsers(ExecutorHelper executor, BulkRealmRemover bulkRemover, DatasetConfig config, String realmId, TaskProgress.PhaseProgress usersPhase) {
+        int batchSize = config.getUsersPerRemovalTransaction();
+        long usersCount = 0;
+        String lastUserId = "";
+        while (true) {
+            List<String> userIds = bulkRemover.getUserIds(realmId, lastUserId, batchSize);
+            if (userIds.isEmpty()) {
+                return usersCount;
+            }
+
+            usersPhase.addToTotal(userIds.size());
+            executor.addTask(session -> bulkRemover.deleteUsers(userIds), usersPhase.listener(userIds.size()));
+
+            usersCount += userIds.size();
+            lastUserId = userIds.get(userIds.size() - 1);
+            if (userIds.size() < batchSize) {
+                return usersCount;
+            }
+        }
+    }
+
+
+    // Resume the create-users or create-clients task, which did not create all the entities (EG. due the failure or restart of the cluster node)
+    @GET
+    @Path("/resume")
+    @NoCache
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response resume() {
+        boolean started = false;
+        boolean taskAdded = false;
+        try {
+            DatasetConfig resumeConfig = ConfigUtil.createConfigFromQueryParams(httpRequest, RESUME);
+
+            TaskManager taskManager = new TaskManager(baseSession);
+            TaskCheckpoint checkpoint = taskManager.getCheckpoint(resumeConfig.getResumedOperation(), resumeConfig.getRealmName());
+            if (checkpoint == null) {
+                throw new DatasetException("Not found any checkpoint of the operation '" + resumeConfig.getResumedOperation() + "' in the realm '" + resumeConfig.getRealmName() + "'");
+            }
+
+            // Use the same configuration like the original task
+            MultivaluedMap<String, String> queryParameters = new MultivaluedHashMap<>();
+            checkpoint.getQueryParameters().forEach(queryParameters::putSingle);
+            boolean users = DatasetConfig.OPERATION_CREATE_USERS.equals(checkpoint.getOperation());
+            DatasetConfig config = ConfigUtil.createConfigFromQueryParams(queryParameters, users ? DatasetOperation.CREATE_USERS : DatasetOperation.CREATE_CLIENTS);
+            config.setStart(checkpoint.getStart());
+            config.setResume(true);
+
+            CheckpointTracker checkpointTracker = new CheckpointTracker(taskManager, checkpoint);
+            int missingCount = checkpointTracker.getMissingCount();
+            if (missingCount == 0) {
+                taskManager.removeCheckpoint(checkpoint.getOperation(), checkpoint.getRealmName());
+                return Response.ok(TaskResponse.statusMessage("Nothing to resume. All the entities of the operation '" + checkpoint.getOperation() + "' were already created in the realm " + checkpoint.getRealmName())).build();
+            }
+
+            TimerLogger timerLogger = TimerLogger.start("Resume of the operation " + checkpoint.getOperation() + ". Creation of remaining " + missingCount + " " + (users ? "users" : "clients") + " in the realm " + config.getRealmName());
+            String existingTask = taskManager.addTaskIfNotInProgress(timerLogger, config.getTaskTimeout());
+            if (existingTask != null) {
+                return Response.status(400).entity(TaskResponse.errorSomeTaskInProgress(existingTask, getStatusUrl())).build();
+            } else {
+                taskAdded = true;
+            }
+
+            logger.infof("Trigger resume of the operation '%s' with the configuration: %s. Missing ranges: %s", checkpoint.getOperation(), config, checkpointTracker.getMissingRanges());
+
+            RealmModel realm = users ? baseSession.realms().getRealmByName(config.getRealmName()) : baseSession.getProvider(RealmProvider.class).getRealmByName(config.getRealmName());
+            if (realm == null) {
+                throw new DatasetException("Realm '" + config.getRealmName() + "' not found");
+            }
+
+            // Run this in separate thread to not block HTTP request
+            new Thread(() -> {
+
+                if (users) {
+                    createUsersImpl(timerLogger, baseSession.getKeycloakSessionFactory(), config, realm, checkpointTracker);
+                } else {
+                    createClientsImpl(timerLogger, baseSession.getKeycloakSessionFactory(), config, realm, checkpointTracker);
+                }
+
+            }).start();
+            started = true;
+
+            return Response.ok(TaskResponse.taskStarted(timerLogger.toString(), getStatusUrl())).build();
+        } catch (DatasetException de) {
+            return handleDatasetException(de);
+        } finally {
+            if (taskAdded && !started) {
+                new TaskManager(baseSession).removeExistingTask(false);
+            }
+        }
+    }
+
+    // Checkpoint contains the query parameters of the task, so it can be resumed with the same configuration
+    private TaskCheckpoint createCheckpoint(TaskManager taskManager, String operation, DatasetConfig config) {
+        if (taskManager.getCheckpoint(operation, config.getRealmName()) != null) {
+            logger.warnf("Unfinished checkpoint of the operation '%s' in the realm '%s' will be overwritten by the new task. Missing entities of the previous task won't be created",
+                    operation, config.getRealmName());
+        }
+
+        TaskCheckpoint checkpoint = new TaskCheckpoint();
+        checkpoint.setOperation(operation);
+        checkpoint.setRealmName(config.getRealmName());
+        checkpoint.setStart(config.getStart());
+        checkpoint.setEnd(config.getStart() + config.getCount());
+
+        checkpoint.setQueryParameters(getFirstQueryParameters());
+        return checkpoint;
+    }
+
+    private Map<String, String> getFirstQueryParameters() {
+        Map<String, String> queryParameters = new HashMap<>();
+        httpRequest.getUri().getQueryParameters().forEach((name, values) -> {
+            if (!values.isEmpty()) {
+                queryParameters.put(name, values.get(0));
+            }
+        });
+        return queryParameters;
+    }
+
+
+    private DistributedTask createDistributedTask(String operation, DatasetConfig config, int startIndex) {
+        DistributedTask task = new DistributedTask();
+        task.setId(UUID.randomUUID().toString());
+        task.setOperation(operation);
+        task.setQueryParameters(getFirstQueryParameters());
+        task.setStart(startIndex);
+        task.setEnd(startIndex + config.getCount());
+        task.setPartitionSize(config.getPartitionSize());
+        return task;
+    }
+
+    // Publish the distributed task, process its partitions on this node and wait until all the partitions are processed by all the cluster nodes.
+    // This is triggered outside of HTTP request to not block HTTP request
+    private void runDistributedTask(TimerLogger timerLogger, KeycloakSessionFactory sessionFactory, DatasetConfig config, DistributedTask task) {
+        // No transaction is kept open while waiting for the partitions. The partitions processed by this node have their own transactions
+        TaskManager taskManager = DistributedTaskWorker.createTaskManager(sessionFactory);
+        try {
+            taskManager.publishDistributedTask(task, config.getTaskTimeout());
+            timerLogger.info(logger, "Published distributed task %s with %d partitions of the size %d", task.getId(), task.getPartitionsCount(), task.getPartitionSize());
+
+            // Other nodes join when they notice the task in the work cache
+            distributedTaskWorker.processTask(task);
+
+            // Partitions claimed by the nodes, which failed or were stopped, will never be finished. They are detected by the expired lease of the partition.
+            // Waiting is still limited by the task timeout
+            long deadline = Time.currentTimeMillis() + config.getTaskTimeout() * 1000L;
+            List<IndexRange> finished = new ArrayList<>();
+            int failed = 0;
+            for (int partition = 0; partition < task.getPartitionsCount(); partition++) {
+                String result = taskManager.getPartitionResult(task.getId(), partition);
+                int abandonedChecks = 0;
+                while (result == null && Time.currentTimeMillis() < deadline) {
+                    // Checked twice to not mark the partition, which was just claimed and its lease is being written
+                    if (taskManager.isPartitionAbandoned(task.getId(), partition) && ++abandonedChecks >= 2) {
+                        logger.warnf("Lease of the partition %d of the distributed task %s expired. Node processing the partition probably failed", partition, task.getId());
+                        taskManager.partitionFinished(task.getId(), partition, false, config.getTaskTimeout());
+                        break;
+                    }
+
+                    try {
+                        Thread.sleep(1000);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException(ie);
+                    }
+                    result = taskManager.getPartitionResult(task.getId(), partition);
+                }
+
+                if (TaskManager.PARTITION_SUCCESS.equals(result)) {
+                    finished.add(task.getPartition(partition));
+                } else {
+                    failed++;
+                }
+            }
+
+            if (failed == 0) {
+                timerLogger.info(logger, "Finished all %d partitions of the distributed task %s", task.getPartitionsCount(), task.getId());
+            } else {
+                logger.warnf("%d of %d partitions of the distributed task %s were not successfully finished", failed, task.getPartitionsCount(), task.getId());
+                saveDistributedTaskCheckpoint(taskManager, task, finished);
+            }
+        } finally {
+            taskManager.removeDistributedTask(task);
+            taskManager.removeExistingTask(true);
+        }
+    }
+
+    // Unfinished partitions of users or clients can be created by the "resume" endpoint
+    private void saveDistributedTaskCheckpoint(TaskManager taskManager, DistributedTask task, List<IndexRange> finishedPartitions) {
+        if (DatasetConfig.OPERATION_CREATE_OFFLINE_SESSIONS.equals(task.getOperation())) {
+            return;
+        }
+
+        TaskCheckpoint checkpoint = new TaskCheckpoint();
+        checkpoint.setOperation(task.getOperation());
+        checkpoint.setRealmName(task.getQueryParameters().get("realm-name"));
+        checkpoint.setStart(task.getStart());
+        checkpoint.setEnd(task.getEnd());
+        checkpoint.setQueryParameters(task.getQueryParameters());
+        checkpoint.setCommitted(finishedPartitions);
+        new CheckpointTracker(taskManager, checkpoint).finish();
+    }
+
+    // Process single partition of the distributed task. It is triggered by the DistributedTaskWorker on the cluster node, which claimed the partition
+    void processPartition(TimerLogger timerLogger, DistributedTask task, DatasetConfig config, IndexRange partition, TaskProgress progress) {
+        timerLogger.info(logger, "Processing partition %s of the distributed task %s", partition, task.getId());
+
+        switch (task.getOperation()) {
+            case DatasetConfig.OPERATION_CREATE_USERS: {
+                RealmModel realm = baseSession.realms().getRealmByName(config.getRealmName());
+                if (realm == null) {
+                    throw new DatasetException("Realm '" + config.getRealmName() + "' not found");
+                }
+                progress.phase(TaskProgress.PHASE_CACHING, 0).addToTotal(1);
+                progress.phase(TaskProgress.PHASE_USERS, 0).addToTotal(partition.size());
+                createUsersInRanges(timerLogger, baseSession, config, realm, Collections.singletonList(partition), progress, null);
+                break;
+            }
+            case DatasetConfig.OPERATION_CREATE_CLIENTS: {
+                RealmModel realm = baseSession.getProvider(RealmProvider.class).getRealmByName(config.getRealmName());
+                if (realm == null) {
+                    throw new DatasetException("Realm '" + config.getRealmName() + "' not found");
+                }
+                progress.phase(TaskProgress.PHASE_CLIENTS, 0).addToTotal(partition.size());
+                createClientsInRanges(timerLogger, config, realm, Collections.singletonList(partition), progress, null);
+                break;
+            }
+            default: {
+                int lastRealmIndex = findLastRealmIndex(config);
+                progress.phase(TaskProgress.PHASE_OFFLINE_SESSIONS, 0).addToTotal(partition.size());
+                createOfflineSessionsInRange(timerLogger, config, lastRealmIndex, partition.getFrom(), partition.getTo(), progress);
+            }
+        }
+    }
+
+
     @GET
     @Path("/status")
     @NoCache
@@ -796,7 +2380,10 @@ public class DatasetResourceProvider implements RealmResourceProvider {
         if (existingTask == null) {
             return Response.ok(TaskResponse.noTaskInProgress()).build();
         } else {
-            return Response.ok(TaskResponse.existingTaskStatus(existingTask)).build();
+            // Progress of the distributed task is aggregated from all the cluster nodes
+            DistributedTask distributedTask = taskManager.getDistributedTask();
+            TaskProgressRepresentation progress = distributedTask == null ? taskManager.getTaskProgress() : taskManager.getDistributedTaskProgress(distributedTask);
+            return Response.ok(TaskResponse.existingTaskStatus(existingTask, progress)).build();
         }
     }
 
@@ -810,7 +2397,7 @@ public class DatasetResourceProvider implements RealmResourceProvider {
             DatasetConfig config = ConfigUtil.createConfigFromQueryParams(httpRequest, LAST_REALM);
             logger.infof("Request to obtain last realm. Configuration: %s", config.toString());
 
-            int startIndex = ConfigUtil.findFreeEntityIndex(index -> {
+            int startIndex = findFreeEntityIndex(NextIndexTracker.realmsKey(config.getRealmPrefix()), index -> {
                 String realmName = config.getRealmPrefix() + index;
                 return baseSession.getProvider(RealmProvider.class).getRealmByName(realmName) != null;
             });
@@ -838,7 +2425,7 @@ public class DatasetResourceProvider implements RealmResourceProvider {
                 throw new DatasetException("Realm '" + config.getRealmName() + "' not found");
             }
 
-            int startIndex = ConfigUtil.findFreeEntityIndex(index -> {
+            int startIndex = findFreeEntityIndex(NextIndexTracker.clientsKey(realm.getName(), config.getClientPrefix()), index -> {
                 String clientId = config.getClientPrefix() + index;
                 return realm.getClientByClientId(clientId) != null;
             });
@@ -866,7 +2453,7 @@ public class DatasetResourceProvider implements RealmResourceProvider {
                 throw new DatasetException("Realm '" + config.getRealmName() + "' not found");
             }
 
-            int startIndex = ConfigUtil.findFreeEntityIndex(index -> {
+            int startIndex = findFreeEntityIndex(NextIndexTracker.usersKey(realm.getName(), config.getUserPrefix()), index -> {
                 String username = config.getUserPrefix() + index;
                 return baseSession.users().getUserByUsername(username, realm) != null;
             });
@@ -914,10 +2501,11 @@ public class DatasetResourceProvider implements RealmResourceProvider {
         context.setRealm(realm);
     }
 
-    private void createRealmRoles(RealmContext context) {
-        RealmModel realm = context.getRealm();
+    // Worker task to be triggered by single executor thread
+    private void createRealmRoles(RealmContext context, KeycloakSession session, int startIndex, int endIndex) {
+        RealmModel realm = getRealmForUpdate(context, session);
 
-        for (int i = 0; i < context.getConfig().getRealmRolesPerRealm(); i++) {
+        for (int i = startIndex; i < endIndex; i++) {
             String roleName = context.getConfig().getRealmRolePrefix() + i;
             RoleModel role = realm.addRole(roleName);
             context.realmRoleCreated(role);
@@ -925,8 +2513,81 @@ public class DatasetResourceProvider implements RealmResourceProvider {
     }
 
 
+    // Worker task to be triggered by single executor thread. Adds the child roles to the realm composite roles with the given indexes
+    private void addRealmCompositeRoles(RealmContext context, KeycloakSession session, CompositeRoleGraph graph, int startIndex, int endIndex) {
+        RealmModel realm = getRealmForUpdate(context, session);
+        String rolePrefix = context.getConfig().getRealmRolePrefix();
+
+        // Every child role is usually shared by more composite roles
+        Map<Integer, RoleModel> roles = new HashMap<>();
+        for (int i = startIndex; i < endIndex; i++) {
+            RoleModel composite = realm.getRole(rolePrefix + i);
+            for (int child : graph.getChildren(i)) {
+                composite.addCompositeRole(roles.computeIfAbsent(child, index -> realm.getRole(rolePrefix + index)));
+            }
+        }
+    }
+
+    // Worker task to be triggered by single executor thread. Adds the child roles to the composite roles of the clients with the given indexes. If crossClient is true,
+    // the first role of every client contains also the last roles of the clients following it
+    private void addClientCompositeRoles(RealmContext context, KeycloakSession session, CompositeRoleGraph graph, boolean crossClient, int startIndex, int endIndex) {
+        RealmModel realm = getRealmForUpdate(context, session);
+        DatasetConfig config = context.getConfig();
+
+        for (int i = startIndex; i < endIndex; i++) {
+            ClientModel client = realm.getClientByClientId(config.getClientPrefix() + i);
+            String rolePrefix = client.getClientId() + "-" + config.getClientRolePrefix();
+
+            for (int k = 0; k < graph.getCompositeCount(); k++) {
+                RoleModel composite = client.getRole(rolePrefix + k);
+                for (int child : graph.getChildren(k)) {
+                    composite.addCompositeRole(client.getRole(rolePrefix + child));
+                }
+            }
+
+            if (crossClient) {
+                RoleModel composite = client.getRole(rolePrefix + 0);
+                int otherClients = Math.min(config.getCrossClientComposites(), config.getClientsPerRealm() - 1);
+                for (int k = 1; k <= otherClients; k++) {
+                    ClientModel otherClient = realm.getClientByClientId(config.getClientPrefix() + ((i + k) % config.getClientsPerRealm()));
+                    composite.addCompositeRole(otherClient.getRole(otherClient.getClientId() + "-" + config.getClientRolePrefix() + (config.getClientRolesPerClient() - 1)));
+                }
+            }
+        }
+    }
+
     // Worker task to be triggered by single executor thread
-    private void createClients(RealmContext context, TimerLogger timerLogger, KeycloakSession session, final int startIndex, final int endIndex) {
+    private void addDefaultRoles(RealmContext context, KeycloakSession session) {
+        RealmModel realm = getRealmForUpdate(context, session);
+        DatasetConfig config = context.getConfig();
+
+        int count = Math.min(config.getDefaultRolesPerRealm(), config.getRealmRolesPerRealm());
+        for (int i = 0; i < count; i++) {
+            addDefaultRole(realm, realm.getRole(config.getRealmRolePrefix() + i));
+        }
+    }
+
+    // Worker task to be triggered by single executor thread. Expanded roles are computed for the users spread evenly over all the users of the realm
+    private void summarizeExpandedRoles(RealmContext context, TimerLogger timerLogger, KeycloakSession session, int usersCount, ExpandedRolesSummary totalSummary) {
+        RealmModel realm = session.realms().getRealm(context.getRealm().getId());
+        DatasetConfig config = context.getConfig();
+
+        ExpandedRolesSummary summary = new ExpandedRolesSummary();
+        int sampledUsers = Math.min(config.getRoleSummaryUsers(), usersCount);
+        for (int i = 0; i < sampledUsers; i++) {
+            int userIndex = (int) ((long) i * usersCount / sampledUsers);
+            UserModel user = session.users().getUserByUsername(config.getUserPrefix() + userIndex, realm);
+            if (user != null) {
+                summary.record(RoleUtils.getDeepUserRoleMappings(user).size());
+            }
+        }
+
+        timerLogger.info(logger, "Expanded roles per user in realm %s: %s", realm.getName(), summary);
+        totalSummary.add(summary);
+    }
+
+    // Refresh realm in current transaction, which is going to add some entities to the realm
+    private RealmModel getRealmForUpdate(RealmContext context, KeycloakSession session) {
         RealmModel realm = context.getRealm();
 
         // Eagerly register invalidation to make sure we don't cache the realm in this transaction. Caching will result in bunch of
@@ -936,15 +2597,27 @@ public class DatasetResourceProvider implements RealmResourceProvider {
             ((CacheRealmProvider) realmProvider).registerRealmInvalidation(realm.getId(), realm.getName());
         }
 
-        // Refresh realm in current transaction
-        realm = realmProvider.getRealm(realm.getId());
+        return realmProvider.getRealm(realm.getId());
+    }
+
+    // Worker task to be triggered by single executor thread
+    private void createClients(RealmContext context, TimerLogger timerLogger, KeycloakSession session, final int startIndex, final int endIndex) {
+        RealmModel realm = getRealmForUpdate(context, session);
 
         DatasetConfig config = context.getConfig();
 
+        // Client scopes are looked-up once per transaction
+        int clientScopesPerClient = config.getDefaultClientScopesPerClient() + config.getOptionalClientScopesPerClient();
+        List<ClientScopeModel> clientScopes = clientScopesPerClient > 0 ? getSortedClientScopes(realm, config) : Collections.emptyList();
+
         for (int i = startIndex; i < endIndex; i++) {
             ClientRepresentation client = new ClientRepresentation();
 
             String clientId = config.getClientPrefix() + i;
+            if (config.isResume() && realm.getClientByClientId(clientId) != null) {
+                // Client was created by the resumed task after its last checkpoint
+                continue;
+            }
             client.setClientId(clientId);
             client.setName(clientId);
             client.setEnabled(true);
@@ -973,6 +2646,13 @@ public class DatasetResourceProvider implements RealmResourceProvider {
 
             context.clientCreated(model);
 
+            // Consecutive client scopes are attached to the client. First of them are the default scopes and the rest are the optional scopes
+            int attachedScopes = Math.min(clientScopesPerClient, clientScopes.size());
+            for (int k = 0; k < attachedScopes; k++) {
+                ClientScopeModel clientScope = clientScopes.get((int) (((long) i * clientScopesPerClient + k) % clientScopes.size()));
+                model.addClientScope(clientScope, k < config.getDefaultClientScopesPerClient());
+            }
+
             for (int k = 0; k < config.getClientRolesPerClient() ; k++) {
                 String roleName = clientId + "-" + config.getClientRolePrefix() + k;
                 RoleModel role = model.addRole(roleName);
@@ -980,149 +2660,393 @@ public class DatasetResourceProvider implements RealmResourceProvider {
             }
         }
 
-        timerLogger.debug(logger, "Created %d clients in realm %s", context.getClients().size(), context.getRealm().getName());
+        timerLogger.debug(logger, "Created %d clients in realm %s", context.getClientsCount(), context.getRealm().getName());
     }
 
-    private void createGroups(RealmContext context) {
-        RealmModel realm = context.getRealm();
+    // Client scopes with the given prefix sorted by their index
+    private List<ClientScopeModel> getSortedClientScopes(RealmModel realm, DatasetConfig config) {
+        return realm.getClientScopes().stream()
+                .filter(clientScope -> clientScope.getName().startsWith(config.getClientScopePrefix()))
+                .sorted((scope1, scope2) -> {
+                    String name1 = scope1.getName().substring(config.getClientScopePrefix().length());
+                    String name2 = scope2.getName().substring(config.getClientScopePrefix().length());
+                    return Integer.parseInt(name1) - Integer.parseInt(name2);
+                })
+                .collect(Collectors.toList());
+    }
 
-        for (int i = 0; i < context.getConfig().getGroupsPerRealm(); i++) {
-            String groupName = context.getConfig().getGroupPrefix() + i;
-            GroupModel group = realm.createGroup(groupName);
-            context.groupCreated(group);
+    // Worker task to be triggered by single executor thread
+    private void createClientScopes(RealmContext context, KeycloakSession session, int startIndex, int endIndex) {
+        RealmModel realm = getRealmForUpdate(context, session);
+        DatasetConfig config = context.getConfig();
+        List<String> mapperTypes = parseMapperTypes(config);
+
+        for (int i = startIndex; i < endIndex; i++) {
+            String scopeName = config.getClientScopePrefix() + i;
+            ClientScopeModel clientScope = realm.addClientScope(scopeName);
+            clientScope.setProtocol(OIDCLoginProtocol.LOGIN_PROTOCOL);
+            clientScope.setIncludeInTokenScope(true);
+
+            for (int k = 0; k < config.getMappersPerClientScope(); k++) {
+                clientScope.addProtocolMapper(createProtocolMapper(config, mapperTypes.get(k % mapperTypes.size()), scopeName, k));
+            }
+        }
+    }
+
+    // All the mappers add the claims to both access token and ID token. Claim names are unique, so every mapper makes the tokens bigger
+    private ProtocolMapperModel createProtocolMapper(DatasetConfig config, String mapperType, String scopeName, int mapperIndex) {
+        String mapperName = scopeName + "-mapper-" + mapperIndex;
+        String claimName = scopeName + "-claim-" + mapperIndex;
+        switch (mapperType) {
+            case DatasetConfig.MAPPER_HARDCODED_CLAIM:
+                return HardcodedClaim.create(mapperName, claimName, claimName + "-value", "String", true, true);
+            case DatasetConfig.MAPPER_USER_ATTRIBUTE:
+                return UserAttributeMapper.createClaimMapper(mapperName, config.getAttributePrefix() + mapperIndex, claimName, "String", true, true, true);
+            case DatasetConfig.MAPPER_GROUP_MEMBERSHIP:
+                return GroupMembershipMapper.create(mapperName, claimName, true, null, true, true);
+            case DatasetConfig.MAPPER_AUDIENCE:
+                return AudienceProtocolMapper.createClaimMapper(mapperName, null, claimName, true, true);
+            default:
+                throw new IllegalArgumentException("Unsupported mapper type " + mapperType);
         }
     }
 
     // Worker task to be triggered by single executor thread
-    private void createUsers(RealmContext context, TimerLogger timerLogger, KeycloakSession session, int startIndex, int endIndex) {
+    private void createGroups(RealmContext context, KeycloakSession session, int startIndex, int endIndex) {
+        RealmModel realm = getRealmForUpdate(context, session);
+        int treeSize = context.getGroupHierarchy().getTreeSize();
+
+        // Roles mapped to the groups of this transaction. Just few roles are usually mapped to many groups
+        Map<Integer, RoleModel> roles = new HashMap<>();
+
+        for (int i = startIndex; i < endIndex; i++) {
+            String groupName = context.getConfig().getGroupPrefix() + i;
+            createGroupTree(context, realm, groupName, null, 0, i * treeSize, roles);
+        }
+    }
+
+    // Create the group with all its subgroups. Ordinal is the index of the group among all the groups of the realm (in pre-order), so that the roles mapped to the groups
+    // are spread round-robin over all the realm roles. Returns ordinal of the next group
+    private int createGroupTree(RealmContext context, RealmModel realm, String groupName, GroupModel parent, int level, int ordinal, Map<Integer, RoleModel> roles) {
+        DatasetConfig config = context.getConfig();
+        GroupHierarchy hierarchy = context.getGroupHierarchy();
+
+        GroupModel group = parent == null ? realm.createGroup(groupName) : realm.createGroup(groupName, parent);
+        context.groupCreated(group);
+
+        int rolesCount = Math.min(hierarchy.getRolesPerGroup(level), config.getRealmRolesPerRealm());
+        for (int j = 0; j < rolesCount; j++) {
+            int roleIndex = (int) (((long) ordinal * rolesCount + j) % config.getRealmRolesPerRealm());
+            RoleModel role = roles.computeIfAbsent(roleIndex, index -> realm.getRole(config.getRealmRolePrefix() + index));
+            if (role != null) {
+                group.grantRole(role);
+            }
+        }
+
+        int nextOrdinal = ordinal + 1;
+        if (level + 1 < hierarchy.getDepth()) {
+            for (int i = 0; i < hierarchy.getFanOut(); i++) {
+                nextOrdinal = createGroupTree(context, realm, GroupHierarchy.getSubGroupName(groupName, i), group, level + 1, nextOrdinal, roles);
+            }
+        }
+        return nextOrdinal;
+    }
+
+    // Worker task to be triggered by single executor thread. If hashedPasswords are null, the password of every user is hashed in this transaction
+    private void createUsers(RealmContext context, TimerLogger timerLogger, KeycloakSession session, int startIndex, int endIndex, List<PasswordCredentialModel> hashedPasswords) {
+        if (DatasetConfig.USERS_ENGINE_BULK.equals(context.getConfig().getUsersEngine())) {
+            createUsersBulk(context, session, startIndex, endIndex, hashedPasswords);
+            return;
+        }
+
         // Refresh the realm
         RealmModel realm = session.realms().getRealm(context.getRealm().getId());
         DatasetConfig config = context.getConfig();
 
+        // Role mappings and group memberships of all the users from this batch. They are assigned at the end of the batch with one bulk operation per mapping type
+        List<BulkUserWriter.UserRow> mappings = new ArrayList<>(endIndex - startIndex);
+        List<UserModel> users = new ArrayList<>(endIndex - startIndex);
+
         for (int i = startIndex; i < endIndex; i++) {
             String username = config.getUserPrefix() + i;
+            if (config.isResume() && session.users().getUserByUsername(username, realm) != null) {
+                // User was created by the resumed task after its last checkpoint
+                continue;
+            }
             UserModel user = session.users().addUser(realm, username);
             user.setEnabled(true);
             user.setFirstName(username + "-first");
             user.setLastName(username + "-last");
             user.setEmail(username + String.format("@%s.com", realm.getName()));
 
-            String password = String.format("%s-password", username);
-            session.userCredentialManager().updateCredential(realm, user, UserCredentialModel.password(password, false));
+            if (context.getSharedPassword() != null) {
+                PasswordCredentialModel sharedPassword = context.getSharedPassword();
+                PasswordCredentialModel userPassword = PasswordCredentialModel.createFromValues(sharedPassword.getPasswordCredentialData().getAlgorithm(),
+                        sharedPassword.getPasswordSecretData().getSalt(), sharedPassword.getPasswordCredentialData().getHashIterations(), sharedPassword.getPasswordSecretData().getValue());
+                session.userCredentialManager().createCredentialThroughProvider(realm, user, userPassword);
+            } else if (hashedPasswords == null) {
+                String password = String.format("%s-password", username);
+                session.userCredentialManager().updateCredential(realm, user, UserCredentialModel.password(password, false));
+            } else {
+                session.userCredentialManager().createCredentialThroughProvider(realm, user, hashedPasswords.get(i - startIndex));
+            }
+
+            BulkUserWriter.UserRow userMappings = new BulkUserWriter.UserRow(user.getId(), user.getUsername(), user.getEmail(), user.getFirstName(), user.getLastName(),
+                    user.getCreatedTimestamp());
+            addRolesAndGroups(context, i, userMappings);
+            addAttributes(config, i, userMappings);
+            // Default roles and groups were already assigned by the UserProvider
+            userMappings.getRoleIds().removeAll(context.getDefaultRoleIds());
+            userMappings.getGroupIds().removeAll(context.getDefaultGroupIds());
+            mappings.add(userMappings);
+            users.add(user);
+
+            context.userCreated(user);
+        }
+
+        if (context.getBulkUserWriter() != null) {
+            // Users are already flushed to the DB by the UserProvider, so the mappings can reference them
+            context.getBulkUserWriter().writeMappingsAndAttributes(mappings);
+        } else {
+            for (int i = 0; i < users.size(); i++) {
+                UserModel user = users.get(i);
+                mappings.get(i).getRoleIds().forEach(roleId -> user.grantRole(realm.getRoleById(roleId)));
+                mappings.get(i).getGroupIds().forEach(groupId -> user.joinGroup(realm.getGroupById(groupId)));
+                mappings.get(i).getAttributes().forEach(user::setAttribute);
+            }
+        }
+
+        logger.tracef("Assigned roles, groups and attributes to %d users in realm %s", users.size(), realm.getName());
+    }
+
+    // Detect which roles and groups we assign to the user with the given index. Roles and groups are picked according to the configured distributions (round-robin by default)
+    private void addRolesAndGroups(RealmContext context, int userIndex, BulkUserWriter.UserRow user) {
+        DatasetConfig config = context.getConfig();
+        List<String> realmRoleIds = context.getRealmRoleIds();
+        List<String> clientRoleIds = context.getClientRoleIds();
+        List<String> groupIds = context.getGroupIds();
+
+        context.getRealmRolesDistribution().pick(userIndex, config.getRealmRolesPerUser(), realmRoleIds.size(), j -> user.getRoleIds().add(realmRoleIds.get(j)));
 
-            // Detect which roles we assign to the user
-            int roleIndexStartForCurrentUser = (i * config.getRealmRolesPerUser());
-            for (int j = roleIndexStartForCurrentUser ; j < roleIndexStartForCurrentUser + config.getRealmRolesPerUser() ; j++) {
-                int roleIndex = j % context.getRealmRoles().size();
-                user.grantRole(context.getRealmRoles().get(roleIndex));
+        context.getClientRolesDistribution().pick(userIndex, config.getClientRolesPerUser(), clientRoleIds.size(), j -> user.getRoleIds().add(clientRoleIds.get(j)));
+
+        context.getGroupsDistribution().pick(userIndex, config.getGroupsPerUser(), groupIds.size(), j -> user.getGroupIds().add(groupIds.get(j)));
+    }
 
-                logger.tracef("Assigned role %s to the user %s", context.getRealmRoles().get(roleIndex).getName(), user.getUsername());
+    // Values of the attributes are consecutive values starting with the user index, so every value is shared by the same count of users and the attributes
+    // of the same user have different values
+    private void addAttributes(DatasetConfig config, int userIndex, BulkUserWriter.UserRow user) {
+        int cardinality = config.getAttributeValuesCardinality();
+        int valuesCount = Math.min(config.getValuesPerAttribute(), cardinality);
+        for (int k = 0; k < config.getAttributesPerUser(); k++) {
+            List<String> values = new ArrayList<>(valuesCount);
+            for (int j = 0; j < valuesCount; j++) {
+                values.add("value-" + (((long) userIndex + k + j) % cardinality));
             }
+            user.getAttributes().put(config.getAttributePrefix() + k, values);
+        }
+    }
 
-            int clientRolesTotal = context.getClientRoles().size();
-            int clientRoleIndexStartForCurrentUser = (i * config.getClientRolesPerUser());
-            for (int j = clientRoleIndexStartForCurrentUser ; j < clientRoleIndexStartForCurrentUser + config.getClientRolesPerUser() ; j++) {
-                int roleIndex = j % clientRolesTotal;
-                user.grantRole(context.getClientRoles().get(roleIndex));
+    // Variant of createUsers for the "bulk" engine. Same users are created, but the rows of the whole batch are written with the JDBC batches instead of adding users one by one
+    // through the UserProvider. Default roles, groups and required actions are assigned here as they would be assigned by the UserProvider
+    private void createUsersBulk(RealmContext context, KeycloakSession session, int startIndex, int endIndex, List<PasswordCredentialModel> hashedPasswords) {
+        RealmModel realm = session.realms().getRealm(context.getRealm().getId());
+        DatasetConfig config = context.getConfig();
 
-                logger.tracef("Assigned role %s to the user %s", context.getClientRoles().get(roleIndex).getName(), user.getUsername());
+        PasswordPolicy passwordPolicy = realm.getPasswordPolicy();
+        PasswordHashProvider hashProvider = (context.getSharedPassword() == null && hashedPasswords == null) ? getPasswordHashProvider(session, passwordPolicy) : null;
+
+        long createdTimestamp = Time.currentTimeMillis();
+        List<BulkUserWriter.UserRow> users = new ArrayList<>(endIndex - startIndex);
+
+        for (int i = startIndex; i < endIndex; i++) {
+            String username = config.getUserPrefix() + i;
+            if (config.isResume() && session.users().getUserByUsername(username, realm) != null) {
+                // User was created by the resumed task after its last checkpoint
+                continue;
             }
 
-            // Detect which groups we assign to the user
-            int groupIndexStartForCurrentUser = (i * config.getGroupsPerUser());
-            for (int j = groupIndexStartForCurrentUser ; j < groupIndexStartForCurrentUser + config.getGroupsPerUser() ; j++) {
-                int groupIndex = j % context.getGroups().size();
-                user.joinGroup(context.getGroups().get(groupIndex));
+            // UserProvider stores usernames and emails in lower-case
+            BulkUserWriter.UserRow user = new BulkUserWriter.UserRow(KeycloakModelUtils.generateId(), username.toLowerCase(),
+                    (username + String.format("@%s.com", realm.getName())).toLowerCase(), username + "-first", username + "-last", createdTimestamp);
 
-                logger.tracef("Assigned group %s to the user %s", context.getGroups().get(groupIndex).getName(), user.getUsername());
+            PasswordCredentialModel password;
+            if (context.getSharedPassword() != null) {
+                password = context.getSharedPassword();
+            } else if (hashedPasswords == null) {
+                password = hashProvider.encodedCredential(String.format("%s-password", username), passwordPolicy.getHashIterations());
+            } else {
+                password = hashedPasswords.get(i - startIndex);
             }
+            user.setCredential(KeycloakModelUtils.generateId(), password);
 
-            context.userCreated(user);
+            // Same roles and groups like with the "orm" engine
+            user.getRoleIds().addAll(context.getDefaultRoleIds());
+            user.getGroupIds().addAll(context.getDefaultGroupIds());
+            addRolesAndGroups(context, i, user);
+            addAttributes(config, i, user);
+
+            user.getRequiredActions().addAll(context.getDefaultRequiredActions());
+
+            users.add(user);
+        }
+
+        if (users.isEmpty()) {
+            return;
+        }
+
+        context.getBulkUserWriter().writeUsers(realm.getId(), users);
+
+        // Users were not added through the UserProvider, so evict them from the user cache once per batch. The cache may contain "user not found" entries for them
+        UserCache userCache = session.userCache();
+        for (BulkUserWriter.UserRow user : users) {
+            InMemoryUserAdapter userModel = new InMemoryUserAdapter(session, realm, user.getId());
+            userModel.setUsername(user.getUsername());
+            userModel.setEmail(user.getEmail());
+            if (userCache != null) {
+                userCache.evict(realm, userModel);
+            }
+            context.userCreated(userModel);
         }
     }
 
+    // Hashing task to be triggered by the thread of the hashing stage of PasswordHashingPipeline. It does not need any DB transaction
+    private List<PasswordCredentialModel> hashPasswords(PasswordHashProvider hashProvider, PasswordPolicy passwordPolicy, DatasetConfig config, int startIndex, int endIndex) {
+        List<PasswordCredentialModel> hashedPasswords = new ArrayList<>(endIndex - startIndex);
+        for (int i = startIndex; i < endIndex; i++) {
+            String password = String.format("%s-password", config.getUserPrefix() + i);
+            hashedPasswords.add(hashProvider.encodedCredential(password, passwordPolicy.getHashIterations()));
+        }
+        return hashedPasswords;
+    }
 
-    private void cacheRealmAndPopulateContext(RealmContext context) {
-        DatasetConfig config = context.getConfig();
+    // Same logic like PasswordCredentialProvider uses to find the hash provider
+    private PasswordHashProvider getPasswordHashProvider(KeycloakSession session, PasswordPolicy passwordPolicy) {
+        if (passwordPolicy != null && passwordPolicy.getHashAlgorithm() != null) {
+            PasswordHashProvider hashProvider = session.getProvider(PasswordHashProvider.class, passwordPolicy.getHashAlgorithm());
+            if (hashProvider != null) {
+                return hashProvider;
+            }
+        }
+        return session.getProvider(PasswordHashProvider.class, PasswordPolicy.HASH_ALGORITHM_DEFAULT);
+    }
 
-        KeycloakModelUtils.runJobInTransactionWithTimeout(baseSession.getKeycloakSessionFactory(), session -> {
 
-            RealmModel realm = session.realms().getRealm(context.getRealm().getId());
-            context.setRealm(realm);
+    private void cacheRealmAndPopulateContext(RealmContext context, ExecutorHelper.TransactionListener listener) {
+        ExecutorHelper.runJobInTransaction(baseSession.getKeycloakSessionFactory(), session -> populateRealmContext(context, session),
+                context.getConfig().getTransactionTimeoutInSeconds(), listener);
+    }
 
-            Set<RoleModel> roles = realm.getRoles();
-            List<RoleModel> sortedRoles = roles.stream()
-                    .filter(roleModel -> roleModel.getName().startsWith(config.getRealmRolePrefix()))
-                    .sorted((role1, role2) -> {
-                        String name1 = role1.getName().substring(config.getRealmRolePrefix().length());
-                        String name2 = role2.getName().substring(config.getRealmRolePrefix().length());
-                        return Integer.parseInt(name1) - Integer.parseInt(name2);
-                    })
-                    .collect(Collectors.toList());
-            context.setRealmRoles(sortedRoles);
-
-            logger.debugf("CACHE: After obtain realm roles in realm %s", realm.getName());
-
-            List<GroupModel> groups = realm.getGroups();
-            List<GroupModel> sortedGroups = groups.stream()
-                    .filter(groupModel -> groupModel.getName().startsWith(config.getGroupPrefix()))
-                    .sorted((group1, group2) -> {
-                        String name1 = group1.getName().substring(config.getGroupPrefix().length());
-                        String name2 = group2.getName().substring(config.getGroupPrefix().length());
-                        return Integer.parseInt(name1) - Integer.parseInt(name2);
-                    })
-                    .collect(Collectors.toList());
-            context.setGroups(sortedGroups);
+    // Load the realm with its roles, groups and clients to the cache and fill the context with the roles and groups to be assigned to the users
+    private void populateRealmContext(RealmContext context, KeycloakSession session) {
+        DatasetConfig config = context.getConfig();
 
-            logger.debugf("CACHE: After obtain groups in realm %s", realm.getName());
-            realm.getDefaultGroups();
-            logger.debugf("CACHE: After obtain default groups in realm %s", realm.getName());
+        RealmModel realm = session.realms().getRealm(context.getRealm().getId());
+        context.setRealm(realm);
 
-            try {
-                DefaultRoles.getDefaultRoles(realm);
-            } catch (NoClassDefFoundError ncdfe) {
-                // Since Keycloak 13
-            }
-            logger.debugf("CACHE: After obtain default roles in realm %s", realm.getName());
-
-            // Just obtain first 20 clients for assign client roles - to avoid unecessary DB calls here to load all the clients and then their roles
-            List<ClientModel> clients = realm.getClients(0, 20);
-            logger.debugf("CACHE: After realm.getClients in realm %s", realm.getName());
-
-            List<RoleModel> sortedClientRoles = new ArrayList<>();
-            List<ClientModel> sortedClients = clients.stream()
-                    .filter(clientModel -> clientModel.getClientId().startsWith(config.getClientPrefix()))
-                    .sorted((client1, client2) -> {
-                        String name1 = client1.getClientId().substring(config.getClientPrefix().length());
-                        String name2 = client2.getClientId().substring(config.getClientPrefix().length());
-                        return Integer.parseInt(name1) - Integer.parseInt(name2);
-                    })
-                    .peek(client -> {
-                        // Sort client roles and add to the shared list
-                        List<RoleModel> currentClientRoles = client.getRoles().stream()
-                                .filter(roleModel -> roleModel.getName().startsWith(config.getClientPrefix()))
-                                .sorted((role1, role2) -> {
-                                    int index1 = role1.getName().indexOf(config.getClientRolePrefix()) + config.getClientRolePrefix().length();
-                                    int index2 = role2.getName().indexOf(config.getClientRolePrefix()) + config.getClientRolePrefix().length();
-                                    String name1 = role1.getName().substring(index1);
-                                    String name2 = role2.getName().substring(index2);
-                                    return Integer.parseInt(name1) - Integer.parseInt(name2);
-                                })
-                                .collect(Collectors.toList());
-                        sortedClientRoles.addAll(currentClientRoles);
+        Set<RoleModel> roles = realm.getRoles();
+        List<RoleModel> sortedRoles = roles.stream()
+                .filter(roleModel -> roleModel.getName().startsWith(config.getRealmRolePrefix()))
+                .sorted((role1, role2) -> {
+                    String name1 = role1.getName().substring(config.getRealmRolePrefix().length());
+                    String name2 = role2.getName().substring(config.getRealmRolePrefix().length());
+                    return Integer.parseInt(name1) - Integer.parseInt(name2);
+                })
+                .collect(Collectors.toList());
+        context.setRealmRoleIds(sortedRoles.stream().map(RoleModel::getId).collect(Collectors.toList()));
+
+        logger.debugf("CACHE: After obtain realm roles in realm %s", realm.getName());
+
+        // Users are members of the leaf groups of the group trees. In case of flat groups, all the groups are leafs
+        List<GroupModel> groups = realm.getGroups();
+        Comparator<String> groupNameComparator = GroupHierarchy.groupNameComparator(config.getGroupPrefix());
+        List<GroupModel> sortedGroups = groups.stream()
+                .filter(groupModel -> context.getGroupHierarchy().isLeafGroup(groupModel.getName(), config.getGroupPrefix()))
+                .sorted((group1, group2) -> groupNameComparator.compare(group1.getName(), group2.getName()))
+                .collect(Collectors.toList());
+        context.setGroupIds(sortedGroups.stream().map(GroupModel::getId).collect(Collectors.toList()));
+
+        logger.debugf("CACHE: After obtain groups in realm %s", realm.getName());
+        context.setDefaultGroupIds(realm.getDefaultGroups().stream().map(GroupModel::getId).collect(Collectors.toList()));
+        logger.debugf("CACHE: After obtain default groups in realm %s", realm.getName());
+
+        context.setDefaultRoleIds(getDefaultRoles(realm).stream().map(RoleModel::getId).collect(Collectors.toList()));
+        logger.debugf("CACHE: After obtain default roles in realm %s", realm.getName());
+
+        context.setDefaultRequiredActions(realm.getRequiredActionProviders().stream()
+                .filter(action -> action.isEnabled() && action.isDefaultAction())
+                .map(RequiredActionProviderModel::getAlias)
+                .collect(Collectors.toList()));
+
+        // Just obtain first 20 clients for assign client roles - to avoid unecessary DB calls here to load all the clients and then their roles
+        List<ClientModel> clients = realm.getClients(0, 20);
+        logger.debugf("CACHE: After realm.getClients in realm %s", realm.getName());
+
+        List<String> sortedClientRoleIds = new ArrayList<>();
+        clients.stream()
+                .filter(clientModel -> clientModel.getClientId().startsWith(config.getClientPrefix()))
+                .sorted((client1, client2) -> {
+                    String name1 = client1.getClientId().substring(config.getClientPrefix().length());
+                    String name2 = client2.getClientId().substring(config.getClientPrefix().length());
+                    return Integer.parseInt(name1) - Integer.parseInt(name2);
+                })
+                .forEach(client -> {
+                    // Sort client roles and add to the shared list
+                    List<RoleModel> currentClientRoles = client.getRoles().stream()
+                            .filter(roleModel -> roleModel.getName().startsWith(config.getClientPrefix()))
+                            .sorted((role1, role2) -> {
+                                int index1 = role1.getName().indexOf(config.getClientRolePrefix()) + config.getClientRolePrefix().length();
+                                int index2 = role2.getName().indexOf(config.getClientRolePrefix()) + config.getClientRolePrefix().length();
+                                String name1 = role1.getName().substring(index1);
+                                String name2 = role2.getName().substring(index2);
+                                return Integer.parseInt(name1) - Integer.parseInt(name2);
+                            })
+                            .collect(Collectors.toList());
+                    currentClientRoles.forEach(role -> sortedClientRoleIds.add(role.getId()));
 
-                    })
-                    .collect(Collectors.toList());
+                });
 
-            logger.debugf("CACHE: After client roles loaded in the realm %s", realm.getName());
-            context.setClients(sortedClients);
-            context.setClientRoles(sortedClientRoles);
+        logger.debugf("CACHE: After client roles loaded in the realm %s", realm.getName());
+        context.setClientRoleIds(sortedClientRoleIds);
 
-        }, config.getTransactionTimeoutInSeconds());
+        if (DatasetConfig.PASSWORD_HASH_MODE_SHARED_SALT.equals(config.getPasswordHashMode())) {
+            PasswordPolicy passwordPolicy = realm.getPasswordPolicy();
+            context.setSharedPassword(getPasswordHashProvider(session, passwordPolicy).encodedCredential(config.getUserPassword(), passwordPolicy.getHashIterations()));
+            logger.debugf("Computed shared password hash for the users in the realm %s", realm.getName());
+        }
     }
 
 
 
+    // Roles granted to every new user
+    private Set<RoleModel> getDefaultRoles(RealmModel realm) {
+        try {
+            return DefaultRoles.getDefaultRoles(realm);
+        } catch (NoClassDefFoundError ncdfe) {
+            // Since Keycloak 13, there is single composite default role of the realm
+            try {
+                Method getDefaultRole = RealmModel.class.getMethod("getDefaultRole");
+                return Collections.singleton((RoleModel) getDefaultRole.invoke(realm));
+            } catch (Exception e) {
+                throw new RuntimeException("Not able to obtain default roles of the realm " + realm.getName(), e);
+            }
+        }
+    }
+
+    private void addDefaultRole(RealmModel realm, RoleModel role) {
+        try {
+            realm.addDefaultRole(role.getName());
+        } catch (NoSuchMethodError nsme) {
+            // Since Keycloak 13, default roles are the composites of the single default role of the realm
+            try {
+                Method getDefaultRole = RealmModel.class.getMethod("getDefaultRole");
+                ((RoleModel) getDefaultRole.invoke(realm)).addCompositeRole(role);
+            } catch (Exception e) {
+                throw new RuntimeException("Not able to add default role to the realm " + realm.getName(), e);
+            }
+        }
+    }
+
     private String getStatusUrl() {
         String providerClassPath = uriInfo.getAbsolutePath().getPath().substring(0, uriInfo.getAbsolutePath().getPath().lastIndexOf("/"));
         return uriInfo.getAbsolutePathBuilder()
@@ -18,9 +18,6 @@
 
 package org.keycloak.benchmark.dataset;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
 import org.jboss.resteasy.spi.ResteasyProviderFactory;
 import org.keycloak.Config;
 import org.keycloak.models.KeycloakSession;
@@ -34,6 +31,8 @@ public class DatasetResourceProviderFactory implements RealmResourceProviderFact
 
     public static final String ID = "dataset";
 
+    private DistributedTaskWorker distributedTaskWorker;
+
     @Override
     public String getId() {
         return ID;
@@ -41,7 +40,7 @@ public class DatasetResourceProviderFactory implements RealmResourceProviderFact
 
     @Override
     public RealmResourceProvider create(KeycloakSession session) {
-        DatasetResourceProvider provider = new DatasetResourceProvider(session);
+        DatasetResourceProvider provider = new DatasetResourceProvider(session, distributedTaskWorker);
         ResteasyProviderFactory.getInstance().injectProperties(provider);
         return provider;
     }
@@ -52,9 +51,14 @@ public class DatasetResourceProviderFactory implements RealmResourceProviderFact
 
     @Override
     public void postInit(KeycloakSessionFactory factory) {
+        distributedTaskWorker = new DistributedTaskWorker(factory);
+        distributedTaskWorker.start();
     }
 
     @Override
     public void close() {
+        if (distributedTaskWorker != null) {
+            distributedTaskWorker.stop();
+        }
     }
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.dataset;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.keycloak.benchmark.dataset.config.DatasetConfig;
+
+/**
+ * Task split into the partitions, which can be processed by any cluster node. It is published to the work cache by the node, which received the HTTP request.
+ */
+public class DistributedTask {
+
+    @JsonProperty("id")
+    private String id;
+
+    // Endpoint of the task. For example "create-users"
+    @JsonProperty("operation")
+    private String operation;
+
+    // Query parameters sent to the endpoint when the task was triggered
+    @JsonProperty("query-parameters")
+    private Map<String, String> queryParameters = new HashMap<>();
+
+    // Index of the first entity created by the task
+    @JsonProperty("start")
+    private int start;
+
+    // Index after the last entity created by the task
+    @JsonProperty("end")
+    private int end;
+
+    @JsonProperty("partition-size")
+    private int partitionSize;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    public Map<String, String> getQueryParameters() {
+        return queryParameters;
+    }
+
+    public void setQueryParameters(Map<String, String> queryParameters) {
+        this.queryParameters = queryParameters;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public void setStart(int start) {
+        this.start = start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public void setEnd(int end) {
+        this.end = end;
+    }
+
+    public int getPartitionSize() {
+        return partitionSize;
+    }
+
+    public void setPartitionSize(int partitionSize) {
+        this.partitionSize = partitionSize;
+    }
+
+    @JsonIgnore
+    public int getPartitionsCount() {
+        return (end - start + partitionSize - 1) / partitionSize;
+    }
+
+    /**
+     * @return phase of the task progress, which tracks the entities created by this task
+     */
+    @JsonIgnore
+    public String getEntitiesPhase() {
+        switch (operation) {
+            case DatasetConfig.OPERATION_CREATE_USERS:
+                return TaskProgress.PHASE_USERS;
+            case DatasetConfig.OPERATION_CREATE_CLIENTS:
+                return TaskProgress.PHASE_CLIENTS;
+            default:
+                return TaskProgress.PHASE_OFFLINE_SESSIONS;
+        }
+    }
+
+    public IndexRange getPartition(int partition) {
+        int from = start + partition * partitionSize;
+        return new IndexRange(from, Math.min(from + partitionSize, end));
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.dataset;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.jboss.logging.Logger;
+import org.keycloak.benchmark.dataset.config.ConfigUtil;
+import org.keycloak.benchmark.dataset.config.DatasetConfig;
+import org.keycloak.benchmark.dataset.config.DatasetOperation;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.utils.KeycloakModelUtils;
+
+/**
+ * Runs on every cluster node. It periodically checks the work cache for the {@link DistributedTask} and if there is any, it claims and processes its partitions
+ * until there is no unclaimed partition left. Hence the entities are created by all the cluster nodes concurrently.
+ */
+public class DistributedTaskWorker {
+
+    protected static final Logger logger = Logger.getLogger(DistributedTaskWorker.class);
+
+    private static final long POLL_INTERVAL_MS = 2000;
+
+    // Partition, which lease was not renewed for this time, is considered abandoned by the failed node
+    static final int PARTITION_LEASE_SECONDS = 30;
+
+    private static final long LEASE_RENEWAL_INTERVAL_MS = 10000;
+
+    private final KeycloakSessionFactory sessionFactory;
+
+    // Id of the last distributed task joined by this node. Every task is joined at most once
+    private final AtomicReference<String> joinedTaskId = new AtomicReference<>();
+
+    private ScheduledExecutorService poller;
+
+    // Separate thread as the poller thread may be busy with processing the partitions
+    private ScheduledExecutorService leaseRenewer;
+
+    public DistributedTaskWorker(KeycloakSessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    public void start() {
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dataset-distributed-task-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::poll, POLL_INTERVAL_MS, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        leaseRenewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dataset-partition-lease-renewer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void stop() {
+        if (poller != null) {
+            poller.shutdownNow();
+        }
+        if (leaseRenewer != null) {
+            leaseRenewer.shutdownNow();
+        }
+    }
+
+    private void poll() {
+        // Exception would cancel the next executions of the poller
+        try {
+            AtomicReference<DistributedTask> task = new AtomicReference<>();
+            KeycloakModelUtils.runJobInTransaction(sessionFactory, session -> task.set(new TaskManager(session).getDistributedTask()));
+
+            if (task.get() != null) {
+                processTask(task.get());
+            }
+        } catch (Throwable t) {
+            logger.error("Failed to process the distributed task", t);
+        }
+    }
+
+    /**
+     * Claim and process the partitions of the task until there is no unclaimed partition left. It does nothing if this node already joined the task.
+     * Failure of the partition does not stop processing of the other partitions. It is just recorded as the result of the partition.
+     */
+    public void processTask(DistributedTask task) {
+        String previousTaskId = joinedTaskId.get();
+        if (task.getId().equals(previousTaskId) || !joinedTaskId.compareAndSet(previousTaskId, task.getId())) {
+            return;
+        }
+
+        // Use the same configuration like the node, which published the task
+        MultivaluedMap<String, String> queryParameters = new MultivaluedHashMap<>();
+        task.getQueryParameters().forEach(queryParameters::putSingle);
+        DatasetConfig config = ConfigUtil.createConfigFromQueryParams(queryParameters, getDatasetOperation(task));
+        config.setStart(task.getStart());
+
+        TimerLogger timerLogger = TimerLogger.start("Partitions of the distributed task " + task.getId() + " (" + task.getOperation() + ")");
+
+        TaskManager taskManager = createTaskManager(sessionFactory);
+
+        String nodeName = taskManager.getNodeName();
+        int slot = taskManager.joinDistributedTask(task.getId(), nodeName, config.getTaskTimeout());
+        TaskProgress progress = new TaskProgress(rep -> taskManager.updateNodeProgress(task.getId(), slot, rep, config.getTaskTimeout()));
+        timerLogger.info(logger, "Node %s joined the distributed task with %d partitions", nodeName, task.getPartitionsCount());
+
+        int processed = 0;
+        for (int partition = 0; partition < task.getPartitionsCount(); partition++) {
+            if (!taskManager.claimPartition(task.getId(), partition, nodeName, PARTITION_LEASE_SECONDS, config.getTaskTimeout())) {
+                continue;
+            }
+
+            int claimedPartition = partition;
+            ScheduledFuture<?> leaseRenewal = leaseRenewer.scheduleWithFixedDelay(() -> renewPartitionLease(taskManager, task, claimedPartition, nodeName),
+                    LEASE_RENEWAL_INTERVAL_MS, LEASE_RENEWAL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+            IndexRange range = task.getPartition(partition);
+            boolean success = false;
+            try {
+                // Every partition has its own transaction, so the transaction is not kept open for all the partitions claimed by this node
+                KeycloakModelUtils.runJobInTransactionWithTimeout(sessionFactory,
+                        session -> new DatasetResourceProvider(session, this).processPartition(timerLogger, task, config, range, progress), config.getTaskTimeout());
+                success = true;
+            } catch (RuntimeException re) {
+                logger.errorf(re, "Failed to process the partition %d with the range %s of the distributed task %s", partition, range, task.getId());
+            } finally {
+                leaseRenewal.cancel(false);
+                progress.publish();
+                taskManager.partitionFinished(task.getId(), partition, success, config.getTaskTimeout());
+            }
+            processed++;
+        }
+
+        timerLogger.info(logger, "Node %s processed %d partitions of the distributed task", nodeName, processed);
+    }
+
+    // Work cache is not bound to the session, so the task manager can be used after the transaction, which created it, is finished
+    static TaskManager createTaskManager(KeycloakSessionFactory sessionFactory) {
+        AtomicReference<TaskManager> taskManager = new AtomicReference<>();
+        KeycloakModelUtils.runJobInTransaction(sessionFactory, session -> taskManager.set(new TaskManager(session)));
+        return taskManager.get();
+    }
+
+    private void renewPartitionLease(TaskManager taskManager, DistributedTask task, int partition, String nodeName) {
+        // Exception would cancel the next renewals
+        try {
+            if (!taskManager.renewPartitionLease(task.getId(), partition, nodeName, PARTITION_LEASE_SECONDS)) {
+                logger.warnf("Partition %d of the distributed task %s is not claimed by the node %s anymore", partition, task.getId(), nodeName);
+            }
+        } catch (Throwable t) {
+            logger.warnf(t, "Failed to renew the lease of the partition %d of the distributed task %s", partition, task.getId());
+        }
+    }
+
+    private static DatasetOperation getDatasetOperation(DistributedTask task) {
+        switch (task.getOperation()) {
+            case DatasetConfig.OPERATION_CREATE_USERS:
+                return DatasetOperation.CREATE_USERS;
+            case DatasetConfig.OPERATION_CREATE_CLIENTS:
+                return DatasetOperation.CREATE_CLIENTS;
+            default:
+                return DatasetOperation.CREATE_OFFLINE_SESSIONS;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.dataset;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.keycloak.benchmark.dataset.config.DatasetException;
+import org.keycloak.events.EventType;
+
+/**
+ * Weighted distribution of the event types. It is parsed from the value like "LOGIN:60,CODE_TO_TOKEN:20,LOGIN_ERROR:5" where every event type has its
+ * relative weight. Weights don't need to sum to 100.
+ */
+public class EventTypeDistribution {
+
+    private final EventType[] types;
+    // Cumulative weights. The last item is the sum of all the weights
+    private final int[] cumulativeWeights;
+
+    private EventTypeDistribution(EventType[] types, int[] cumulativeWeights) {
+        this.types = types;
+        this.cumulativeWeights = cumulativeWeights;
+    }
+
+    public static EventTypeDistribution parse(String value) {
+        List<EventType> types = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        for (String item : value.split(",")) {
+            String[] typeAndWeight = item.trim().split(":");
+            if (typeAndWeight.length != 2) {
+                throw new DatasetException("Invalid item '" + item + "' of event types. Expected format like 'LOGIN:60'");
+            }
+
+            EventType type;
+            int weight;
+            try {
+                type = EventType.valueOf(typeAndWeight[0].trim());
+                weight = Integer.parseInt(typeAndWeight[1].trim());
+            } catch (IllegalArgumentException iae) {
+                throw new DatasetException("Invalid item '" + item + "' of event types. Expected format like 'LOGIN:60'", iae);
+            }
+            if (weight <= 0) {
+                throw new DatasetException("Weight of the event type " + type + " must be positive");
+            }
+            types.add(type);
+            weights.add(weight);
+        }
+
+        int[] cumulativeWeights = new int[weights.size()];
+        int sum = 0;
+        for (int i = 0; i < weights.size(); i++) {
+            sum += weights.get(i);
+            cumulativeWeights[i] = sum;
+        }
+        return new EventTypeDistribution(types.toArray(new EventType[0]), cumulativeWeights);
+    }
+
+    public EventType next(Random random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+
+        // Binary search of the first cumulative weight bigger than the value
+        int low = 0;
+        int high = cumulativeWeights.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulativeWeights[mid] > value) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return types[low];
+    }
+}
@@ -18,13 +18,17 @@
 
 package org.keycloak.benchmark.dataset;
 
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.concurrent.ExecutionException;
+import java.lang.reflect.Method;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
+import org.jboss.logging.Logger;
 import org.keycloak.benchmark.dataset.config.DatasetConfig;
 import org.keycloak.models.KeycloakSessionFactory;
 import org.keycloak.models.KeycloakSessionTask;
@@ -35,36 +39,183 @@ import org.keycloak.models.utils.KeycloakModelUtils;
  */
 public class ExecutorHelper {
 
+    protected static final Logger logger = Logger.getLogger(ExecutorHelper.class);
+
     private final ExecutorService executor;
     private final KeycloakSessionFactory sessionFactory;
     private final DatasetConfig config;
-    private final Queue<Future> futures = new LinkedList<>();
+
+    // Limits count of the tasks submitted, but not yet finished. It is null if the count is unbounded
+    private final Semaphore inFlight;
+
+    // Tasks may be added concurrently (EG. from the hashing stage of the PasswordHashingPipeline). Every task updates the counters when it is finished,
+    // so the memory and the cost of adding the task do not grow with the count of submitted tasks
+    private final LongAdder finishedTasks = new LongAdder();
+    private final AtomicInteger tasksInProgress = new AtomicInteger();
+    private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+    // Notified when the count of tasks in progress drops to 0
+    private final Object allFinished = new Object();
+
+    // Limits count of concurrently running DB transactions. It is used just for the "virtual" executor mode as with the "threads" mode, the count of
+    // transactions is limited by the count of threads
+    private final Semaphore concurrentTransactions;
 
     public ExecutorHelper(int threadCount, KeycloakSessionFactory sessionFactory, DatasetConfig config) {
-        executor = Executors.newFixedThreadPool(threadCount);
+        if (DatasetConfig.EXECUTOR_MODE_VIRTUAL.equals(config.getExecutorMode())) {
+            executor = newVirtualThreadPerTaskExecutor(config.getConcurrentTransactions());
+            concurrentTransactions = new Semaphore(config.getConcurrentTransactions());
+        } else {
+            executor = Executors.newFixedThreadPool(threadCount);
+            concurrentTransactions = null;
+        }
         this.sessionFactory = sessionFactory;
         this.config = config;
+        this.inFlight = config.getMaxTasksInFlight() > 0 ? new Semaphore(config.getMaxTasksInFlight()) : null;
+    }
+
+    // Virtual threads are available since JDK 21, which is why reflection is used here. The fallback pool is bounded as the platform threads are expensive and
+    // "max-tasks-in-flight" may be unbounded. More threads than "concurrent-transactions" would be just blocked on the semaphore anyway
+    private static ExecutorService newVirtualThreadPerTaskExecutor(int concurrentTransactions) {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (NoSuchMethodException nsme) {
+            logger.warnf("Virtual threads not supported by this JVM. Fallback to the fixed pool of %d threads", concurrentTransactions);
+            return Executors.newFixedThreadPool(concurrentTransactions);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
     }
 
 
     public void addTask(KeycloakSessionTask sessionTask) {
-        Future f = executor.submit(() -> {
+        addTask(sessionTask, null);
+    }
+
+
+    /**
+     * Submit the task. If the count of tasks in flight is bounded, the caller is blocked until some of the previously submitted tasks is finished.
+     *
+     * @param sessionTask task to run in the separate transaction
+     * @param listener notified after the transaction is finished (including commit). Can be null
+     */
+    public void addTask(KeycloakSessionTask sessionTask, TransactionListener listener) {
+        if (inFlight != null) {
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(ie);
+            }
+        }
 
-            KeycloakModelUtils.runJobInTransactionWithTimeout(sessionFactory, sessionTask, config.getTransactionTimeoutInSeconds());
+        tasksInProgress.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                try {
+                    if (concurrentTransactions == null) {
+                        runJobInTransaction(sessionFactory, sessionTask, config.getTransactionTimeoutInSeconds(), listener);
+                    } else {
+                        concurrentTransactions.acquire();
+                        try {
+                            runJobInTransaction(sessionFactory, sessionTask, config.getTransactionTimeoutInSeconds(), listener);
+                        } finally {
+                            concurrentTransactions.release();
+                        }
+                    }
+                } catch (Throwable t) {
+                    taskFailed(t);
+                } finally {
+                    // Task is finished before its permit is released, so the count of tasks in progress never exceeds "max-tasks-in-flight"
+                    finishedTasks.increment();
+                    taskFinished();
+                    if (inFlight != null) {
+                        inFlight.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            taskFinished();
+            if (inFlight != null) {
+                inFlight.release();
+            }
+            throw ree;
+        }
+    }
 
-        });
-        futures.add(f);
+
+    /**
+     * Run the task in the transaction with the timeout and notify the listener (if not null) with the duration of the transaction including commit.
+     * Could be used also for the transactions, which are not triggered through the executor.
+     */
+    public static void runJobInTransaction(KeycloakSessionFactory sessionFactory, KeycloakSessionTask sessionTask, int timeoutInSeconds, TransactionListener listener) {
+        if (listener == null) {
+            KeycloakModelUtils.runJobInTransactionWithTimeout(sessionFactory, sessionTask, timeoutInSeconds);
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        boolean success = false;
+        try {
+            KeycloakModelUtils.runJobInTransactionWithTimeout(sessionFactory, sessionTask, timeoutInSeconds);
+            success = true;
+        } finally {
+            listener.transactionFinished(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), success);
+        }
     }
 
 
+    // Failures are logged immediately and the first failure is re-thrown from waitForAllToFinish
+    private void taskFailed(Throwable t) {
+        if (firstFailure.compareAndSet(null, t)) {
+            logger.error("Task failed. Remaining tasks will still be executed", t);
+        } else {
+            logger.errorf("Task failed: %s", t.getMessage());
+        }
+    }
+
+    private void taskFinished() {
+        if (tasksInProgress.decrementAndGet() == 0) {
+            synchronized (allFinished) {
+                allFinished.notifyAll();
+            }
+        }
+    }
+
+
+    /**
+     * Wait until all the submitted tasks are finished (including the failed ones), so no task is running once this method returns. Then re-throw the first failure if any
+     */
     public void waitForAllToFinish() {
-        for (Future future : futures) {
-            try {
-                future.get();
-            } catch (ExecutionException | InterruptedException ee) {
-                throw new RuntimeException(ee); // Maybe something more sophisticated needed...
+        synchronized (allFinished) {
+            while (tasksInProgress.get() > 0) {
+                try {
+                    allFinished.wait();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(ie);
+                }
             }
         }
+
+        Throwable failure = firstFailure.get();
+        if (failure != null) {
+            throw new RuntimeException(failure);
+        }
+    }
+
+    /**
+     * @return count of tasks, which were already finished
+     */
+    public long getFinishedTasksCount() {
+        return finishedTasks.sum();
+    }
+
+    /**
+     * @return count of tasks submitted to this executor, which are either running or waiting for the free thread
+     */
+    public int getTasksInProgressCount() {
+        return tasksInProgress.get();
     }
 
     public void shutDown() {
@@ -72,4 +223,23 @@ public class ExecutorHelper {
     }
 
 
+    public interface TransactionListener {
+
+        void transactionFinished(long durationMs, boolean success);
+
+        /**
+         * @return listener, which notifies both listeners. Any of them can be null
+         */
+        static TransactionListener combine(TransactionListener first, TransactionListener second) {
+            if (first == null) return second;
+            if (second == null) return first;
+            return (durationMs, success) -> {
+                first.transactionFinished(durationMs, success);
+                second.transactionFinished(durationMs, success);
+            };
+        }
+
+    }
+
+
 }
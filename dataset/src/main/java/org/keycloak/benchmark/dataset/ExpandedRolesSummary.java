@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.dataset;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Summary of the count of roles per user after expanding the composite roles and the role mappings of the groups. Users of all the realms can be recorded concurrently.
+ */
+public class ExpandedRolesSummary {
+
+    // Count of users for every count of expanded roles
+    private final TreeMap<Integer, Long> counts = new TreeMap<>();
+    private long usersCount;
+    private long rolesSum;
+
+    public synchronized void record(int expandedRoles) {
+        counts.merge(expandedRoles, 1L, Long::sum);
+        usersCount++;
+        rolesSum += expandedRoles;
+    }
+
+    public synchronized void add(ExpandedRolesSummary other) {
+        synchronized (other) {
+            other.counts.forEach((roles, users) -> counts.merge(roles, users, Long::sum));
+            usersCount += other.usersCount;
+            rolesSum += other.rolesSum;
+        }
+    }
+
+    public synchronized long getUsersCount() {
+        return usersCount;
+    }
+
+    public synchronized int getMin() {
+        return counts.isEmpty() ? 0 : counts.firstKey();
+    }
+
+    public synchronized int getMax() {
+        return counts.isEmpty() ? 0 : counts.lastKey();
+    }
+
+    public synchronized double getAverage() {
+        return usersCount == 0 ? 0 : (double) rolesSum / usersCount;
+    }
+
+    /**
+     * @param percentile value between 0 and 100
+     * @return lowest count of roles, which is bigger or equal than the count of roles of the given percentile of users
+     */
+    public synchronized int getValueAtPercentile(double percentile) {
+        long countAtPercentile = Math.max(1, (long) Math.ceil(percentile / 100 * usersCount));
+        long cumulative = 0;
+        for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+            cumulative += entry.getValue();
+            if (cumulative >= countAtPercentile) {
+                return entry.getKey();
+            }
+        }
+        return getMax();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("users: %d, min: %d, avg: %.1f, p50: %d, p95: %d, max: %d", usersCount, getMin(), getAverage(), getValueAtPercentile(50),
+                getValueAtPercentile(95), getMax());
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.dataset;
+
+import java.util.Comparator;
+
+import org.keycloak.benchmark.dataset.config.DatasetConfig;
+import org.keycloak.benchmark.dataset.config.DatasetException;
+
+/**
+ * Shape of the group trees created in every realm. Every top-level group like "group-5" is the root of the tree with the given depth, where every group has
+ * the same count of subgroups. Subgroups are named by the path from the root like "group-5.0", "group-5.0.1". Depth 1 means just the flat list of top-level groups.
+ *
+ * Users are members of the leaf groups, so they inherit role mappings of all the groups on the path to the root.
+ */
+public class GroupHierarchy {
+
+    private static final String PATH_SEPARATOR = ".";
+
+    private final int depth;
+    private final int fanOut;
+    // Count of realm roles mapped to every group of the level. Last value is used for all the deeper levels
+    private final int[] rolesPerLevel;
+
+    public GroupHierarchy(int depth, int fanOut, int[] rolesPerLevel) {
+        this.depth = depth;
+        this.fanOut = fanOut;
+        this.rolesPerLevel = rolesPerLevel;
+    }
+
+    // Fan-out and roles are not available for the operations, which don't create groups. In that case just leaf groups can be found
+    public static GroupHierarchy fromConfig(DatasetConfig config) {
+        int depth = config.getGroupDepth();
+        int fanOut = config.getGroupFanOut() == null ? 1 : config.getGroupFanOut();
+        if (depth < 1 || fanOut < 1) {
+            throw new DatasetException("Both group-depth and group-fan-out must be positive");
+        }
+
+        int[] rolesPerLevel = { 0 };
+        if (config.getGroupRolesPerLevel() != null) {
+            String[] values = config.getGroupRolesPerLevel().split(",");
+            rolesPerLevel = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                try {
+                    rolesPerLevel[i] = Integer.parseInt(values[i].trim());
+                } catch (NumberFormatException nfe) {
+                    throw new DatasetException("Invalid value '" + config.getGroupRolesPerLevel() + "' of group-roles-per-level. Expected format like '3,2,1'", nfe);
+                }
+                if (rolesPerLevel[i] < 0) {
+                    throw new DatasetException("Values of group-roles-per-level must not be negative");
+                }
+            }
+        }
+        return new GroupHierarchy(depth, fanOut, rolesPerLevel);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getFanOut() {
+        return fanOut;
+    }
+
+    /**
+     * @return count of groups in the tree of single top-level group
+     */
+    public int getTreeSize() {
+        int size = 0;
+        int levelSize = 1;
+        for (int level = 0; level < depth; level++) {
+            size += levelSize;
+            levelSize *= fanOut;
+        }
+        return size;
+    }
+
+    public int getRolesPerGroup(int level) {
+        return rolesPerLevel[Math.min(level, rolesPerLevel.length - 1)];
+    }
+
+    public boolean hasRoleMappings() {
+        for (int roles : rolesPerLevel) {
+            if (roles > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static String getSubGroupName(String parentName, int index) {
+        return parentName + PATH_SEPARATOR + index;
+    }
+
+    /**
+     * @return true if the group with the given name is the leaf group of some tree with the given group prefix
+     */
+    public boolean isLeafGroup(String groupName, String groupPrefix) {
+        if (!groupName.startsWith(groupPrefix)) {
+            return false;
+        }
+        String path = groupName.substring(groupPrefix.length());
+        if (path.isEmpty()) {
+            return false;
+        }
+        int separators = 0;
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == PATH_SEPARATOR.charAt(0)) {
+                separators++;
+            } else if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return separators == depth - 1;
+    }
+
+    /**
+     * @return comparator of the names of the groups with the given prefix like "group-2.1" and "group-10.0". Groups are compared by the numbers on their path
+     */
+    public static Comparator<String> groupNameComparator(String groupPrefix) {
+        return (name1, name2) -> {
+            String[] path1 = name1.substring(groupPrefix.length()).split("\\.");
+            String[] path2 = name2.substring(groupPrefix.length()).split("\\.");
+            for (int i = 0; i < Math.min(path1.length, path2.length); i++) {
+                int result = Integer.compare(Integer.parseInt(path1[i]), Integer.parseInt(path2[i]));
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return Integer.compare(path1.length, path2.length);
+        };
+    }
+}
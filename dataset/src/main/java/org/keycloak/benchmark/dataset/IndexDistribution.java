@@ -0,0 +1,212 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.dataset;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+import org.keycloak.benchmark.dataset.config.DatasetException;
+
+/**
+ * Distribution of the indexes of the entities (EG. groups or roles assigned to the users). It is parsed from the value like "uniform", "zipf:1.2" or "normal:0.2".
+ *
+ * With the "zipf" distribution, the probability of the index is proportional to 1 / (index + 1)^exponent, so the first entities are much more popular than the others.
+ * With the "normal" distribution, the indexes are around the middle of the range with the standard deviation relative to the size of the range.
+ */
+public class IndexDistribution {
+
+    public static final String UNIFORM = "uniform";
+    public static final String ZIPF = "zipf";
+    public static final String NORMAL = "normal";
+
+    private static final double DEFAULT_ZIPF_EXPONENT = 1.0;
+    private static final double DEFAULT_NORMAL_DEVIATION = 0.2;
+
+    // Limit of attempts to pick distinct index. Very skewed distribution may keep returning the same few indexes
+    private static final int MAX_ATTEMPTS_PER_INDEX = 20;
+
+    private final String type;
+    private final double parameter;
+
+    // Cumulative probabilities for the last used size. The size is usually the same for all the calls (EG. count of groups in the realm), so it is computed just once
+    private volatile double[] cumulativeProbabilities;
+
+    private IndexDistribution(String type, double parameter) {
+        this.type = type;
+        this.parameter = parameter;
+    }
+
+    public static IndexDistribution parse(String value) {
+        String[] typeAndParameter = value.trim().split(":");
+        String type = typeAndParameter[0].trim();
+        if (typeAndParameter.length > 2 || (!UNIFORM.equals(type) && !ZIPF.equals(type) && !NORMAL.equals(type))) {
+            throw new DatasetException("Invalid distribution '" + value + "'. Expected format like 'uniform', 'zipf:1.2' or 'normal:0.2'");
+        }
+        if (UNIFORM.equals(type)) {
+            if (typeAndParameter.length > 1) {
+                throw new DatasetException("Distribution '" + UNIFORM + "' does not have any parameter");
+            }
+            return new IndexDistribution(type, 0);
+        }
+
+        double parameter = ZIPF.equals(type) ? DEFAULT_ZIPF_EXPONENT : DEFAULT_NORMAL_DEVIATION;
+        if (typeAndParameter.length > 1) {
+            try {
+                parameter = Double.parseDouble(typeAndParameter[1].trim());
+            } catch (NumberFormatException nfe) {
+                throw new DatasetException("Invalid parameter of the distribution '" + value + "'", nfe);
+            }
+        }
+        if (parameter <= 0) {
+            throw new DatasetException("Parameter of the distribution '" + value + "' must be positive");
+        }
+        return new IndexDistribution(type, parameter);
+    }
+
+    public boolean isUniform() {
+        return UNIFORM.equals(type);
+    }
+
+    /**
+     * @return random index from 0 (included) to size (excluded)
+     */
+    public int next(Random random, int size) {
+        if (isUniform()) {
+            return random.nextInt(size);
+        }
+
+        double[] cumulative = getCumulativeProbabilities(size);
+        double value = random.nextDouble();
+
+        // Binary search of the first cumulative probability bigger than the value
+        int low = 0;
+        int high = size - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] > value) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Pick distinct indexes from 0 (included) to size (excluded) for the entity with the given index (EG. groups of the user). With the "uniform" distribution, indexes
+     * are assigned round-robin, so all the indexes are picked by the same count of entities. Otherwise they are random, but the same entity always gets the same indexes.
+     *
+     * @param entityIndex index of the entity (EG. user), which the indexes are picked for
+     * @param count count of indexes to pick. If it is bigger than the size, the indexes can be repeated for the "uniform" distribution
+     * @param size count of available indexes
+     * @param consumer consumer of picked indexes
+     */
+    public void pick(int entityIndex, int count, int size, IntConsumer consumer) {
+        if (size == 0) {
+            return;
+        }
+
+        if (isUniform()) {
+            long start = (long) entityIndex * count;
+            for (long j = start; j < start + count; j++) {
+                consumer.accept((int) (j % size));
+            }
+            return;
+        }
+
+        if (count >= size) {
+            for (int j = 0; j < size; j++) {
+                consumer.accept(j);
+            }
+            return;
+        }
+
+        // Spread the seeds as the first random values of the consecutive seeds are similar
+        Random random = new Random(entityIndex * 0x9E3779B97F4A7C15L);
+        Set<Integer> picked = new HashSet<>();
+        for (int attempts = count * MAX_ATTEMPTS_PER_INDEX; picked.size() < count && attempts > 0; attempts--) {
+            int index = next(random, size);
+            if (picked.add(index)) {
+                consumer.accept(index);
+            }
+        }
+
+        // Fill the rest with the least popular indexes
+        for (int index = size - 1; picked.size() < count; index--) {
+            if (picked.add(index)) {
+                consumer.accept(index);
+            }
+        }
+    }
+
+    /**
+     * Split the total count to the given count of parts according to the distribution. For example to split the users to the realms. Sum of all the parts is the total
+     *
+     * @param index index of the part
+     * @param count count of parts
+     * @param total total count to split
+     * @return size of the part with the given index
+     */
+    public int share(int index, int count, long total) {
+        if (isUniform()) {
+            return (int) (total / count + (index < total % count ? 1 : 0));
+        }
+
+        double[] cumulative = getCumulativeProbabilities(count);
+        long from = index == 0 ? 0 : Math.round(cumulative[index - 1] * total);
+        long to = index == count - 1 ? total : Math.round(cumulative[index] * total);
+        return (int) (to - from);
+    }
+
+    private double[] getCumulativeProbabilities(int size) {
+        double[] cumulative = cumulativeProbabilities;
+        if (cumulative != null && cumulative.length == size) {
+            return cumulative;
+        }
+
+        cumulative = new double[size];
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += weight(i, size);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < size; i++) {
+            cumulative[i] /= sum;
+        }
+        cumulativeProbabilities = cumulative;
+        return cumulative;
+    }
+
+    private double weight(int index, int size) {
+        if (ZIPF.equals(type)) {
+            return 1 / Math.pow(index + 1, parameter);
+        } else {
+            double deviation = parameter * size;
+            double distance = (index - (size - 1) / 2.0) / deviation;
+            return Math.exp(-distance * distance / 2);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return isUniform() ? type : type + ":" + parameter;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.keycloak.benchmark.dataset;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Thread-safe set of the index ranges. Overlapping and adjacent ranges are merged, so the size of this set corresponds to the count of "holes"
+ * rather than to the count of added ranges.
+ */
+public class IndexRanges {
+
+    // Key is "from" of the range, value is "to" of the range
+    private final TreeMap<Integer, Integer> ranges = new TreeMap<>();
+
+    public synchronized void add(int from, int to) {
+        if (from >= to) {
+            return;
+        }
+
+        Map.Entry<Integer, Integer> floor = ranges.floorEntry(from);
+        if (floor != null && floor.getValue() >= from) {
+            from = floor.getKey();
+            to = Math.max(to, floor.getValue());
+        }
+
+        Map.Entry<Integer, Integer> next = ranges.ceilingEntry(from);
+        while (next != null && next.getKey() <= to) {
+            to = Math.max(to, next.getValue());
+            ranges.remove(next.getKey());
+            next = ranges.ceilingEntry(from);
+        }
+
+        ranges.put(from, to);
+    }
+
+    public synchronized List<IndexRange> getRanges() {
+        List<IndexRange> result = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : ranges.entrySet()) {
+            result.add(new IndexRange(entry.getKey(), entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * @return ranges between "from" (included) and "to" (excluded), which are not covered by this set
+     */
+    public synchronized List<IndexRange> getMissingRanges(int from, int to) {
+        List<IndexRange> result = new ArrayList<>();
+        int current = from;
+        for (Map.Entry<Integer, Integer> entry : ranges.entrySet()) {
+            if (entry.getValue() <= current) {
+                continue;
+            }
+            if (entry.getKey() >= to) {
+                break;
+            }
+            if (entry.getKey() > current) {
+                result.add(new IndexRange(current, entry.getKey()));
+            }
+            current = entry.getValue();
+        }
+        if (current < to) {
+            result.add(new IndexRange(current, to));
+        }
+        return result;
+    }
+}
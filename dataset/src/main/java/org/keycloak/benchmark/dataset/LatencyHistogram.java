@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.dataset;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latencies in milliseconds with the fixed memory footprint. Values lower than 32 ms are tracked exactly. Bigger values are tracked
+ * in the buckets with 16 sub-buckets for every power of 2, so the precision of the reported percentiles is within ~6%.
+ *
+ * It is a simplified variant of the HdrHistogram, which is not available to the providers deployed to the Keycloak server.
+ */
+public class LatencyHistogram {
+
+    private static final int EXACT_VALUES = 32;
+    private static final int SUB_BUCKETS = 16;
+    // Max tracked value is 2^31 ms, which is much more than any transaction timeout
+    private static final int MAX_EXPONENT = 31;
+    private static final int BUCKETS_COUNT = EXACT_VALUES + (MAX_EXPONENT - 5 + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+
+    public void record(long valueMs) {
+        counts.incrementAndGet(bucketIndex(valueMs));
+        totalCount.increment();
+    }
+
+    public long getTotalCount() {
+        return totalCount.sum();
+    }
+
+    /**
+     * @param percentile value between 0 and 100
+     * @return lowest value, which is bigger or equal than the given percentile of recorded values. Returns 0 if there are no recorded values
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = getTotalCount();
+        if (total == 0) {
+            return 0;
+        }
+
+        long countAtPercentile = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS_COUNT; i++) {
+            cumulative += counts.get(i);
+            if (cumulative >= countAtPercentile) {
+                return highestValueInBucket(i);
+            }
+        }
+        return highestValueInBucket(BUCKETS_COUNT - 1);
+    }
+
+    static int bucketIndex(long valueMs) {
+        if (valueMs < EXACT_VALUES) {
+            return (int) Math.max(0, valueMs);
+        }
+
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(valueMs), MAX_EXPONENT);
+        long subBucket = Math.min(valueMs >> (exponent - 4), 2 * SUB_BUCKETS - 1);
+        return EXACT_VALUES + (exponent - 5) * SUB_BUCKETS + (int) (subBucket - SUB_BUCKETS);
+    }
+
+    static long highestValueInBucket(int index) {
+        if (index < EXACT_VALUES) {
+            return index;
+        }
+
+        int exponent = (index - EXACT_VALUES) / SUB_BUCKETS + 5;
+        long subBucket = (index - EXACT_VALUES) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << (exponent - 4)) - 1;
+    }
+}
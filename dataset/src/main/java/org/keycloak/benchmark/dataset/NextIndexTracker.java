@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.dataset;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.logging.Logger;
+import org.keycloak.common.util.Time;
+
+/**
+ * Tracks the high-water mark of the indexes of created entities (EG. users "user-0", "user-1", ...) as the batches are committed and periodically saves it
+ * to the work cache. The saved index is used by {@link org.keycloak.benchmark.dataset.config.ConfigUtil#findFreeEntityIndex(Integer, java.util.function.Function)}
+ * to find next free index without probing the DB.
+ */
+public class NextIndexTracker {
+
+    protected static final Logger logger = Logger.getLogger(NextIndexTracker.class);
+
+    // Don't update the work cache more often than this
+    private static final long SAVE_INTERVAL_MS = 2000;
+
+    private final TaskManager taskManager;
+    private final String entityKey;
+    private final AtomicInteger nextFreeIndex = new AtomicInteger(-1);
+    private final AtomicLong lastSaveTime = new AtomicLong(0);
+
+    public NextIndexTracker(TaskManager taskManager, String entityKey) {
+        this.taskManager = taskManager;
+        this.entityKey = entityKey;
+    }
+
+    public static String realmsKey(String realmPrefix) {
+        return "realms/" + realmPrefix;
+    }
+
+    public static String clientsKey(String realmName, String clientPrefix) {
+        return "clients/" + realmName + "/" + clientPrefix;
+    }
+
+    public static String usersKey(String realmName, String userPrefix) {
+        return "users/" + realmName + "/" + userPrefix;
+    }
+
+    public TaskManager getTaskManager() {
+        return taskManager;
+    }
+
+    public String getEntityKey() {
+        return entityKey;
+    }
+
+    /**
+     * @return listener to be notified when the transaction with the batch of entities ending with the given index (excluded) is finished
+     */
+    public ExecutorHelper.TransactionListener listener(int endIndex) {
+        return (durationMs, success) -> {
+            if (success) {
+                batchCommitted(endIndex);
+            }
+        };
+    }
+
+    public void batchCommitted(int endIndex) {
+        nextFreeIndex.accumulateAndGet(endIndex, Math::max);
+
+        long now = Time.currentTimeMillis();
+        long lastSave = lastSaveTime.get();
+        if (now - lastSave >= SAVE_INTERVAL_MS && lastSaveTime.compareAndSet(lastSave, now)) {
+            save();
+        }
+    }
+
+    public void save() {
+        int index = nextFreeIndex.get();
+        if (index < 0) {
+            return;
+        }
+
+        try {
+            taskManager.updateNextFreeIndex(entityKey, index);
+        } catch (RuntimeException re) {
+            // Next free index is just an optimization. The index can be still found by probing the DB
+            logger.warnf(re, "Failed to save the next free index of '%s'", entityKey);
+        }
+    }
+
+    /**
+     * Save the free index found by probing the DB before the entities are created. Unlike {@link #save()}, it can move the saved index back (EG. after the entities were removed)
+     */
+    public void saveProbedIndex(int freeIndex) {
+        try {
+            taskManager.setNextFreeIndex(entityKey, freeIndex);
+        } catch (RuntimeException re) {
+            logger.warnf(re, "Failed to save the next free index of '%s'", entityKey);
+        }
+    }
+}
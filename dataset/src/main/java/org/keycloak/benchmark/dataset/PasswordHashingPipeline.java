@@ -0,0 +1,162 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.dataset;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import org.jboss.logging.Logger;
+import org.keycloak.models.KeycloakSession;
+
+/**
+ * Two-stage pipeline. The first stage runs CPU-bound work (typically password hashing) in a separate thread pool sized to the
+ * available cores. The result is handed off to the second stage, which is the {@link ExecutorHelper} running DB transactions
+ * (sized by "threads-count", which should match the DB connection pool). This way the DB transactions are not kept open
+ * while the hashes are computed.
+ *
+ * There is no explicit queue between the stages. The handoff is bounded by two semaphores:
+ * - The pipeline's own permits limit the count of batches, which are being hashed or waiting to be written. The producer blocks in {@link #addTask}
+ *   when there is no free permit, so it does not compute hashes for the whole dataset ahead. The permit is released once the batch is written
+ *   or once it failed in any stage
+ * - The hashing thread hands off the batch with {@link ExecutorHelper#addTask}, so it blocks there when the writers are bounded by "max-tasks-in-flight"
+ *   and all of their permits are taken
+ */
+public class PasswordHashingPipeline {
+
+    protected static final Logger logger = Logger.getLogger(PasswordHashingPipeline.class);
+
+    private final ExecutorService hashingExecutor;
+    private final ExecutorHelper writers;
+    private final Semaphore inFlight;
+
+    // Same like in the ExecutorHelper, the hashing tasks are tracked by the counter instead of keeping their futures
+    private final AtomicInteger hashingInProgress = new AtomicInteger();
+    private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+    // Notified when the count of hashing tasks in progress drops to 0
+    private final Object hashingFinished = new Object();
+
+    /**
+     * @param hashingThreadsCount count of threads of the CPU-bound stage
+     * @param queueSize max count of batches, which are already hashed and waiting for the DB writers
+     * @param writers executor used for the DB-writer stage
+     */
+    public PasswordHashingPipeline(int hashingThreadsCount, int queueSize, ExecutorHelper writers) {
+        this.hashingExecutor = Executors.newFixedThreadPool(hashingThreadsCount);
+        this.writers = writers;
+        this.inFlight = new Semaphore(hashingThreadsCount + queueSize);
+    }
+
+
+    public <T> void addTask(Supplier<T> hashingTask, BiConsumer<KeycloakSession, T> writerTask) {
+        addTask(hashingTask, writerTask, null);
+    }
+
+
+    public <T> void addTask(Supplier<T> hashingTask, BiConsumer<KeycloakSession, T> writerTask, ExecutorHelper.TransactionListener writerListener) {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ie);
+        }
+
+        hashingInProgress.incrementAndGet();
+        try {
+            hashingExecutor.execute(() -> {
+                // Once the writer task is submitted, it is responsible for releasing the permit
+                boolean handedOff = false;
+                try {
+                    T hashed = hashingTask.get();
+                    writers.addTask(session -> {
+                        try {
+                            writerTask.accept(session, hashed);
+                        } finally {
+                            inFlight.release();
+                        }
+                    }, writerListener);
+                    handedOff = true;
+                } catch (Throwable t) {
+                    taskFailed(t);
+                } finally {
+                    if (!handedOff) {
+                        inFlight.release();
+                    }
+                    hashingTaskFinished();
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            inFlight.release();
+            hashingTaskFinished();
+            throw ree;
+        }
+    }
+
+    // Failures of the hashing stage (or of the handoff to the writers) are re-thrown from waitForAllToFinish
+    private void taskFailed(Throwable t) {
+        if (firstFailure.compareAndSet(null, t)) {
+            logger.error("Hashing task failed. Remaining tasks will still be executed", t);
+        } else {
+            logger.errorf("Hashing task failed: %s", t.getMessage());
+        }
+    }
+
+    private void hashingTaskFinished() {
+        if (hashingInProgress.decrementAndGet() == 0) {
+            synchronized (hashingFinished) {
+                hashingFinished.notifyAll();
+            }
+        }
+    }
+
+
+    /**
+     * Wait until all the batches pass both stages. Writer tasks are added to the {@link ExecutorHelper} only after the corresponding
+     * hashing task finished, so it is needed to wait for the hashing stage first. Writers are waited for even if some hashing task failed,
+     * so that no batch is still being written when the caller cleans up
+     */
+    public void waitForAllToFinish() {
+        synchronized (hashingFinished) {
+            while (hashingInProgress.get() > 0) {
+                try {
+                    hashingFinished.wait();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(ie);
+                }
+            }
+        }
+
+        writers.waitForAllToFinish();
+
+        Throwable failure = firstFailure.get();
+        if (failure != null) {
+            throw new RuntimeException(failure);
+        }
+    }
+
+    public void shutDown() {
+        hashingExecutor.shutdown();
+    }
+}
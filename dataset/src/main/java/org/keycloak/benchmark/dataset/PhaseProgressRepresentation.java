@@ -0,0 +1,151 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.keycloak.benchmark.dataset;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Progress of single phase of the task (EG. creating clients or creating users) as returned by the status endpoint
+ */
+public class PhaseProgressRepresentation {
+
+    @JsonProperty("phase")
+    private String phase;
+
+    @JsonProperty("completed")
+    private long completed;
+
+    @JsonProperty("total")
+    private long total;
+
+    // Entities per second since the previous update of the status
+    @JsonProperty("current-per-second")
+    private double currentPerSecond;
+
+    // Entities per second since the start of the phase
+    @JsonProperty("average-per-second")
+    private double averagePerSecond;
+
+    // Estimated remaining seconds to finish the phase based on the average throughput. It is -1 if it cannot be estimated yet
+    @JsonProperty("eta-seconds")
+    private long etaSeconds;
+
+    @JsonProperty("batches")
+    private long batches;
+
+    @JsonProperty("failed-batches")
+    private long failedBatches;
+
+    // Percentiles of the latency of the batch transactions in milliseconds
+    @JsonProperty("latency-p50-ms")
+    private long latencyP50;
+
+    @JsonProperty("latency-p95-ms")
+    private long latencyP95;
+
+    @JsonProperty("latency-p99-ms")
+    private long latencyP99;
+
+    public String getPhase() {
+        return phase;
+    }
+
+    public void setPhase(String phase) {
+        this.phase = phase;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(long completed) {
+        this.completed = completed;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public double getCurrentPerSecond() {
+        return currentPerSecond;
+    }
+
+    public void setCurrentPerSecond(double currentPerSecond) {
+        this.currentPerSecond = currentPerSecond;
+    }
+
+    public double getAveragePerSecond() {
+        return averagePerSecond;
+    }
+
+    public void setAveragePerSecond(double averagePerSecond) {
+        this.averagePerSecond = averagePerSecond;
+    }
+
+    public long getEtaSeconds() {
+        return etaSeconds;
+    }
+
+    public void setEtaSeconds(long etaSeconds) {
+        this.etaSeconds = etaSeconds;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    public void setBatches(long batches) {
+        this.batches = batches;
+    }
+
+    public long getFailedBatches() {
+        return failedBatches;
+    }
+
+    public void setFailedBatches(long failedBatches) {
+        this.failedBatches = failedBatches;
+    }
+
+    public long getLatencyP50() {
+        return latencyP50;
+    }
+
+    public void setLatencyP50(long latencyP50) {
+        this.latencyP50 = latencyP50;
+    }
+
+    public long getLatencyP95() {
+        return latencyP95;
+    }
+
+    public void setLatencyP95(long latencyP95) {
+        this.latencyP95 = latencyP95;
+    }
+
+    public long getLatencyP99() {
+        return latencyP99;
+    }
+
+    public void setLatencyP99(long latencyP99) {
+        this.latencyP99 = latencyP99;
+    }
+}
@@ -19,8 +19,8 @@
 package org.keycloak.benchmark.dataset;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.keycloak.benchmark.dataset.config.DatasetConfig;
 import org.keycloak.models.ClientModel;
@@ -28,12 +28,14 @@ import org.keycloak.models.GroupModel;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.RoleModel;
 import org.keycloak.models.UserModel;
+import org.keycloak.models.credential.PasswordCredentialModel;
 
 /**
  * Collection of objects, which were created and are related to the particular realm. This collection is "maintained" here to avoid
  * DB lookups as much as possible...
  *
- * Caller should expect that many model instances obtained here should NOT be used for WRITE as they might be loaded to different transaction.
+ * Just the IDs of roles and groups needed for the assignment to the users are kept here. Created clients and users are just counted, so that the memory
+ * does not grow with the count of created entities and the model instances from already closed transactions are not retained.
  *
  * @author <a href="mailto:mposolda@redhat.com">Marek Posolda</a>
  */
@@ -43,25 +45,75 @@ public class RealmContext {
 
     private RealmModel realm;
 
-    private List<ClientModel> clients = Collections.synchronizedList(new ArrayList<>());
+    private final LongAdder clientsCount = new LongAdder();
 
-    private List<RoleModel> realmRoles = new ArrayList<>();
+    private final LongAdder clientRolesCount = new LongAdder();
 
-    // All client roles of all clients
-    private List<RoleModel> clientRoles = Collections.synchronizedList(new ArrayList<>());
+    private final LongAdder usersCount = new LongAdder();
 
-    private List<GroupModel> groups = new ArrayList<>();
+    private final LongAdder realmRolesCount = new LongAdder();
 
-    private final List<UserModel> users = Collections.synchronizedList(new ArrayList<>());
+    private final LongAdder groupsCount = new LongAdder();
+
+    // Realm roles and groups are created concurrently by multiple transactions, so they are just counted. IDs are filled once they are all created
+    private List<String> realmRoleIds = new ArrayList<>();
+
+    // Client roles of the first clients, which are assigned to the users
+    private List<String> clientRoleIds = new ArrayList<>();
+
+    private List<String> groupIds = new ArrayList<>();
+
+    // Password hashed just once and shared by all the users. Filled just for "password-hash-mode" with the value "shared-salt"
+    private PasswordCredentialModel sharedPassword;
+
+    // Used by the "bulk" users engine to write whole users and by the "orm" engine with "batched-assignments" to write role mappings and group memberships.
+    // It is null for the "orm" engine without "batched-assignments" or if the datasource is not available. Default roles and groups are used by both engines:
+    // the "bulk" engine assigns them directly by the writer and the "orm" engine skips them as they were already assigned by the UserProvider.
+    // Default required actions are used just by the "bulk" engine
+    private BulkUserWriter bulkUserWriter;
+
+    private List<String> defaultRoleIds = new ArrayList<>();
+
+    private List<String> defaultGroupIds = new ArrayList<>();
+
+    private List<String> defaultRequiredActions = new ArrayList<>();
+
+    private final IndexDistribution realmRolesDistribution;
+
+    private final IndexDistribution clientRolesDistribution;
+
+    private final IndexDistribution groupsDistribution;
+
+    private final GroupHierarchy groupHierarchy;
 
     public RealmContext(DatasetConfig config) {
         this.config = config;
+        this.realmRolesDistribution = IndexDistribution.parse(config.getRealmRolesDistribution());
+        this.clientRolesDistribution = IndexDistribution.parse(config.getClientRolesDistribution());
+        this.groupsDistribution = IndexDistribution.parse(config.getGroupsDistribution());
+        this.groupHierarchy = GroupHierarchy.fromConfig(config);
     }
 
     public DatasetConfig getConfig() {
         return config;
     }
 
+    public IndexDistribution getRealmRolesDistribution() {
+        return realmRolesDistribution;
+    }
+
+    public IndexDistribution getClientRolesDistribution() {
+        return clientRolesDistribution;
+    }
+
+    public IndexDistribution getGroupsDistribution() {
+        return groupsDistribution;
+    }
+
+    public GroupHierarchy getGroupHierarchy() {
+        return groupHierarchy;
+    }
+
     public RealmModel getRealm() {
         return realm;
     }
@@ -71,58 +123,106 @@ public class RealmContext {
     }
 
     public void clientCreated(ClientModel client) {
-        clients.add(client);
+        clientsCount.increment();
     }
 
-    public List<ClientModel> getClients() {
-        return clients;
+    public long getClientsCount() {
+        return clientsCount.sum();
     }
 
-    public void setClients(List<ClientModel> clients) {
-        this.clients = Collections.synchronizedList(clients);
+    public void realmRoleCreated(RoleModel role) {
+        realmRolesCount.increment();
     }
 
-    public void realmRoleCreated(RoleModel role) {
-        realmRoles.add(role);
+    public long getRealmRolesCount() {
+        return realmRolesCount.sum();
     }
 
-    public List<RoleModel> getRealmRoles() {
-        return realmRoles;
+    public List<String> getRealmRoleIds() {
+        return realmRoleIds;
     }
 
-    public void setRealmRoles(List<RoleModel> realmRoles) {
-        this.realmRoles = realmRoles;
+    public void setRealmRoleIds(List<String> realmRoleIds) {
+        this.realmRoleIds = realmRoleIds;
     }
 
     public void clientRoleCreated(ClientModel client, RoleModel clientRole) {
-        this.clientRoles.add(clientRole);
+        clientRolesCount.increment();
+    }
+
+    public long getClientRolesCount() {
+        return clientRolesCount.sum();
     }
 
-    public List<RoleModel> getClientRoles() {
-        return clientRoles;
+    public List<String> getClientRoleIds() {
+        return clientRoleIds;
     }
 
-    public void setClientRoles(List<RoleModel> clientRoles) {
-        this.clientRoles = Collections.synchronizedList(clientRoles);
+    public void setClientRoleIds(List<String> clientRoleIds) {
+        this.clientRoleIds = clientRoleIds;
     }
 
     public void groupCreated(GroupModel group) {
-        groups.add(group);
+        groupsCount.increment();
+    }
+
+    public long getGroupsCount() {
+        return groupsCount.sum();
     }
 
-    public List<GroupModel> getGroups() {
-        return groups;
+    public List<String> getGroupIds() {
+        return groupIds;
     }
 
-    public void setGroups(List<GroupModel> groups) {
-        this.groups = groups;
+    public void setGroupIds(List<String> groupIds) {
+        this.groupIds = groupIds;
     }
 
     public void userCreated(UserModel user) {
-        this.users.add(user);
+        usersCount.increment();
+    }
+
+    public long getUsersCount() {
+        return usersCount.sum();
+    }
+
+    public PasswordCredentialModel getSharedPassword() {
+        return sharedPassword;
+    }
+
+    public void setSharedPassword(PasswordCredentialModel sharedPassword) {
+        this.sharedPassword = sharedPassword;
+    }
+
+    public BulkUserWriter getBulkUserWriter() {
+        return bulkUserWriter;
+    }
+
+    public void setBulkUserWriter(BulkUserWriter bulkUserWriter) {
+        this.bulkUserWriter = bulkUserWriter;
+    }
+
+    public List<String> getDefaultRoleIds() {
+        return defaultRoleIds;
+    }
+
+    public void setDefaultRoleIds(List<String> defaultRoleIds) {
+        this.defaultRoleIds = defaultRoleIds;
+    }
+
+    public List<String> getDefaultGroupIds() {
+        return defaultGroupIds;
+    }
+
+    public void setDefaultGroupIds(List<String> defaultGroupIds) {
+        this.defaultGroupIds = defaultGroupIds;
+    }
+
+    public List<String> getDefaultRequiredActions() {
+        return defaultRequiredActions;
     }
 
-    public List<UserModel> getUsers() {
-        return users;
+    public void setDefaultRequiredActions(List<String> defaultRequiredActions) {
+        this.defaultRequiredActions = defaultRequiredActions;
     }
 }
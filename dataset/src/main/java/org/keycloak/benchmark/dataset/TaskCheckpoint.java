@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.keycloak.benchmark.dataset;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Checkpoint of the task stored in the work cache. It contains the ranges of entities, which were already committed to the DB and the original configuration
+ * of the task, so that the task can be resumed later and create just the missing entities.
+ */
+public class TaskCheckpoint {
+
+    // Endpoint of the task. For example "create-users"
+    @JsonProperty("operation")
+    private String operation;
+
+    @JsonProperty("realm-name")
+    private String realmName;
+
+    // Index of the first entity created by the task
+    @JsonProperty("start")
+    private int start;
+
+    // Index after the last entity created by the task
+    @JsonProperty("end")
+    private int end;
+
+    // Query parameters sent to the endpoint when the task was triggered
+    @JsonProperty("query-parameters")
+    private Map<String, String> queryParameters = new HashMap<>();
+
+    @JsonProperty("committed")
+    private List<IndexRange> committed = new LinkedList<>();
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    public String getRealmName() {
+        return realmName;
+    }
+
+    public void setRealmName(String realmName) {
+        this.realmName = realmName;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public void setStart(int start) {
+        this.start = start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public void setEnd(int end) {
+        this.end = end;
+    }
+
+    public Map<String, String> getQueryParameters() {
+        return queryParameters;
+    }
+
+    public void setQueryParameters(Map<String, String> queryParameters) {
+        this.queryParameters = queryParameters;
+    }
+
+    public List<IndexRange> getCommitted() {
+        return committed;
+    }
+
+    public void setCommitted(List<IndexRange> committed) {
+        this.committed = committed;
+    }
+}
@@ -18,15 +18,20 @@
 
 package org.keycloak.benchmark.dataset;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.infinispan.Cache;
+import org.infinispan.client.hotrod.Flag;
 import org.infinispan.client.hotrod.RemoteCache;
 import org.infinispan.commons.api.BasicCache;
 import org.jboss.logging.Logger;
 import org.keycloak.connections.infinispan.InfinispanConnectionProvider;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.sessions.infinispan.util.InfinispanUtil;
+import org.keycloak.util.JsonSerialization;
 
 /**
  * Management of executed tasks and making sure that there won't be multiple tasks in progress (EG. there is not creation of 1000 realms triggered accidentally 2 times)
@@ -35,16 +40,44 @@ import org.keycloak.models.sessions.infinispan.util.InfinispanUtil;
  */
 public class TaskManager {
 
+    public static final String PARTITION_SUCCESS = "success";
+    public static final String PARTITION_FAILED = "failed";
+
+    private final InfinispanConnectionProvider infinispan;
+
     private final BasicCache<String, String> workCache;
 
+    // Operations like putIfAbsent or remove return the previous value from the remote cache just if it is explicitly requested
+    private final BasicCache<String, String> workCacheWithReturnValues;
+
     private final String KEY = "dataset_task";
 
+    private final String PROGRESS_KEY = "dataset_task_progress";
+
+    private final String CHECKPOINT_KEY_PREFIX = "dataset_checkpoint_";
+
+    private final String DISTRIBUTED_TASK_KEY = "dataset_distributed_task";
+
+    private final String PARTITION_CLAIM_KEY_PREFIX = "dataset_partition_claim_";
+
+    private final String PARTITION_LEASE_KEY_PREFIX = "dataset_partition_lease_";
+
+    private final String PARTITION_RESULT_KEY_PREFIX = "dataset_partition_result_";
+
+    private final String NODE_KEY_PREFIX = "dataset_distributed_node_";
+
+    private final String NODE_PROGRESS_KEY_PREFIX = "dataset_distributed_node_progress_";
+
+    private final String NEXT_INDEX_KEY_PREFIX = "dataset_next_index_";
+
     protected static final Logger logger = Logger.getLogger(TaskManager.class);
 
     public TaskManager(KeycloakSession session) {
-        Cache workCache = session.getProvider(InfinispanConnectionProvider.class).getCache(InfinispanConnectionProvider.WORK_CACHE_NAME);
+        this.infinispan = session.getProvider(InfinispanConnectionProvider.class);
+        Cache workCache = infinispan.getCache(InfinispanConnectionProvider.WORK_CACHE_NAME);
         RemoteCache<String, String> remoteCache = InfinispanUtil.getRemoteCache(workCache);
         this.workCache = (remoteCache == null) ? workCache : remoteCache;
+        this.workCacheWithReturnValues = (remoteCache == null) ? workCache : remoteCache.withFlags(Flag.FORCE_RETURN_VALUE);
     }
 
     public String getExistingTask() {
@@ -53,12 +86,244 @@ public class TaskManager {
 
     public String addTaskIfNotInProgress(TimerLogger task, int taskTimeoutInSeconds) {
         String str = task.toString();
-        String existing = workCache.putIfAbsent(KEY, str, taskTimeoutInSeconds, TimeUnit.SECONDS);
+        String existing = workCacheWithReturnValues.putIfAbsent(KEY, str, taskTimeoutInSeconds, TimeUnit.SECONDS);
         return existing;
     }
 
+    public void updateTaskProgress(TaskProgressRepresentation progress, int taskTimeoutInSeconds) {
+        try {
+            workCache.put(PROGRESS_KEY, JsonSerialization.writeValueAsString(progress), taskTimeoutInSeconds, TimeUnit.SECONDS);
+        } catch (IOException ioe) {
+            throw new RuntimeException(ioe);
+        }
+    }
+
+    public TaskProgressRepresentation getTaskProgress() {
+        String progress = workCache.get(PROGRESS_KEY);
+        if (progress == null) {
+            return null;
+        }
+
+        try {
+            return JsonSerialization.readValue(progress, TaskProgressRepresentation.class);
+        } catch (IOException ioe) {
+            logger.warnf(ioe, "Failed to parse the progress of the task");
+            return null;
+        }
+    }
+
+    // Checkpoints are not expired as they are needed until the task is successfully resumed
+    public void saveCheckpoint(TaskCheckpoint checkpoint) {
+        try {
+            workCache.put(getCheckpointKey(checkpoint.getOperation(), checkpoint.getRealmName()), JsonSerialization.writeValueAsString(checkpoint));
+        } catch (IOException ioe) {
+            throw new RuntimeException(ioe);
+        }
+    }
+
+    public TaskCheckpoint getCheckpoint(String operation, String realmName) {
+        String checkpoint = workCache.get(getCheckpointKey(operation, realmName));
+        if (checkpoint == null) {
+            return null;
+        }
+
+        try {
+            return JsonSerialization.readValue(checkpoint, TaskCheckpoint.class);
+        } catch (IOException ioe) {
+            throw new RuntimeException(ioe);
+        }
+    }
+
+    public void removeCheckpoint(String operation, String realmName) {
+        workCache.remove(getCheckpointKey(operation, realmName));
+    }
+
+    private String getCheckpointKey(String operation, String realmName) {
+        return CHECKPOINT_KEY_PREFIX + operation + "_" + realmName;
+    }
+
+    /**
+     * @return next free index of the entities with the given key (see {@link NextIndexTracker}) or null if it was not yet saved
+     */
+    public Integer getNextFreeIndex(String entityKey) {
+        String nextFreeIndex = workCache.get(NEXT_INDEX_KEY_PREFIX + entityKey);
+        return nextFreeIndex == null ? null : Integer.valueOf(nextFreeIndex);
+    }
+
+    // Next free indexes are not expired as they are valid as long as the entities exist
+    public void setNextFreeIndex(String entityKey, int nextFreeIndex) {
+        workCache.put(NEXT_INDEX_KEY_PREFIX + entityKey, String.valueOf(nextFreeIndex));
+    }
+
+    /**
+     * Update the next free index just if the given index is bigger than the saved one, so the concurrent updates (EG. from multiple cluster nodes) never move it back
+     */
+    public void updateNextFreeIndex(String entityKey, int nextFreeIndex) {
+        String key = NEXT_INDEX_KEY_PREFIX + entityKey;
+        String newValue = String.valueOf(nextFreeIndex);
+        while (true) {
+            String existing = workCache.get(key);
+            if (existing == null) {
+                if (workCacheWithReturnValues.putIfAbsent(key, newValue) == null) {
+                    return;
+                }
+            } else if (Integer.parseInt(existing) >= nextFreeIndex || workCache.replace(key, existing, newValue)) {
+                return;
+            }
+        }
+    }
+
+    public String getNodeName() {
+        return infinispan.getTopologyInfo().getMyNodeName();
+    }
+
+    public void publishDistributedTask(DistributedTask task, int taskTimeoutInSeconds) {
+        try {
+            workCache.put(DISTRIBUTED_TASK_KEY, JsonSerialization.writeValueAsString(task), taskTimeoutInSeconds, TimeUnit.SECONDS);
+        } catch (IOException ioe) {
+            throw new RuntimeException(ioe);
+        }
+    }
+
+    public DistributedTask getDistributedTask() {
+        String task = workCache.get(DISTRIBUTED_TASK_KEY);
+        if (task == null) {
+            return null;
+        }
+
+        try {
+            return JsonSerialization.readValue(task, DistributedTask.class);
+        } catch (IOException ioe) {
+            logger.warnf(ioe, "Failed to parse the distributed task");
+            return null;
+        }
+    }
+
+    /**
+     * Claim the partition and acquire its lease. The lease needs to be renewed by {@link #renewPartitionLease} until the partition is finished.
+     * The claim is never expired before the task, so that the partition is never processed twice even if the lease of the claiming node expired.
+     * Partitions of the failed nodes are not claimed again, they need to be created by resuming the task
+     *
+     * @return true if the partition was claimed by the given node. False if it was already claimed by some other node
+     */
+    public boolean claimPartition(String taskId, int partition, String nodeName, int leaseInSeconds, int taskTimeoutInSeconds) {
+        if (workCacheWithReturnValues.putIfAbsent(PARTITION_CLAIM_KEY_PREFIX + taskId + "_" + partition, nodeName, taskTimeoutInSeconds, TimeUnit.SECONDS) != null) {
+            return false;
+        }
+        workCache.put(PARTITION_LEASE_KEY_PREFIX + taskId + "_" + partition, nodeName, leaseInSeconds, TimeUnit.SECONDS);
+        return true;
+    }
+
+    /**
+     * Renew the lease just if the partition is claimed by the given node, so that no other node can hide the expired lease of the claiming node
+     *
+     * @return true if the lease was renewed
+     */
+    public boolean renewPartitionLease(String taskId, int partition, String nodeName, int leaseInSeconds) {
+        if (!nodeName.equals(workCache.get(PARTITION_CLAIM_KEY_PREFIX + taskId + "_" + partition))) {
+            return false;
+        }
+        workCache.put(PARTITION_LEASE_KEY_PREFIX + taskId + "_" + partition, nodeName, leaseInSeconds, TimeUnit.SECONDS);
+        return true;
+    }
+
+    /**
+     * @return true if the partition was claimed by some node, but its lease expired. It means that the claiming node failed or was stopped and the partition will never be finished.
+     * Lease is written right after the claim, so the caller should see the partition abandoned repeatedly before relying on it
+     */
+    public boolean isPartitionAbandoned(String taskId, int partition) {
+        return workCache.get(PARTITION_CLAIM_KEY_PREFIX + taskId + "_" + partition) != null
+                && workCache.get(PARTITION_LEASE_KEY_PREFIX + taskId + "_" + partition) == null;
+    }
+
+    public void partitionFinished(String taskId, int partition, boolean success, int taskTimeoutInSeconds) {
+        workCache.put(PARTITION_RESULT_KEY_PREFIX + taskId + "_" + partition, success ? PARTITION_SUCCESS : PARTITION_FAILED, taskTimeoutInSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return result of the partition or null if the partition is not yet finished
+     */
+    public String getPartitionResult(String taskId, int partition) {
+        return workCache.get(PARTITION_RESULT_KEY_PREFIX + taskId + "_" + partition);
+    }
+
+    /**
+     * Register the node as a participant of the distributed task. Nodes are registered under the sequential slots, so that they can be listed without iterating the cache
+     *
+     * @return slot of the node
+     */
+    public int joinDistributedTask(String taskId, String nodeName, int taskTimeoutInSeconds) {
+        for (int slot = 0; ; slot++) {
+            String existing = workCacheWithReturnValues.putIfAbsent(NODE_KEY_PREFIX + taskId + "_" + slot, nodeName, taskTimeoutInSeconds, TimeUnit.SECONDS);
+            if (existing == null || existing.equals(nodeName)) {
+                return slot;
+            }
+        }
+    }
+
+    public void updateNodeProgress(String taskId, int slot, TaskProgressRepresentation progress, int taskTimeoutInSeconds) {
+        try {
+            workCache.put(NODE_PROGRESS_KEY_PREFIX + taskId + "_" + slot, JsonSerialization.writeValueAsString(progress), taskTimeoutInSeconds, TimeUnit.SECONDS);
+        } catch (IOException ioe) {
+            throw new RuntimeException(ioe);
+        }
+    }
+
+    /**
+     * @return progress of the distributed task aggregated from the progress of all the participating cluster nodes
+     */
+    public TaskProgressRepresentation getDistributedTaskProgress(DistributedTask task) {
+        List<TaskProgressRepresentation> nodesProgress = new ArrayList<>();
+        for (int slot = 0; workCache.get(NODE_KEY_PREFIX + task.getId() + "_" + slot) != null; slot++) {
+            String progress = workCache.get(NODE_PROGRESS_KEY_PREFIX + task.getId() + "_" + slot);
+            if (progress != null) {
+                try {
+                    nodesProgress.add(JsonSerialization.readValue(progress, TaskProgressRepresentation.class));
+                } catch (IOException ioe) {
+                    logger.warnf(ioe, "Failed to parse the progress of the node in the slot %d", slot);
+                }
+            }
+        }
+
+        TaskProgressRepresentation rep = TaskProgress.aggregate(nodesProgress);
+
+        // Nodes know just about the partitions they already claimed
+        for (PhaseProgressRepresentation phase : rep.getPhases()) {
+            if (phase.getPhase().equals(task.getEntitiesPhase())) {
+                phase.setTotal(task.getEnd() - task.getStart());
+            }
+        }
+
+        PhaseProgressRepresentation partitions = new PhaseProgressRepresentation();
+        partitions.setPhase(TaskProgress.PHASE_PARTITIONS);
+        partitions.setTotal(task.getPartitionsCount());
+        for (int partition = 0; partition < task.getPartitionsCount(); partition++) {
+            String result = getPartitionResult(task.getId(), partition);
+            if (PARTITION_SUCCESS.equals(result)) {
+                partitions.setCompleted(partitions.getCompleted() + 1);
+            } else if (PARTITION_FAILED.equals(result)) {
+                partitions.setFailedBatches(partitions.getFailedBatches() + 1);
+            }
+        }
+        rep.getPhases().add(0, partitions);
+        return rep;
+    }
+
+    public void removeDistributedTask(DistributedTask task) {
+        workCache.remove(DISTRIBUTED_TASK_KEY);
+        for (int partition = 0; partition < task.getPartitionsCount(); partition++) {
+            workCache.remove(PARTITION_CLAIM_KEY_PREFIX + task.getId() + "_" + partition);
+            workCache.remove(PARTITION_LEASE_KEY_PREFIX + task.getId() + "_" + partition);
+            workCache.remove(PARTITION_RESULT_KEY_PREFIX + task.getId() + "_" + partition);
+        }
+        for (int slot = 0; workCacheWithReturnValues.remove(NODE_KEY_PREFIX + task.getId() + "_" + slot) != null; slot++) {
+            workCache.remove(NODE_PROGRESS_KEY_PREFIX + task.getId() + "_" + slot);
+        }
+    }
+
     public void removeExistingTask(boolean successfullyFinished) {
-        String existing = this.workCache.remove(KEY);
+        this.workCache.remove(PROGRESS_KEY);
+        String existing = this.workCacheWithReturnValues.remove(KEY);
         if (existing != null && successfullyFinished) {
             logger.info("FINISHED TASK: " + existing);
         }
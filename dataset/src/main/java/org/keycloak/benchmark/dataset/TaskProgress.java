@@ -0,0 +1,242 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.dataset;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.jboss.logging.Logger;
+import org.keycloak.common.util.Time;
+
+/**
+ * Tracks the progress of the task in progress split to the phases (EG. creating realms, clients, users). Progress is periodically published
+ * to the work cache through the {@link TaskManager}, so it is available from the status endpoint on all the cluster nodes.
+ */
+public class TaskProgress {
+
+    protected static final Logger logger = Logger.getLogger(TaskProgress.class);
+
+    public static final String PHASE_REALMS = "realms";
+    public static final String PHASE_ROLES_AND_GROUPS = "roles-and-groups";
+    public static final String PHASE_CLIENT_SCOPES = "client-scopes";
+    public static final String PHASE_CLIENTS = "clients";
+    public static final String PHASE_COMPOSITE_ROLES = "composite-roles";
+    public static final String PHASE_CACHING = "caching";
+    public static final String PHASE_USERS = "users";
+    public static final String PHASE_EVENTS = "events";
+    public static final String PHASE_OFFLINE_SESSIONS = "offline-sessions";
+    public static final String PHASE_ONLINE_SESSIONS = "online-sessions";
+    public static final String PHASE_AUTHZ = "authz";
+    public static final String PHASE_USERS_REMOVAL = "users-removal";
+    public static final String PHASE_REALMS_REMOVAL = "realms-removal";
+    public static final String PHASE_PARTITIONS = "partitions";
+
+    // Don't update the work cache more often than this
+    private static final long PUBLISH_INTERVAL_MS = 2000;
+
+    private final Consumer<TaskProgressRepresentation> publisher;
+    private final Map<String, PhaseProgress> phases = new LinkedHashMap<>();
+    private final AtomicLong lastPublishTime = new AtomicLong(0);
+
+    public TaskProgress(TaskManager taskManager, int taskTimeoutInSeconds) {
+        this(rep -> taskManager.updateTaskProgress(rep, taskTimeoutInSeconds));
+    }
+
+    /**
+     * @param publisher used to publish the progress. For example to publish the progress of single cluster node processing the partitions of the distributed task
+     */
+    public TaskProgress(Consumer<TaskProgressRepresentation> publisher) {
+        this.publisher = publisher;
+    }
+
+    /**
+     * Register the phase or return the already registered phase with the given name
+     *
+     * @param name name of the phase
+     * @param total count of entities expected to be created in this phase
+     */
+    public synchronized PhaseProgress phase(String name, long total) {
+        return phases.computeIfAbsent(name, phaseName -> new PhaseProgress(phaseName, total));
+    }
+
+    public void publishIfNeeded() {
+        long now = Time.currentTimeMillis();
+        long lastPublish = lastPublishTime.get();
+        if (now - lastPublish >= PUBLISH_INTERVAL_MS && lastPublishTime.compareAndSet(lastPublish, now)) {
+            publish();
+        }
+    }
+
+    public void publish() {
+        try {
+            publisher.accept(toRepresentation());
+        } catch (RuntimeException re) {
+            // Failure to publish the progress should not fail the task itself
+            logger.warnf(re, "Failed to publish the progress of the task");
+        }
+    }
+
+    public synchronized TaskProgressRepresentation toRepresentation() {
+        TaskProgressRepresentation rep = new TaskProgressRepresentation();
+        rep.setUpdated(new Date(Time.currentTimeMillis()).toString());
+        List<PhaseProgressRepresentation> phaseReps = new ArrayList<>();
+        for (PhaseProgress phase : phases.values()) {
+            phaseReps.add(phase.toRepresentation());
+        }
+        rep.setPhases(phaseReps);
+        return rep;
+    }
+
+    /**
+     * Sum the progress of the cluster nodes processing the same distributed task. Latencies are the maximum of the latencies reported by the nodes,
+     * so they are rather the upper bound than the exact percentiles
+     */
+    public static TaskProgressRepresentation aggregate(List<TaskProgressRepresentation> nodesProgress) {
+        Map<String, PhaseProgressRepresentation> phases = new LinkedHashMap<>();
+        for (TaskProgressRepresentation nodeProgress : nodesProgress) {
+            for (PhaseProgressRepresentation nodePhase : nodeProgress.getPhases()) {
+                PhaseProgressRepresentation phase = phases.computeIfAbsent(nodePhase.getPhase(), phaseName -> {
+                    PhaseProgressRepresentation rep = new PhaseProgressRepresentation();
+                    rep.setPhase(phaseName);
+                    return rep;
+                });
+                phase.setCompleted(phase.getCompleted() + nodePhase.getCompleted());
+                phase.setTotal(phase.getTotal() + nodePhase.getTotal());
+                phase.setBatches(phase.getBatches() + nodePhase.getBatches());
+                phase.setFailedBatches(phase.getFailedBatches() + nodePhase.getFailedBatches());
+                phase.setCurrentPerSecond(phase.getCurrentPerSecond() + nodePhase.getCurrentPerSecond());
+                phase.setAveragePerSecond(phase.getAveragePerSecond() + nodePhase.getAveragePerSecond());
+                phase.setLatencyP50(Math.max(phase.getLatencyP50(), nodePhase.getLatencyP50()));
+                phase.setLatencyP95(Math.max(phase.getLatencyP95(), nodePhase.getLatencyP95()));
+                phase.setLatencyP99(Math.max(phase.getLatencyP99(), nodePhase.getLatencyP99()));
+            }
+        }
+
+        for (PhaseProgressRepresentation phase : phases.values()) {
+            if (phase.getCompleted() >= phase.getTotal()) {
+                phase.setEtaSeconds(0);
+            } else if (phase.getAveragePerSecond() > 0) {
+                phase.setEtaSeconds((long) ((phase.getTotal() - phase.getCompleted()) / phase.getAveragePerSecond()));
+            } else {
+                phase.setEtaSeconds(-1);
+            }
+        }
+
+        TaskProgressRepresentation rep = new TaskProgressRepresentation();
+        rep.setUpdated(new Date(Time.currentTimeMillis()).toString());
+        rep.setPhases(new ArrayList<>(phases.values()));
+        return rep;
+    }
+
+
+    public class PhaseProgress {
+
+        private final String name;
+        private final AtomicLong total;
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder failedBatches = new LongAdder();
+        private final LatencyHistogram latencies = new LatencyHistogram();
+
+        // Start of the phase is the start of the first finished batch
+        private final AtomicLong startTime = new AtomicLong(0);
+
+        // Used to compute current throughput
+        private long lastCompleted = 0;
+        private long lastTime = 0;
+
+        private PhaseProgress(String name, long total) {
+            this.name = name;
+            this.total = new AtomicLong(total);
+        }
+
+        public void addToTotal(long count) {
+            total.addAndGet(count);
+        }
+
+        /**
+         * Record the batch transaction with the given count of entities
+         */
+        public void batchFinished(long entities, long durationMs, boolean success) {
+            startTime.compareAndSet(0, Time.currentTimeMillis() - durationMs);
+            batches.increment();
+            latencies.record(durationMs);
+            if (success) {
+                completed.add(entities);
+            } else {
+                failedBatches.increment();
+            }
+            publishIfNeeded();
+        }
+
+        /**
+         * @return listener to be notified when the transaction with the batch of given count of entities is finished
+         */
+        public ExecutorHelper.TransactionListener listener(long entities) {
+            return (durationMs, success) -> batchFinished(entities, durationMs, success);
+        }
+
+        public long getCompleted() {
+            return completed.sum();
+        }
+
+        private synchronized PhaseProgressRepresentation toRepresentation() {
+            long now = Time.currentTimeMillis();
+            long completedCount = completed.sum();
+            long totalCount = total.get();
+            long start = startTime.get();
+
+            PhaseProgressRepresentation rep = new PhaseProgressRepresentation();
+            rep.setPhase(name);
+            rep.setCompleted(completedCount);
+            rep.setTotal(totalCount);
+            rep.setBatches(batches.sum());
+            rep.setFailedBatches(failedBatches.sum());
+
+            double average = (start == 0 || now <= start) ? 0 : completedCount * 1000.0 / (now - start);
+            rep.setAveragePerSecond(average);
+            if (lastTime != 0 && now > lastTime) {
+                rep.setCurrentPerSecond((completedCount - lastCompleted) * 1000.0 / (now - lastTime));
+            } else {
+                rep.setCurrentPerSecond(average);
+            }
+            lastCompleted = completedCount;
+            lastTime = now;
+
+            if (completedCount >= totalCount) {
+                rep.setEtaSeconds(0);
+            } else if (average > 0) {
+                rep.setEtaSeconds((long) ((totalCount - completedCount) / average));
+            } else {
+                rep.setEtaSeconds(-1);
+            }
+
+            rep.setLatencyP50(latencies.getValueAtPercentile(50));
+            rep.setLatencyP95(latencies.getValueAtPercentile(95));
+            rep.setLatencyP99(latencies.getValueAtPercentile(99));
+            return rep;
+        }
+    }
+}
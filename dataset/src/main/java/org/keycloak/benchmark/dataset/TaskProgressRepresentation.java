@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.keycloak.benchmark.dataset;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Progress of the task in progress as returned by the status endpoint
+ */
+public class TaskProgressRepresentation {
+
+    // Time when this progress was computed
+    @JsonProperty("updated")
+    private String updated;
+
+    @JsonProperty("phases")
+    private List<PhaseProgressRepresentation> phases = new LinkedList<>();
+
+    public String getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(String updated) {
+        this.updated = updated;
+    }
+
+    public List<PhaseProgressRepresentation> getPhases() {
+        return phases;
+    }
+
+    public void setPhases(List<PhaseProgressRepresentation> phases) {
+        this.phases = phases;
+    }
+}
@@ -37,6 +37,9 @@ public class TaskResponse {
     @JsonProperty("task-status-url")
     private String taskStatusUrl;
 
+    @JsonProperty("progress")
+    private TaskProgressRepresentation progress;
+
     public TaskResponse() {
     }
 
@@ -59,12 +62,14 @@ public class TaskResponse {
         return new TaskResponse(null, "Task started successfully", taskMessage, taskStatusUrl);
     }
 
-    public static TaskResponse existingTaskStatus(String taskMessage) {
+    public static TaskResponse existingTaskStatus(String taskMessage, TaskProgressRepresentation progress) {
         if (taskMessage == null) {
             throw new IllegalStateException("Illegal to call with null argument");
         }
 
-        return new TaskResponse(null, "Task in progress", taskMessage, null);
+        TaskResponse response = new TaskResponse(null, "Task in progress", taskMessage, null);
+        response.setProgress(progress);
+        return response;
     }
 
     public static TaskResponse noTaskInProgress() {
@@ -107,4 +112,12 @@ public class TaskResponse {
     public void setTaskId(String taskId) {
         this.taskId = taskId;
     }
+
+    public TaskProgressRepresentation getProgress() {
+        return progress;
+    }
+
+    public void setProgress(TaskProgressRepresentation progress) {
+        this.progress = progress;
+    }
 }
@@ -22,6 +22,8 @@ import java.lang.reflect.Field;
 import java.util.Arrays;
 import java.util.function.Function;
 
+import javax.ws.rs.core.MultivaluedMap;
+
 import org.jboss.logging.Logger;
 import org.jboss.resteasy.spi.HttpRequest;
 
@@ -41,6 +43,17 @@ public class ConfigUtil {
      * @return
      */
     public static DatasetConfig createConfigFromQueryParams(HttpRequest httpRequest, DatasetOperation operation) {
+        return createConfigFromQueryParams(httpRequest.getUri().getQueryParameters(), operation);
+    }
+
+    /**
+     * Create the config class based on the query parameters and the defaults.
+     *
+     * @param queryParameters
+     * @param operation
+     * @return
+     */
+    public static DatasetConfig createConfigFromQueryParams(MultivaluedMap<String, String> queryParameters, DatasetOperation operation) {
         DatasetConfig config = new DatasetConfig();
 
         StringBuilder toString = new StringBuilder("DatasetConfig [ ");
@@ -51,13 +64,16 @@ public class ConfigUtil {
                 boolean applicable = Arrays.asList(qpf.operations()).contains(operation);
                 if (!applicable) continue;
 
-                String val = httpRequest.getUri().getQueryParameters().getFirst(qpf.paramName());
+                String val = queryParameters.getFirst(qpf.paramName());
                 if (val == null) {
                     if (qpf.required()) {
                         throw new DatasetException("Required parameter '" + qpf.paramName() + "' missing");
                     }
                     val = qpf.defaultValue();
                 }
+                if (qpf.allowedValues().length > 0 && !Arrays.asList(qpf.allowedValues()).contains(val)) {
+                    throw new DatasetException("Illegal value '" + val + "' of the parameter '" + qpf.paramName() + "'. Allowed values are " + Arrays.toString(qpf.allowedValues()));
+                }
                 f.setAccessible(true);
                 try {
                     f.set(config, val);
@@ -72,15 +88,21 @@ public class ConfigUtil {
                 boolean applicable = Arrays.asList(qpfInt.operations()).contains(operation);
                 if (!applicable) continue;
 
-                String valStr = httpRequest.getUri().getQueryParameters().getFirst(qpfInt.paramName());
+                String valStr = queryParameters.getFirst(qpfInt.paramName());
                 Integer val;
                 if (valStr == null) {
                     if (qpfInt.required()) {
                         throw new DatasetException("Required parameter '" + qpfInt.paramName() + "' missing");
                     }
                     val = qpfInt.defaultValue();
+                } else if (qpfInt.autoAllowed() && QueryParamIntFill.AUTO_VALUE.equals(valStr)) {
+                    val = QueryParamIntFill.AUTO;
                 } else {
-                    val = Integer.parseInt(valStr);
+                    try {
+                        val = Integer.parseInt(valStr);
+                    } catch (NumberFormatException nfe) {
+                        throw new DatasetException("Illegal value '" + valStr + "' of the parameter '" + qpfInt.paramName() + "'", nfe);
+                    }
                 }
                 f.setAccessible(true);
                 try {
@@ -88,7 +110,7 @@ public class ConfigUtil {
                 } catch (Exception e) {
                     throw new DatasetException("Failed to fill the field '" + qpfInt.paramName() +"'", e);
                 }
-                toString.append("\n " + qpfInt.paramName() + ": " + val);
+                toString.append("\n " + qpfInt.paramName() + ": " + (val == QueryParamIntFill.AUTO ? QueryParamIntFill.AUTO_VALUE : val));
             }
         }
         toString.append("\n]");
@@ -98,6 +120,25 @@ public class ConfigUtil {
     }
 
 
+    /**
+     * Find the first available index where the new entities can be created. The known free index (EG. saved by {@link org.keycloak.benchmark.dataset.NextIndexTracker})
+     * is verified with just 2 lookups. If it is not valid anymore (EG. entities were removed or created by some other way), fallback to probing.
+     *
+     * @param knownFreeIndex index, which is probably free. Can be null
+     * @param finder
+     * @return
+     */
+    public static int findFreeEntityIndex(Integer knownFreeIndex, Function<Integer, Boolean> finder) {
+        if (knownFreeIndex != null && knownFreeIndex > 0) {
+            if (finder.apply(knownFreeIndex - 1) && !finder.apply(knownFreeIndex)) {
+                return knownFreeIndex;
+            }
+            logger.debugf("Known free index %d is not valid. Fallback to probing", knownFreeIndex);
+        }
+
+        return findFreeEntityIndex(finder);
+    }
+
     /**
      * Find the first available index where the new entities can be created.
      *
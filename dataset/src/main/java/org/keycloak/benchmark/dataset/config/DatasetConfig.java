@@ -20,15 +20,18 @@ package org.keycloak.benchmark.dataset.config;
 
 import org.keycloak.credential.hash.Pbkdf2PasswordHashProviderFactory;
 
+import static org.keycloak.benchmark.dataset.config.DatasetOperation.CREATE_AUTHZ;
 import static org.keycloak.benchmark.dataset.config.DatasetOperation.CREATE_CLIENTS;
 import static org.keycloak.benchmark.dataset.config.DatasetOperation.CREATE_EVENTS;
 import static org.keycloak.benchmark.dataset.config.DatasetOperation.CREATE_OFFLINE_SESSIONS;
+import static org.keycloak.benchmark.dataset.config.DatasetOperation.CREATE_ONLINE_SESSIONS;
 import static org.keycloak.benchmark.dataset.config.DatasetOperation.CREATE_REALMS;
 import static org.keycloak.benchmark.dataset.config.DatasetOperation.CREATE_USERS;
 import static org.keycloak.benchmark.dataset.config.DatasetOperation.LAST_CLIENT;
 import static org.keycloak.benchmark.dataset.config.DatasetOperation.LAST_REALM;
 import static org.keycloak.benchmark.dataset.config.DatasetOperation.LAST_USER;
 import static org.keycloak.benchmark.dataset.config.DatasetOperation.REMOVE_REALMS;
+import static org.keycloak.benchmark.dataset.config.DatasetOperation.RESUME;
 
 /**
  * Configuration parameters, which can be send to the particular datasource operation. They can be send for example through HTTP request
@@ -38,9 +41,27 @@ import static org.keycloak.benchmark.dataset.config.DatasetOperation.REMOVE_REAL
  */
 public class DatasetConfig {
 
+    public static final String PASSWORD_HASH_MODE_PER_USER = "per-user";
+    public static final String PASSWORD_HASH_MODE_SHARED_SALT = "shared-salt";
+
+    public static final String EXECUTOR_MODE_THREADS = "threads";
+    public static final String EXECUTOR_MODE_VIRTUAL = "virtual";
+
+    public static final String USERS_ENGINE_ORM = "orm";
+    public static final String USERS_ENGINE_BULK = "bulk";
+
+    public static final String MAPPER_HARDCODED_CLAIM = "hardcoded-claim";
+    public static final String MAPPER_USER_ATTRIBUTE = "user-attribute";
+    public static final String MAPPER_GROUP_MEMBERSHIP = "group-membership";
+    public static final String MAPPER_AUDIENCE = "audience";
+
+    public static final String OPERATION_CREATE_CLIENTS = "create-clients";
+    public static final String OPERATION_CREATE_USERS = "create-users";
+    public static final String OPERATION_CREATE_OFFLINE_SESSIONS = "create-offline-sessions";
+
     // Used when creating many realms as a prefix. For example when prefix us "foo", we will create realms like "foo0", "foo1" etc.
     // For many events, it will need the realm prefix as events are created randomly in all the already created realms
-    @QueryParamFill(paramName = "realm-prefix", defaultValue = "realm-", operations = { CREATE_REALMS, CREATE_EVENTS, CREATE_OFFLINE_SESSIONS,
+    @QueryParamFill(paramName = "realm-prefix", defaultValue = "realm-", operations = { CREATE_REALMS, CREATE_EVENTS, CREATE_OFFLINE_SESSIONS, CREATE_ONLINE_SESSIONS,
             REMOVE_REALMS, LAST_REALM })
     private String realmPrefix;
 
@@ -56,34 +77,58 @@ public class DatasetConfig {
     @QueryParamIntFill(paramName = "last-to-remove", defaultValue = -1, operations = { REMOVE_REALMS })
     private Integer lastToRemove;
 
+    // If true, users of the removed realms are removed directly from the DB tables through the "bulk-datasource" before the realm itself is removed. It bypasses
+    // the Keycloak UserProvider. By default or if the datasource is not available, users are removed together with the realm in single transaction
+    @QueryParamFill(paramName = "bulk-users-removal", defaultValue = "false", operations = { REMOVE_REALMS })
+    private String bulkUsersRemoval;
+
+    // Count of users removed in every DB transaction before the realm itself is removed. Applicable just for "bulk-users-removal"
+    @QueryParamIntFill(paramName = "users-per-removal-transaction", defaultValue = 1000, operations = { REMOVE_REALMS })
+    private Integer usersPerRemovalTransaction;
+
     // Realm-name is required when creating many clients or users. The realm where clients/users will be created must already exists
-    @QueryParamFill(paramName = "realm-name",  required = true, operations = { CREATE_CLIENTS, CREATE_USERS, LAST_CLIENT, LAST_USER })
+    @QueryParamFill(paramName = "realm-name",  required = true, operations = { CREATE_CLIENTS, CREATE_USERS, CREATE_AUTHZ, LAST_CLIENT, LAST_USER, RESUME })
     private String realmName;
 
+    // Operation to be resumed in case of RESUME. Configuration of the resumed operation is the same as it was when the operation was triggered
+    @QueryParamFill(paramName = "operation", required = true, allowedValues = { OPERATION_CREATE_CLIENTS, OPERATION_CREATE_USERS }, operations = { RESUME })
+    private String resumedOperation;
+
     // NOTE: Start index is not available as parameter as it will be "auto-detected" based on already created realms (clients, users)
     private Integer start;
 
-    // Count of entities to be created. Entity is realm, client or user based on the operation
-    @QueryParamIntFill(paramName = "count", required = true, operations = { CREATE_REALMS, CREATE_CLIENTS, CREATE_USERS, CREATE_EVENTS, CREATE_OFFLINE_SESSIONS })
+    // NOTE: Not available as parameter. It is true when the task is resumed and hence some of the entities might already exist
+    private boolean resume;
+
+    // Count of entities to be created. Entity is realm, client or user based on the operation. In case of CREATE_AUTHZ, it is the count of clients turned to the resource servers
+    @QueryParamIntFill(paramName = "count", required = true, operations = { CREATE_REALMS, CREATE_CLIENTS, CREATE_USERS, CREATE_EVENTS, CREATE_OFFLINE_SESSIONS, CREATE_ONLINE_SESSIONS,
+            CREATE_AUTHZ })
     private Integer count;
 
     // Prefix for realm roles to create in every realm (in case of CREATE_REALMS) or to assign to users (in case of CREATE_USERS)
-    @QueryParamFill(paramName = "realm-role-prefix", defaultValue = "role-", operations = { CREATE_REALMS, CREATE_USERS })
+    @QueryParamFill(paramName = "realm-role-prefix", defaultValue = "role-", operations = { CREATE_REALMS, CREATE_USERS, CREATE_AUTHZ })
     private String realmRolePrefix;
 
     // Count of realm roles to be created in every created realm
     @QueryParamIntFill(paramName = "realm-roles-per-realm", defaultValue = 25, operations = { CREATE_REALMS })
     private Integer realmRolesPerRealm;
 
+    // Count of realm roles created in every DB transaction. Transactions with the roles of the same realm run concurrently
+    @QueryParamIntFill(paramName = "roles-per-transaction", defaultValue = 500, operations = { CREATE_REALMS })
+    private Integer rolesPerTransaction;
+
     // Prefix for newly created clients (in case of CREATE_REALMS and CREATE_CLIENTS). In case of CREATE_USERS it is used to find the clients with clientRoles, which will be assigned to users
-    @QueryParamFill(paramName = "client-prefix", defaultValue = "client-", operations = { CREATE_REALMS, CREATE_CLIENTS, CREATE_USERS, CREATE_OFFLINE_SESSIONS, LAST_CLIENT })
+    @QueryParamFill(paramName = "client-prefix", defaultValue = "client-", operations = { CREATE_REALMS, CREATE_CLIENTS, CREATE_USERS, CREATE_OFFLINE_SESSIONS, CREATE_ONLINE_SESSIONS,
+            CREATE_AUTHZ, LAST_CLIENT })
     private String clientPrefix;
 
-    @QueryParamIntFill(paramName = "clients-per-realm", defaultValue = 30, operations = { CREATE_REALMS })
+    // Count of clients to be created in every realm (In case of CREATE_REALMS). In case of CREATE_OFFLINE_SESSIONS and CREATE_ONLINE_SESSIONS, client sessions are spread
+    // over this count of clients
+    @QueryParamIntFill(paramName = "clients-per-realm", defaultValue = 30, operations = { CREATE_REALMS, CREATE_OFFLINE_SESSIONS, CREATE_ONLINE_SESSIONS })
     private Integer clientsPerRealm;
 
-    // Count of clients created in every DB transaction
-    @QueryParamIntFill(paramName = "clients-per-transaction", defaultValue = 10, operations = { CREATE_REALMS, CREATE_CLIENTS })
+    // Count of clients created in every DB transaction. Value "auto" means that count is adjusted at runtime based on the measured latency and throughput of transactions
+    @QueryParamIntFill(paramName = "clients-per-transaction", defaultValue = 10, autoAllowed = true, operations = { CREATE_REALMS, CREATE_CLIENTS })
     private Integer clientsPerTransaction;
 
     // Prefix of clientRoles to be created (in case of CREATE_REALMS and CREATE_CLIENTS). In case of CREATE_USERS it is used to find the clientRoles, which will be assigned to users
@@ -94,22 +139,141 @@ public class DatasetConfig {
     @QueryParamIntFill(paramName = "client-roles-per-client", defaultValue = 10, operations = { CREATE_REALMS, CREATE_CLIENTS })
     private Integer clientRolesPerClient;
 
+    // Prefix of the realm client scopes to be created (in case of CREATE_REALMS). In case of CREATE_CLIENTS it is used to find the client scopes attached to the clients
+    @QueryParamFill(paramName = "client-scope-prefix", defaultValue = "client-scope-", operations = { CREATE_REALMS, CREATE_CLIENTS })
+    private String clientScopePrefix;
+
+    // Count of realm client scopes to be created in every realm
+    @QueryParamIntFill(paramName = "client-scopes-per-realm", defaultValue = 0, operations = { CREATE_REALMS })
+    private Integer clientScopesPerRealm;
+
+    // Count of client scopes created in every DB transaction. Transactions with the client scopes of the same realm run concurrently
+    @QueryParamIntFill(paramName = "client-scopes-per-transaction", defaultValue = 50, operations = { CREATE_REALMS })
+    private Integer clientScopesPerTransaction;
+
+    // Count of protocol mappers of every client scope. Types of the mappers are used round-robin from the "client-scope-mapper-types"
+    @QueryParamIntFill(paramName = "mappers-per-client-scope", defaultValue = 4, operations = { CREATE_REALMS })
+    private Integer mappersPerClientScope;
+
+    // Comma-separated types of the protocol mappers of the client scopes. Supported types are "hardcoded-claim", "user-attribute", "group-membership" and "audience"
+    @QueryParamFill(paramName = "client-scope-mapper-types", defaultValue = MAPPER_HARDCODED_CLAIM + "," + MAPPER_USER_ATTRIBUTE + "," + MAPPER_GROUP_MEMBERSHIP + "," + MAPPER_AUDIENCE,
+            operations = { CREATE_REALMS })
+    private String clientScopeMapperTypes;
+
+    // Count of client scopes attached to every created client as default scopes. Scopes are assigned to the clients round-robin
+    @QueryParamIntFill(paramName = "default-client-scopes-per-client", defaultValue = 0, operations = { CREATE_REALMS, CREATE_CLIENTS })
+    private Integer defaultClientScopesPerClient;
+
+    // Count of client scopes attached to every created client as optional scopes. Optional scopes are different from the default scopes of the same client
+    @QueryParamIntFill(paramName = "optional-client-scopes-per-client", defaultValue = 0, operations = { CREATE_REALMS, CREATE_CLIENTS })
+    private Integer optionalClientScopesPerClient;
+
     // Prefix of groups to be created (in case of CREATE_REALMS operation) or assigned to the users (In case of CREATE_USERS and CREATE_REALMS operations)
-    @QueryParamFill(paramName = "group-prefix", defaultValue = "group-", operations = { CREATE_REALMS, CREATE_USERS })
+    @QueryParamFill(paramName = "group-prefix", defaultValue = "group-", operations = { CREATE_REALMS, CREATE_USERS, CREATE_AUTHZ })
     private String groupPrefix;
 
     // Count of groups to be created in every created realm
     @QueryParamIntFill(paramName = "groups-per-realm", defaultValue = 20, operations = { CREATE_REALMS })
     private Integer groupsPerRealm;
 
+    // Count of groups created in every DB transaction. Transactions with the groups of the same realm run concurrently. Whole group tree of the top-level group is always
+    // created in the same transaction
+    @QueryParamIntFill(paramName = "groups-per-transaction", defaultValue = 500, operations = { CREATE_REALMS })
+    private Integer groupsPerTransaction;
+
+    // Depth of the group tree of every top-level group. Value 1 means just flat top-level groups. Users are assigned to the leaf groups
+    @QueryParamIntFill(paramName = "group-depth", defaultValue = 1, operations = { CREATE_REALMS, CREATE_USERS })
+    private Integer groupDepth;
+
+    // Count of subgroups of every group of the group tree (except the leaf groups)
+    @QueryParamIntFill(paramName = "group-fan-out", defaultValue = 2, operations = { CREATE_REALMS })
+    private Integer groupFanOut;
+
+    // Count of realm roles mapped to every group of the given level of the group tree. For example "3,1,0" maps 3 roles to the top-level groups, 1 role to their subgroups
+    // and no roles to the deeper groups. Last value is used for all the deeper levels
+    @QueryParamFill(paramName = "group-roles-per-level", defaultValue = "0", operations = { CREATE_REALMS })
+    private String groupRolesPerLevel;
+
+    // Count of levels of composite roles above the leaf roles. Both realm roles and the roles of every client are split to the levels, where the roles with the lowest
+    // indexes are the top-level composites and the roles with the highest indexes are the leaf roles. Value 0 means that all the roles are leaf roles
+    @QueryParamIntFill(paramName = "composite-role-depth", defaultValue = 0, operations = { CREATE_REALMS })
+    private Integer compositeRoleDepth;
+
+    // Count of child roles of every composite role
+    @QueryParamIntFill(paramName = "composite-role-fan-out", defaultValue = 3, operations = { CREATE_REALMS })
+    private Integer compositeRoleFanOut;
+
+    // Average count of composite roles, which contain the same child role. Together with the "composite-role-fan-out" it determines the count of roles on every level
+    @QueryParamIntFill(paramName = "composite-role-fan-in", defaultValue = 1, operations = { CREATE_REALMS })
+    private Integer compositeRoleFanIn;
+
+    // Count of the leaf roles of the other clients added to the first role of every client. The roles are from the clients following the client
+    @QueryParamIntFill(paramName = "cross-client-composites", defaultValue = 0, operations = { CREATE_REALMS })
+    private Integer crossClientComposites;
+
+    // Count of the first realm roles (the top-level composites in case of composite roles) added to the default roles of the realm, so they are granted to every user
+    @QueryParamIntFill(paramName = "default-roles-per-realm", defaultValue = 0, operations = { CREATE_REALMS })
+    private Integer defaultRolesPerRealm;
+
+    // Count of users of every realm, which expanded role mappings are computed after the users are created. The summary of the count of expanded roles per user is logged.
+    // Value 0 means to skip the summary
+    @QueryParamIntFill(paramName = "role-summary-users", defaultValue = 100, operations = { CREATE_REALMS })
+    private Integer roleSummaryUsers;
+
     // Prefix for newly created users
-    @QueryParamFill(paramName = "user-prefix", defaultValue = "user-", operations = { CREATE_REALMS, CREATE_USERS, CREATE_OFFLINE_SESSIONS, LAST_USER })
+    @QueryParamFill(paramName = "user-prefix", defaultValue = "user-", operations = { CREATE_REALMS, CREATE_USERS, CREATE_OFFLINE_SESSIONS, CREATE_ONLINE_SESSIONS,
+            CREATE_AUTHZ, LAST_USER })
     private String userPrefix;
 
-    // Count of users to be created in every realm (In case of CREATE_REALMS)
-    @QueryParamIntFill(paramName = "users-per-realm", defaultValue = 200, operations = { CREATE_REALMS })
+    // Count of users to be created in every realm (In case of CREATE_REALMS). In case of CREATE_OFFLINE_SESSIONS and CREATE_ONLINE_SESSIONS, sessions are spread over
+    // this count of users
+    @QueryParamIntFill(paramName = "users-per-realm", defaultValue = 200, operations = { CREATE_REALMS, CREATE_OFFLINE_SESSIONS, CREATE_ONLINE_SESSIONS })
     private Integer usersPerRealm;
 
+    // Count of offline sessions to be created in every realm after its users are created (In case of CREATE_REALMS)
+    @QueryParamIntFill(paramName = "offline-sessions-per-realm", defaultValue = 0, operations = { CREATE_REALMS })
+    private Integer offlineSessionsPerRealm;
+
+    // Count of offline sessions created in every DB transaction
+    @QueryParamIntFill(paramName = "offline-sessions-per-transaction", defaultValue = 100, operations = { CREATE_REALMS, CREATE_OFFLINE_SESSIONS })
+    private Integer offlineSessionsPerTransaction;
+
+    // Count of client sessions of every user session. Every client session is for the different client
+    @QueryParamIntFill(paramName = "client-sessions-per-user-session", defaultValue = 1, operations = { CREATE_REALMS, CREATE_OFFLINE_SESSIONS, CREATE_ONLINE_SESSIONS })
+    private Integer clientSessionsPerUserSession;
+
+    // Count of online sessions added to the cache with single bulk operation
+    @QueryParamIntFill(paramName = "online-sessions-per-batch", defaultValue = 1000, operations = { CREATE_ONLINE_SESSIONS })
+    private Integer onlineSessionsPerBatch;
+
+    // Lifespan of the online sessions in seconds. Default value -1 means to use "SSO Session Max" of the realm
+    @QueryParamIntFill(paramName = "session-lifespan", defaultValue = -1, operations = { CREATE_ONLINE_SESSIONS })
+    private Integer sessionLifespan;
+
+    // Max idle time of the online sessions in seconds. Default value -1 means to use "SSO Session Idle" of the realm
+    @QueryParamIntFill(paramName = "session-max-idle", defaultValue = -1, operations = { CREATE_ONLINE_SESSIONS })
+    private Integer sessionMaxIdle;
+
+    // If true, online sessions are written also to the remote store of the session caches (if configured). Otherwise they are added just to the local caches
+    @QueryParamFill(paramName = "use-remote-store", defaultValue = "false", operations = { CREATE_ONLINE_SESSIONS })
+    private String useRemoteStore;
+
+    // Prefix of the custom attributes of the created users. The attributes are also mapped to the tokens by the "user-attribute" mappers of the client scopes
+    @QueryParamFill(paramName = "attribute-prefix", defaultValue = "attribute-", operations = { CREATE_REALMS, CREATE_USERS })
+    private String attributePrefix;
+
+    // Count of custom attributes of every created user like "attribute-0", "attribute-1" etc.
+    @QueryParamIntFill(paramName = "attributes-per-user", defaultValue = 0, operations = { CREATE_REALMS, CREATE_USERS })
+    private Integer attributesPerUser;
+
+    // Count of distinct values of every attribute. Values are assigned to the users round-robin, so every value is shared by the same count of users
+    @QueryParamIntFill(paramName = "attribute-values-cardinality", defaultValue = 100, operations = { CREATE_REALMS, CREATE_USERS })
+    private Integer attributeValuesCardinality;
+
+    // Count of values of every attribute. Values bigger than 1 mean multi-valued attributes
+    @QueryParamIntFill(paramName = "values-per-attribute", defaultValue = 1, operations = { CREATE_REALMS, CREATE_USERS })
+    private Integer valuesPerAttribute;
+
     // Count of groups assigned to every user
     @QueryParamIntFill(paramName = "groups-per-user", defaultValue = 4, operations = { CREATE_REALMS, CREATE_USERS })
     private Integer groupsPerUser;
@@ -122,6 +286,24 @@ public class DatasetConfig {
     @QueryParamIntFill(paramName = "client-roles-per-user", defaultValue = 4, operations = { CREATE_REALMS, CREATE_USERS })
     private Integer clientRolesPerUser;
 
+    // Distribution of the realm roles assigned to the users. Value "uniform" assigns the roles round-robin, so every role has the same count of users. Value like "zipf:1.2"
+    // assigns the first roles to much more users than the others. Value like "normal:0.2" assigns mostly the roles around the middle with the relative standard deviation
+    @QueryParamFill(paramName = "realm-roles-distribution", defaultValue = "uniform", operations = { CREATE_REALMS, CREATE_USERS })
+    private String realmRolesDistribution;
+
+    // Distribution of the client roles assigned to the users. Same values like "realm-roles-distribution"
+    @QueryParamFill(paramName = "client-roles-distribution", defaultValue = "uniform", operations = { CREATE_REALMS, CREATE_USERS })
+    private String clientRolesDistribution;
+
+    // Distribution of the groups assigned to the users. Same values like "realm-roles-distribution"
+    @QueryParamFill(paramName = "groups-distribution", defaultValue = "uniform", operations = { CREATE_REALMS, CREATE_USERS })
+    private String groupsDistribution;
+
+    // Distribution of the users to the created realms. Total count of users is "count" multiplied by "users-per-realm". Value like "zipf:1.2" creates most of the users in the
+    // first realms. Same values like "realm-roles-distribution"
+    @QueryParamFill(paramName = "users-per-realm-distribution", defaultValue = "uniform", operations = { CREATE_REALMS })
+    private String usersPerRealmDistribution;
+
     // Password policy with the amount of password hash iterations. It is 20000 by default
     @QueryParamIntFill(paramName = "password-hash-iterations", defaultValue = Pbkdf2PasswordHashProviderFactory.DEFAULT_ITERATIONS, operations = { CREATE_REALMS })
     private Integer passwordHashIterations;
@@ -130,24 +312,164 @@ public class DatasetConfig {
     @QueryParamFill(paramName = "events-enabled", defaultValue = "false", operations = { CREATE_REALMS })
     private String eventsEnabled;
 
+    // Count of events created in every DB transaction
+    @QueryParamIntFill(paramName = "events-per-transaction", defaultValue = 10000, operations = { CREATE_EVENTS })
+    private Integer eventsPerTransaction;
+
+    // Weighted distribution of the types of created events. Every event type has its relative weight
+    @QueryParamFill(paramName = "event-types", defaultValue = "LOGIN:50,CODE_TO_TOKEN:25,REFRESH_TOKEN:15,LOGOUT:5,LOGIN_ERROR:5", operations = { CREATE_EVENTS })
+    private String eventTypes;
+
+    // Events are created with the random time from the interval of this count of seconds before the current time
+    @QueryParamIntFill(paramName = "events-time-range", defaultValue = 86400, operations = { CREATE_EVENTS })
+    private Integer eventsTimeRange;
+
+    // Count of users of every realm, which events are created for. Users are loaded once per realm
+    @QueryParamIntFill(paramName = "event-users-per-realm", defaultValue = 1000, operations = { CREATE_EVENTS })
+    private Integer eventUsersPerRealm;
+
+    // Count of clients of every realm, which events are created for. Clients are loaded once per realm
+    @QueryParamIntFill(paramName = "event-clients-per-realm", defaultValue = 100, operations = { CREATE_EVENTS })
+    private Integer eventClientsPerRealm;
+
+    // Count of resources of every resource server. Every resource has its own resource permission
+    @QueryParamIntFill(paramName = "resources-per-client", defaultValue = 10, operations = { CREATE_AUTHZ })
+    private Integer resourcesPerClient;
+
+    // Count of authorization scopes of every resource server
+    @QueryParamIntFill(paramName = "scopes-per-client", defaultValue = 5, operations = { CREATE_AUTHZ })
+    private Integer scopesPerClient;
+
+    // Count of scopes of every resource. Scopes are assigned to the resources round-robin
+    @QueryParamIntFill(paramName = "scopes-per-resource", defaultValue = 2, operations = { CREATE_AUTHZ })
+    private Integer scopesPerResource;
+
+    // Count of role policies of every resource server. Every policy requires "subjects-per-policy" realm roles
+    @QueryParamIntFill(paramName = "role-policies-per-client", defaultValue = 4, operations = { CREATE_AUTHZ })
+    private Integer rolePoliciesPerClient;
+
+    // Count of group policies of every resource server. Every policy contains "subjects-per-policy" top-level groups
+    @QueryParamIntFill(paramName = "group-policies-per-client", defaultValue = 2, operations = { CREATE_AUTHZ })
+    private Integer groupPoliciesPerClient;
+
+    // Count of user policies of every resource server. Every policy contains "subjects-per-policy" users
+    @QueryParamIntFill(paramName = "user-policies-per-client", defaultValue = 2, operations = { CREATE_AUTHZ })
+    private Integer userPoliciesPerClient;
+
+    // Count of aggregate policies of every resource server. Every aggregate policy contains "policies-per-aggregate" of the role, group and user policies
+    @QueryParamIntFill(paramName = "aggregate-policies-per-client", defaultValue = 2, operations = { CREATE_AUTHZ })
+    private Integer aggregatePoliciesPerClient;
+
+    // Count of roles, groups or users referenced by every role, group or user policy
+    @QueryParamIntFill(paramName = "subjects-per-policy", defaultValue = 3, operations = { CREATE_AUTHZ })
+    private Integer subjectsPerPolicy;
+
+    // Count of policies of every aggregate policy
+    @QueryParamIntFill(paramName = "policies-per-aggregate", defaultValue = 3, operations = { CREATE_AUTHZ })
+    private Integer policiesPerAggregate;
+
+    // Count of policies of every resource permission. Both aggregate and non-aggregate policies are used
+    @QueryParamIntFill(paramName = "policies-per-permission", defaultValue = 2, operations = { CREATE_AUTHZ })
+    private Integer policiesPerPermission;
+
+    // Count of resource servers created in every DB transaction. Transactions run concurrently
+    @QueryParamIntFill(paramName = "authz-clients-per-transaction", defaultValue = 5, operations = { CREATE_AUTHZ })
+    private Integer authzClientsPerTransaction;
+
     // Transaction timeout used for transactions for creating objects
     @QueryParamIntFill(paramName = "transaction-timeout", defaultValue = 300, operations = { CREATE_REALMS, CREATE_CLIENTS, CREATE_USERS,
-            CREATE_EVENTS, CREATE_OFFLINE_SESSIONS, REMOVE_REALMS })
+            CREATE_EVENTS, CREATE_OFFLINE_SESSIONS, CREATE_ONLINE_SESSIONS, CREATE_AUTHZ, REMOVE_REALMS })
     private Integer transactionTimeoutInSeconds;
 
-    // Count of users created in every transaction
-    @QueryParamIntFill(paramName = "users-per-transaction", defaultValue = 10, operations = { CREATE_REALMS, CREATE_USERS })
+    // Count of users created in every transaction. Value "auto" means that count is adjusted at runtime based on the measured latency and throughput of transactions
+    @QueryParamIntFill(paramName = "users-per-transaction", defaultValue = 10, autoAllowed = true, operations = { CREATE_REALMS, CREATE_USERS })
     private Integer usersPerTransaction;
 
+    // Target latency of single transaction in milliseconds. Applicable when "users-per-transaction" or "clients-per-transaction" is "auto". When transaction takes longer, the
+    // count of entities per transaction is decreased. It is never bigger than half of the "transaction-timeout"
+    @QueryParamIntFill(paramName = "auto-batch-target-latency", defaultValue = 2000, operations = { CREATE_REALMS, CREATE_CLIENTS, CREATE_USERS })
+    private Integer autoBatchTargetLatency;
+
+    // Max count of entities per transaction when "users-per-transaction" or "clients-per-transaction" is "auto"
+    @QueryParamIntFill(paramName = "auto-batch-max-size", defaultValue = 1000, operations = { CREATE_REALMS, CREATE_CLIENTS, CREATE_USERS })
+    private Integer autoBatchMaxSize;
+
+    // Mode of hashing passwords of created users. Mode "per-user" means that every user has password like "user-156-password" with its own salt and hash.
+    // Mode "shared-salt" is useful for throwaway datasets. All users have same password "user-password" with same salt and the hash is computed just once per realm.
+    // Logins are still valid when Gatling tests are triggered with the "user-password" system property
+    @QueryParamFill(paramName = "password-hash-mode", defaultValue = PASSWORD_HASH_MODE_PER_USER, allowedValues = { PASSWORD_HASH_MODE_PER_USER, PASSWORD_HASH_MODE_SHARED_SALT },
+            operations = { CREATE_REALMS, CREATE_USERS })
+    private String passwordHashMode;
+
+    // Password of all the users. Applicable just for "password-hash-mode" with the value "shared-salt"
+    @QueryParamFill(paramName = "user-password", defaultValue = "password", operations = { CREATE_REALMS, CREATE_USERS })
+    private String userPassword;
+
+    // If true, passwords of the created users are hashed in the separate thread pool and then handed off to the worker threads, which create users in the DB.
+    // DB transactions then don't need to stay open while the password hashes are computed
+    @QueryParamFill(paramName = "password-hashing-pipeline", defaultValue = "false", operations = { CREATE_USERS })
+    private String passwordHashingPipeline;
+
+    // Engine used to create users. Engine "orm" creates every user through the Keycloak UserProvider. Engine "bulk" writes the rows of the whole batch of users
+    // directly to the DB tables with the JDBC batches. It assumes the default Keycloak DB schema and users stored in the Keycloak DB (no user storage providers)
+    @QueryParamFill(paramName = "users-engine", defaultValue = USERS_ENGINE_ORM, allowedValues = { USERS_ENGINE_ORM, USERS_ENGINE_BULK }, operations = { CREATE_USERS })
+    private String usersEngine;
+
+    // If true, the "orm" engine assigns roles, groups and attributes to the whole batch of users directly with the JDBC batches through the "bulk-datasource".
+    // By default, they are assigned to the users one by one through the Keycloak UserModel. The "bulk" engine always writes them with the JDBC batches
+    @QueryParamFill(paramName = "batched-assignments", defaultValue = "false", operations = { CREATE_REALMS, CREATE_USERS })
+    private String batchedAssignments;
+
+    // JNDI name of the datasource used by the "bulk" engine and for assigning roles and groups to the whole batch of users by the "orm" engine with "batched-assignments".
+    // It should be the same datasource, which is used by the Keycloak server
+    @QueryParamFill(paramName = "bulk-datasource", defaultValue = "java:jboss/datasources/KeycloakDS", operations = { CREATE_REALMS, CREATE_USERS, REMOVE_REALMS })
+    private String bulkDatasource;
+
+    // Count of threads computing password hashes when "password-hashing-pipeline" is enabled. Default value -1 means to use count of available processors
+    @QueryParamIntFill(paramName = "hashing-threads-count", defaultValue = -1, operations = { CREATE_USERS })
+    private Integer hashingThreadsCount;
+
+    // Max count of batches with hashed passwords waiting for the worker threads to be written to the DB when "password-hashing-pipeline" is enabled
+    @QueryParamIntFill(paramName = "hashing-queue-size", defaultValue = 20, operations = { CREATE_USERS })
+    private Integer hashingQueueSize;
+
     // Count of worker threads concurrently creating entities
     @QueryParamIntFill(paramName = "threads-count", defaultValue = 5, operations = { CREATE_REALMS, CREATE_CLIENTS, CREATE_USERS,
-            CREATE_EVENTS, CREATE_OFFLINE_SESSIONS, REMOVE_REALMS })
+            CREATE_EVENTS, CREATE_OFFLINE_SESSIONS, CREATE_ONLINE_SESSIONS, CREATE_AUTHZ, REMOVE_REALMS })
     private Integer threadsCount;
 
+    // Mode "threads" runs the tasks in the fixed pool of "threads-count" worker threads. Mode "virtual" runs every task in its own virtual thread (or in the
+    // fixed pool of "concurrent-transactions" threads if virtual threads are not supported by the JVM) and count of concurrently running DB transactions is limited
+    // by "concurrent-transactions"
+    @QueryParamFill(paramName = "executor-mode", defaultValue = EXECUTOR_MODE_THREADS, allowedValues = { EXECUTOR_MODE_THREADS, EXECUTOR_MODE_VIRTUAL },
+            operations = { CREATE_REALMS, CREATE_CLIENTS, CREATE_USERS, CREATE_EVENTS, CREATE_OFFLINE_SESSIONS, CREATE_ONLINE_SESSIONS, CREATE_AUTHZ, REMOVE_REALMS })
+    private String executorMode;
+
+    // Max count of concurrently running DB transactions for the "executor-mode" with the value "virtual". It should match the size of the DB connection pool.
+    // Default value -1 means to use "threads-count"
+    @QueryParamIntFill(paramName = "concurrent-transactions", defaultValue = -1, operations = { CREATE_REALMS, CREATE_CLIENTS, CREATE_USERS,
+            CREATE_EVENTS, CREATE_OFFLINE_SESSIONS, CREATE_ONLINE_SESSIONS, CREATE_AUTHZ, REMOVE_REALMS })
+    private Integer concurrentTransactions;
+
+    // Max count of tasks (batches) submitted to the worker threads and not yet finished. When reached, submitting of next tasks is blocked until some of the
+    // tasks in flight is finished, so the memory does not grow with the "count" of created entities. Value 0 or lower means unbounded
+    @QueryParamIntFill(paramName = "max-tasks-in-flight", defaultValue = 100, operations = { CREATE_REALMS, CREATE_CLIENTS, CREATE_USERS,
+            CREATE_EVENTS, CREATE_OFFLINE_SESSIONS, CREATE_ONLINE_SESSIONS, CREATE_AUTHZ, REMOVE_REALMS })
+    private Integer maxTasksInFlight;
+
+    // If true, the range of created entities is split into partitions, which are published through the work cache. Every cluster node then claims and processes
+    // the partitions, so the entities are created by all the cluster nodes concurrently
+    @QueryParamFill(paramName = "distributed", defaultValue = "false", operations = { CREATE_CLIENTS, CREATE_USERS, CREATE_OFFLINE_SESSIONS })
+    private String distributed;
+
+    // Count of entities in single partition when "distributed" is true
+    @QueryParamIntFill(paramName = "partition-size", defaultValue = 10000, operations = { CREATE_CLIENTS, CREATE_USERS, CREATE_OFFLINE_SESSIONS })
+    private Integer partitionSize;
+
     // Timeout for the whole task. If timeout expires, then the existing task may not be terminated immediatelly. However it will be permitted to start another task
     // (EG. Send another HTTP request for creating realms), which can cause conflicts
     @QueryParamIntFill(paramName = "task-timeout", defaultValue = 3600, operations = { CREATE_REALMS, CREATE_CLIENTS, CREATE_USERS,
-            CREATE_EVENTS, CREATE_OFFLINE_SESSIONS, REMOVE_REALMS })
+            CREATE_EVENTS, CREATE_OFFLINE_SESSIONS, CREATE_ONLINE_SESSIONS, CREATE_AUTHZ, REMOVE_REALMS })
     private Integer taskTimeout;
 
     // String representation of this configuration (cached here to not be computed in runtime)
@@ -169,6 +491,14 @@ public class DatasetConfig {
         return lastToRemove;
     }
 
+    public Boolean getBulkUsersRemoval() {
+        return Boolean.valueOf(bulkUsersRemoval);
+    }
+
+    public Integer getUsersPerRemovalTransaction() {
+        return usersPerRemovalTransaction;
+    }
+
     public String getRealmName() {
         return realmName;
     }
@@ -181,6 +511,18 @@ public class DatasetConfig {
         return start;
     }
 
+    public String getResumedOperation() {
+        return resumedOperation;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
     public Integer getCount() {
         return count;
     }
@@ -193,6 +535,10 @@ public class DatasetConfig {
         return realmRolesPerRealm;
     }
 
+    public Integer getRolesPerTransaction() {
+        return rolesPerTransaction;
+    }
+
     public String getClientPrefix() {
         return clientPrefix;
     }
@@ -213,6 +559,34 @@ public class DatasetConfig {
         return clientRolesPerClient;
     }
 
+    public String getClientScopePrefix() {
+        return clientScopePrefix;
+    }
+
+    public Integer getClientScopesPerRealm() {
+        return clientScopesPerRealm;
+    }
+
+    public Integer getClientScopesPerTransaction() {
+        return clientScopesPerTransaction;
+    }
+
+    public Integer getMappersPerClientScope() {
+        return mappersPerClientScope;
+    }
+
+    public String getClientScopeMapperTypes() {
+        return clientScopeMapperTypes;
+    }
+
+    public Integer getDefaultClientScopesPerClient() {
+        return defaultClientScopesPerClient;
+    }
+
+    public Integer getOptionalClientScopesPerClient() {
+        return optionalClientScopesPerClient;
+    }
+
     public String getGroupPrefix() {
         return groupPrefix;
     }
@@ -221,6 +595,46 @@ public class DatasetConfig {
         return groupsPerRealm;
     }
 
+    public Integer getGroupsPerTransaction() {
+        return groupsPerTransaction;
+    }
+
+    public Integer getGroupDepth() {
+        return groupDepth;
+    }
+
+    public Integer getGroupFanOut() {
+        return groupFanOut;
+    }
+
+    public String getGroupRolesPerLevel() {
+        return groupRolesPerLevel;
+    }
+
+    public Integer getCompositeRoleDepth() {
+        return compositeRoleDepth;
+    }
+
+    public Integer getCompositeRoleFanOut() {
+        return compositeRoleFanOut;
+    }
+
+    public Integer getCompositeRoleFanIn() {
+        return compositeRoleFanIn;
+    }
+
+    public Integer getCrossClientComposites() {
+        return crossClientComposites;
+    }
+
+    public Integer getDefaultRolesPerRealm() {
+        return defaultRolesPerRealm;
+    }
+
+    public Integer getRoleSummaryUsers() {
+        return roleSummaryUsers;
+    }
+
     public String getUserPrefix() {
         return userPrefix;
     }
@@ -229,6 +643,22 @@ public class DatasetConfig {
         return usersPerRealm;
     }
 
+    public String getAttributePrefix() {
+        return attributePrefix;
+    }
+
+    public Integer getAttributesPerUser() {
+        return attributesPerUser;
+    }
+
+    public Integer getAttributeValuesCardinality() {
+        return attributeValuesCardinality;
+    }
+
+    public Integer getValuesPerAttribute() {
+        return valuesPerAttribute;
+    }
+
     public Integer getGroupsPerUser() {
         return groupsPerUser;
     }
@@ -241,6 +671,22 @@ public class DatasetConfig {
         return clientRolesPerUser;
     }
 
+    public String getRealmRolesDistribution() {
+        return realmRolesDistribution;
+    }
+
+    public String getClientRolesDistribution() {
+        return clientRolesDistribution;
+    }
+
+    public String getGroupsDistribution() {
+        return groupsDistribution;
+    }
+
+    public String getUsersPerRealmDistribution() {
+        return usersPerRealmDistribution;
+    }
+
     public Integer getPasswordHashIterations() {
         return passwordHashIterations;
     }
@@ -249,6 +695,98 @@ public class DatasetConfig {
         return Boolean.valueOf(eventsEnabled);
     }
 
+    public Integer getOfflineSessionsPerRealm() {
+        return offlineSessionsPerRealm;
+    }
+
+    public Integer getOfflineSessionsPerTransaction() {
+        return offlineSessionsPerTransaction;
+    }
+
+    public Integer getClientSessionsPerUserSession() {
+        return clientSessionsPerUserSession;
+    }
+
+    public Integer getOnlineSessionsPerBatch() {
+        return onlineSessionsPerBatch;
+    }
+
+    public Integer getSessionLifespan() {
+        return sessionLifespan;
+    }
+
+    public Integer getSessionMaxIdle() {
+        return sessionMaxIdle;
+    }
+
+    public Boolean getUseRemoteStore() {
+        return Boolean.valueOf(useRemoteStore);
+    }
+
+    public Integer getEventsPerTransaction() {
+        return eventsPerTransaction;
+    }
+
+    public String getEventTypes() {
+        return eventTypes;
+    }
+
+    public Integer getEventsTimeRange() {
+        return eventsTimeRange;
+    }
+
+    public Integer getEventUsersPerRealm() {
+        return eventUsersPerRealm;
+    }
+
+    public Integer getEventClientsPerRealm() {
+        return eventClientsPerRealm;
+    }
+
+    public Integer getResourcesPerClient() {
+        return resourcesPerClient;
+    }
+
+    public Integer getScopesPerClient() {
+        return scopesPerClient;
+    }
+
+    public Integer getScopesPerResource() {
+        return scopesPerResource;
+    }
+
+    public Integer getRolePoliciesPerClient() {
+        return rolePoliciesPerClient;
+    }
+
+    public Integer getGroupPoliciesPerClient() {
+        return groupPoliciesPerClient;
+    }
+
+    public Integer getUserPoliciesPerClient() {
+        return userPoliciesPerClient;
+    }
+
+    public Integer getAggregatePoliciesPerClient() {
+        return aggregatePoliciesPerClient;
+    }
+
+    public Integer getSubjectsPerPolicy() {
+        return subjectsPerPolicy;
+    }
+
+    public Integer getPoliciesPerAggregate() {
+        return policiesPerAggregate;
+    }
+
+    public Integer getPoliciesPerPermission() {
+        return policiesPerPermission;
+    }
+
+    public Integer getAuthzClientsPerTransaction() {
+        return authzClientsPerTransaction;
+    }
+
     public Integer getTransactionTimeoutInSeconds() {
         return transactionTimeoutInSeconds;
     }
@@ -257,10 +795,70 @@ public class DatasetConfig {
         return usersPerTransaction;
     }
 
+    public String getPasswordHashMode() {
+        return passwordHashMode;
+    }
+
+    public String getUserPassword() {
+        return userPassword;
+    }
+
+    public Boolean getPasswordHashingPipeline() {
+        return Boolean.valueOf(passwordHashingPipeline);
+    }
+
+    public String getUsersEngine() {
+        return usersEngine;
+    }
+
+    public Boolean getBatchedAssignments() {
+        return Boolean.valueOf(batchedAssignments);
+    }
+
+    public String getBulkDatasource() {
+        return bulkDatasource;
+    }
+
+    public Integer getHashingThreadsCount() {
+        return hashingThreadsCount == -1 ? Runtime.getRuntime().availableProcessors() : hashingThreadsCount;
+    }
+
+    public Integer getHashingQueueSize() {
+        return hashingQueueSize;
+    }
+
+    public Integer getAutoBatchTargetLatency() {
+        return autoBatchTargetLatency;
+    }
+
+    public Integer getAutoBatchMaxSize() {
+        return autoBatchMaxSize;
+    }
+
     public Integer getThreadsCount() {
         return threadsCount;
     }
 
+    public String getExecutorMode() {
+        return executorMode;
+    }
+
+    public Integer getConcurrentTransactions() {
+        return concurrentTransactions == -1 ? threadsCount : concurrentTransactions;
+    }
+
+    public Integer getMaxTasksInFlight() {
+        return maxTasksInFlight;
+    }
+
+    public Boolean getDistributed() {
+        return Boolean.valueOf(distributed);
+    }
+
+    public Integer getPartitionSize() {
+        return partitionSize;
+    }
+
     public Integer getTaskTimeout() {
         return taskTimeout;
     }
@@ -27,7 +27,10 @@ public enum DatasetOperation {
     CREATE_USERS,
     CREATE_EVENTS,
     CREATE_OFFLINE_SESSIONS,
+    CREATE_ONLINE_SESSIONS,
+    CREATE_AUTHZ,
     REMOVE_REALMS,
+    RESUME,
     LAST_REALM,
     LAST_CLIENT,
     LAST_USER
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.dataset.config;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.keycloak.util.JsonSerialization;
+
+/**
+ * Profile of the dataset sent to the "create-dataset" endpoint. It describes multiple tiers of realms, where realms of every tier have their own shape. For example:
+ *
+ * <pre>
+ * {
+ *   "parameters": { "threads-count": "20" },
+ *   "tiers": [
+ *     { "name": "huge", "count": 5, "parameters": { "users-per-realm": "1000000", "clients-per-realm": "500", "offline-sessions-per-realm": "100000" } },
+ *     { "name": "tiny", "count": 5000, "parameters": { "users-per-realm": "10", "clients-per-realm": "2" } }
+ *   ]
+ * }
+ * </pre>
+ *
+ * Parameters are the same as the query parameters of the "create-realms" endpoint. Parameters of the tier have precedence over the parameters of the profile, which have
+ * precedence over the query parameters of the HTTP request.
+ */
+public class DatasetProfile {
+
+    // Parameters applied to all the tiers
+    @JsonProperty("parameters")
+    private Map<String, String> parameters = new HashMap<>();
+
+    @JsonProperty("tiers")
+    private List<Tier> tiers = new LinkedList<>();
+
+    public static DatasetProfile parse(String json) {
+        if (json == null || json.trim().isEmpty()) {
+            throw new DatasetException("Profile of the dataset missing in the request body");
+        }
+
+        DatasetProfile profile;
+        try {
+            profile = JsonSerialization.readValue(json, DatasetProfile.class);
+        } catch (IOException ioe) {
+            throw new DatasetException("Failed to parse the profile of the dataset", ioe);
+        }
+
+        if (profile.tiers == null || profile.tiers.isEmpty()) {
+            throw new DatasetException("Profile of the dataset does not contain any tier");
+        }
+        int tierIndex = 0;
+        for (Tier tier : profile.tiers) {
+            if (tier.name == null) {
+                tier.name = "tier-" + tierIndex;
+            }
+            if (tier.count <= 0) {
+                throw new DatasetException("Count of realms of the tier '" + tier.name + "' must be positive");
+            }
+            tierIndex++;
+        }
+        return profile;
+    }
+
+    /**
+     * @return configuration of the whole job (EG. count of threads or task timeout). The count is the total count of realms of all the tiers
+     */
+    public DatasetConfig createConfig(MultivaluedMap<String, String> queryParameters) {
+        MultivaluedMap<String, String> params = mergeParameters(queryParameters, null);
+        params.putSingle("count", String.valueOf(tiers.stream().mapToInt(Tier::getCount).sum()));
+        return ConfigUtil.createConfigFromQueryParams(params, DatasetOperation.CREATE_REALMS);
+    }
+
+    public DatasetConfig createTierConfig(MultivaluedMap<String, String> queryParameters, Tier tier) {
+        MultivaluedMap<String, String> params = mergeParameters(queryParameters, tier);
+        params.putSingle("count", String.valueOf(tier.count));
+        try {
+            return ConfigUtil.createConfigFromQueryParams(params, DatasetOperation.CREATE_REALMS);
+        } catch (DatasetException de) {
+            throw new DatasetException("Invalid parameters of the tier '" + tier.name + "': " + de.getMessage(), de.getCause());
+        }
+    }
+
+    private MultivaluedMap<String, String> mergeParameters(MultivaluedMap<String, String> queryParameters, Tier tier) {
+        MultivaluedMap<String, String> params = new MultivaluedHashMap<>();
+        queryParameters.forEach((name, values) -> {
+            if (!values.isEmpty()) {
+                params.putSingle(name, values.get(0));
+            }
+        });
+        if (parameters != null) {
+            parameters.forEach(params::putSingle);
+        }
+        if (tier != null && tier.parameters != null) {
+            tier.parameters.forEach(params::putSingle);
+        }
+        return params;
+    }
+
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    public List<Tier> getTiers() {
+        return tiers;
+    }
+
+
+    public static class Tier {
+
+        @JsonProperty("name")
+        private String name;
+
+        // Count of realms of this tier
+        @JsonProperty("count")
+        private int count;
+
+        @JsonProperty("parameters")
+        private Map<String, String> parameters = new HashMap<>();
+
+        public String getName() {
+            return name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public Map<String, String> getParameters() {
+            return parameters;
+        }
+    }
+}
@@ -40,6 +40,9 @@ public @interface QueryParamFill {
 
     boolean required() default false;
 
+    // If not empty, the value of the parameter must be one of these
+    String[] allowedValues() default {};
+
     DatasetOperation[] operations();
 
 }
@@ -34,12 +34,20 @@ import static org.keycloak.benchmark.dataset.config.DatasetOperation.CREATE_USER
 @Target(ElementType.FIELD)
 public @interface QueryParamIntFill {
 
+    // Value filled to the field when the parameter is sent with the value "auto" and the parameter allows it
+    int AUTO = -2;
+
+    String AUTO_VALUE = "auto";
+
     String paramName();
 
     int defaultValue() default -1;
 
     boolean required() default false;
 
+    // If true, the value "auto" is allowed for the parameter
+    boolean autoAllowed() default false;
+
     DatasetOperation[] operations();
 
 }
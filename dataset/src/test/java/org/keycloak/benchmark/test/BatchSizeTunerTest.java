@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.benchmark.dataset.BatchSizeTuner;
+import org.keycloak.benchmark.dataset.ExecutorHelper;
+import org.keycloak.benchmark.dataset.TimerLogger;
+import org.keycloak.benchmark.dataset.config.QueryParamIntFill;
+
+public class BatchSizeTunerTest {
+
+    @Test
+    public void testFixedBatchSize() {
+        BatchSizeTuner tuner = new BatchSizeTuner("users-per-transaction", 25, 1000, 2000, TimerLogger.start("test"));
+        Assert.assertFalse(tuner.isAuto());
+        Assert.assertNull(tuner.listener(25));
+        Assert.assertEquals(25, tuner.getBatchSize());
+    }
+
+    @Test
+    public void testAdditiveIncrease() {
+        BatchSizeTuner tuner = new BatchSizeTuner("users-per-transaction", QueryParamIntFill.AUTO, 1000, 2000, TimerLogger.start("test"));
+        Assert.assertTrue(tuner.isAuto());
+        Assert.assertEquals(10, tuner.getBatchSize());
+
+        // Latency grows linearly with the batch size, so throughput does not drop
+        for (int i = 0; i < 5; i++) {
+            int batchSize = tuner.getBatchSize();
+            tuner.listener(batchSize).transactionFinished(batchSize * 10L, true);
+        }
+        Assert.assertEquals(15, tuner.getBatchSize());
+    }
+
+    @Test
+    public void testMultiplicativeDecrease() {
+        BatchSizeTuner tuner = new BatchSizeTuner("users-per-transaction", QueryParamIntFill.AUTO, 1000, 2000, TimerLogger.start("test"));
+
+        tuner.listener(10).transactionFinished(3000, true);
+        Assert.assertEquals(5, tuner.getBatchSize());
+
+        tuner.listener(5).transactionFinished(100, false);
+        Assert.assertEquals(2, tuner.getBatchSize());
+
+        tuner.listener(2).transactionFinished(5000, true);
+        tuner.listener(1).transactionFinished(5000, true);
+        Assert.assertEquals(1, tuner.getBatchSize());
+    }
+
+    @Test
+    public void testDecreaseOncePerCongestion() {
+        BatchSizeTuner tuner = new BatchSizeTuner("users-per-transaction", QueryParamIntFill.AUTO, 1000, 2000, TimerLogger.start("test"));
+
+        // Concurrent batches submitted with the same size are all slow
+        ExecutorHelper.TransactionListener[] listeners = new ExecutorHelper.TransactionListener[5];
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i] = tuner.listener(tuner.getBatchSize());
+        }
+        for (ExecutorHelper.TransactionListener listener : listeners) {
+            listener.transactionFinished(3000, false);
+        }
+        Assert.assertEquals(5, tuner.getBatchSize());
+
+        // Slow batch submitted after the decrease is a new congestion event
+        tuner.listener(5).transactionFinished(3000, true);
+        Assert.assertEquals(2, tuner.getBatchSize());
+    }
+
+    @Test
+    public void testMaxBatchSize() {
+        BatchSizeTuner tuner = new BatchSizeTuner("clients-per-transaction", QueryParamIntFill.AUTO, 12, 2000, TimerLogger.start("test"));
+        for (int i = 0; i < 10; i++) {
+            int batchSize = tuner.getBatchSize();
+            tuner.listener(batchSize).transactionFinished(batchSize, true);
+        }
+        Assert.assertEquals(12, tuner.getBatchSize());
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.test;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.benchmark.dataset.CheckpointTracker;
+import org.keycloak.benchmark.dataset.IndexRange;
+import org.keycloak.benchmark.dataset.TaskCheckpoint;
+import org.keycloak.util.JsonSerialization;
+
+public class CheckpointTrackerTest {
+
+    @Test
+    public void testNothingCommitted() {
+        CheckpointTracker tracker = new CheckpointTracker(null, checkpoint(100, 200));
+        Assert.assertEquals("[[100, 200)]", tracker.getMissingRanges().toString());
+        Assert.assertEquals(100, tracker.getMissingCount());
+    }
+
+    @Test
+    public void testResumeFromSavedCheckpoint() throws Exception {
+        // Batches were committed out of order by the concurrent workers
+        TaskCheckpoint checkpoint = checkpoint(100, 200);
+        checkpoint.setCommitted(Arrays.asList(new IndexRange(130, 140), new IndexRange(100, 120), new IndexRange(120, 125), new IndexRange(190, 200)));
+
+        // Resumed task reads the checkpoint from the work cache
+        TaskCheckpoint saved = JsonSerialization.readValue(JsonSerialization.writeValueAsString(checkpoint), TaskCheckpoint.class);
+        CheckpointTracker tracker = new CheckpointTracker(null, saved);
+
+        Assert.assertEquals("[[125, 130), [140, 190)]", tracker.getMissingRanges().toString());
+        Assert.assertEquals(55, tracker.getMissingCount());
+    }
+
+    @Test
+    public void testAllCommitted() {
+        TaskCheckpoint checkpoint = checkpoint(0, 50);
+        checkpoint.setCommitted(Arrays.asList(new IndexRange(0, 25), new IndexRange(25, 50)));
+        CheckpointTracker tracker = new CheckpointTracker(null, checkpoint);
+        Assert.assertTrue(tracker.getMissingRanges().isEmpty());
+        Assert.assertEquals(0, tracker.getMissingCount());
+    }
+
+    private TaskCheckpoint checkpoint(int start, int end) {
+        TaskCheckpoint checkpoint = new TaskCheckpoint();
+        checkpoint.setOperation("create-users");
+        checkpoint.setRealmName("realm-0");
+        checkpoint.setStart(start);
+        checkpoint.setEnd(end);
+        return checkpoint;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.benchmark.dataset.CompositeRoleGraph;
+
+public class CompositeRoleGraphTest {
+
+    @Test
+    public void testNoComposites() {
+        CompositeRoleGraph graph = new CompositeRoleGraph(25, 0, 3, 1);
+        Assert.assertEquals(0, graph.getDepth());
+        Assert.assertEquals(0, graph.getCompositeCount());
+        Assert.assertEquals(0, graph.getChildren(0).length);
+        Assert.assertEquals(1, graph.getExpandedCount(0));
+    }
+
+    @Test
+    public void testTree() {
+        // 1 + 3 + 9 roles
+        CompositeRoleGraph graph = new CompositeRoleGraph(13, 2, 3, 1);
+        Assert.assertEquals(2, graph.getDepth());
+        Assert.assertEquals(1, graph.getLevelSize(0));
+        Assert.assertEquals(3, graph.getLevelSize(1));
+        Assert.assertEquals(9, graph.getLevelSize(2));
+        Assert.assertEquals(4, graph.getCompositeCount());
+        Assert.assertArrayEquals(new int[] { 1, 2, 3 }, graph.getChildren(0));
+        Assert.assertArrayEquals(new int[] { 7, 8, 9 }, graph.getChildren(2));
+        Assert.assertEquals(13, graph.getExpandedCount(0));
+        Assert.assertEquals(4, graph.getExpandedCount(1));
+    }
+
+    @Test
+    public void testFanIn() {
+        CompositeRoleGraph graph = new CompositeRoleGraph(100, 1, 4, 2);
+        Assert.assertEquals(1, graph.getDepth());
+
+        // Every leaf role is the child of 2 composite roles
+        Map<Integer, Integer> parents = new HashMap<>();
+        for (int i = 0; i < graph.getCompositeCount(); i++) {
+            Assert.assertEquals(4, graph.getChildren(i).length);
+            for (int child : graph.getChildren(i)) {
+                Assert.assertTrue(child >= graph.getCompositeCount());
+                parents.merge(child, 1, Integer::sum);
+            }
+        }
+        Assert.assertEquals(100 - graph.getCompositeCount(), parents.size());
+        parents.values().forEach(count -> Assert.assertTrue(count >= 1 && count <= 3));
+    }
+
+    @Test
+    public void testNotEnoughRoles() {
+        CompositeRoleGraph graph = new CompositeRoleGraph(3, 5, 2, 1);
+        Assert.assertEquals(2, graph.getDepth());
+        Assert.assertEquals(3, graph.getExpandedCount(0));
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.test;
+
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.benchmark.dataset.config.DatasetConfig;
+import org.keycloak.benchmark.dataset.config.DatasetException;
+import org.keycloak.benchmark.dataset.config.DatasetProfile;
+
+public class DatasetProfileTest {
+
+    @Test
+    public void testTierParametersPrecedence() {
+        DatasetProfile profile = DatasetProfile.parse("{ \"parameters\": { \"threads-count\": \"20\", \"clients-per-realm\": \"3\" }, \"tiers\": [" +
+                "{ \"name\": \"huge\", \"count\": 5, \"parameters\": { \"users-per-realm\": \"1000000\", \"threads-count\": \"7\" } }," +
+                "{ \"count\": 200 } ] }");
+
+        MultivaluedMap<String, String> queryParameters = new MultivaluedHashMap<>();
+        queryParameters.putSingle("threads-count", "10");
+        queryParameters.putSingle("realm-prefix", "tenant-");
+
+        DatasetConfig config = profile.createConfig(queryParameters);
+        Assert.assertEquals(205, config.getCount().intValue());
+        Assert.assertEquals(20, config.getThreadsCount().intValue());
+
+        DatasetConfig huge = profile.createTierConfig(queryParameters, profile.getTiers().get(0));
+        Assert.assertEquals(5, huge.getCount().intValue());
+        Assert.assertEquals(1000000, huge.getUsersPerRealm().intValue());
+        Assert.assertEquals(7, huge.getThreadsCount().intValue());
+        Assert.assertEquals(3, huge.getClientsPerRealm().intValue());
+        Assert.assertEquals("tenant-", huge.getRealmPrefix());
+
+        DatasetConfig medium = profile.createTierConfig(queryParameters, profile.getTiers().get(1));
+        Assert.assertEquals("tier-1", profile.getTiers().get(1).getName());
+        Assert.assertEquals(200, medium.getCount().intValue());
+        Assert.assertEquals(200, medium.getUsersPerRealm().intValue());
+    }
+
+    @Test(expected = DatasetException.class)
+    public void testTierWithoutCount() {
+        DatasetProfile.parse("{ \"tiers\": [ { \"name\": \"tiny\" } ] }");
+    }
+
+    @Test(expected = DatasetException.class)
+    public void testInvalidTierParameter() {
+        DatasetProfile profile = DatasetProfile.parse("{ \"tiers\": [ { \"count\": 1, \"parameters\": { \"users-per-realm\": \"many\" } } ] }");
+        profile.createTierConfig(new MultivaluedHashMap<>(), profile.getTiers().get(0));
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.benchmark.dataset.DistributedTask;
+import org.keycloak.benchmark.dataset.IndexRange;
+
+public class DistributedTaskTest {
+
+    @Test
+    public void testPartitions() {
+        DistributedTask task = task(100, 1050, 200);
+        Assert.assertEquals(5, task.getPartitionsCount());
+        Assert.assertEquals("[100, 300)", task.getPartition(0).toString());
+        Assert.assertEquals("[900, 1050)", task.getPartition(4).toString());
+
+        // Partitions cover the whole range without gaps and overlaps
+        int next = task.getStart();
+        for (int i = 0; i < task.getPartitionsCount(); i++) {
+            IndexRange partition = task.getPartition(i);
+            Assert.assertEquals(next, partition.getFrom());
+            Assert.assertTrue(partition.size() > 0);
+            next = partition.getTo();
+        }
+        Assert.assertEquals(task.getEnd(), next);
+    }
+
+    @Test
+    public void testExactPartitions() {
+        DistributedTask task = task(0, 1000, 250);
+        Assert.assertEquals(4, task.getPartitionsCount());
+        Assert.assertEquals("[750, 1000)", task.getPartition(3).toString());
+    }
+
+    @Test
+    public void testPartitionBiggerThanTask() {
+        DistributedTask task = task(10, 20, 100);
+        Assert.assertEquals(1, task.getPartitionsCount());
+        Assert.assertEquals("[10, 20)", task.getPartition(0).toString());
+    }
+
+    private DistributedTask task(int start, int end, int partitionSize) {
+        DistributedTask task = new DistributedTask();
+        task.setStart(start);
+        task.setEnd(end);
+        task.setPartitionSize(partitionSize);
+        return task;
+    }
+}
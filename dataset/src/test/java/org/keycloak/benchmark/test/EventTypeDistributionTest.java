@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.test;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.benchmark.dataset.EventTypeDistribution;
+import org.keycloak.benchmark.dataset.config.DatasetException;
+import org.keycloak.events.EventType;
+
+public class EventTypeDistributionTest {
+
+    @Test
+    public void testWeights() {
+        EventTypeDistribution distribution = EventTypeDistribution.parse("LOGIN:70, CODE_TO_TOKEN:20,LOGOUT:10");
+
+        Map<EventType, Integer> counts = new EnumMap<>(EventType.class);
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            counts.merge(distribution.next(random), 1, Integer::sum);
+        }
+
+        Assert.assertEquals(3, counts.size());
+        Assert.assertEquals(70000, counts.get(EventType.LOGIN), 1000);
+        Assert.assertEquals(20000, counts.get(EventType.CODE_TO_TOKEN), 1000);
+        Assert.assertEquals(10000, counts.get(EventType.LOGOUT), 1000);
+    }
+
+    @Test
+    public void testInvalidValues() {
+        for (String value : new String[] { "LOGIN", "LOGIN:abc", "UNKNOWN:10", "LOGIN:0" }) {
+            try {
+                EventTypeDistribution.parse(value);
+                Assert.fail("Expected failure for '" + value + "'");
+            } catch (DatasetException expected) {
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.benchmark.dataset.ExecutorHelper;
+
+public class ExecutorHelperTest {
+
+    private ExecutorHelper executor;
+
+    @After
+    public void after() {
+        executor.shutDown();
+    }
+
+    @Test(timeout = 10000)
+    public void testTasksInFlightBounded() {
+        executor = new ExecutorHelper(10, TestSessionFactory.create(), TestSessionFactory.createConfig("max-tasks-in-flight", "2"));
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch firstTasksStarted = new CountDownLatch(2);
+
+        for (int i = 0; i < 20; i++) {
+            executor.addTask(session -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                firstTasksStarted.countDown();
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException ie) {
+                    throw new RuntimeException(ie);
+                }
+                running.decrementAndGet();
+            });
+            Assert.assertTrue(executor.getTasksInProgressCount() <= 2);
+        }
+
+        executor.waitForAllToFinish();
+        Assert.assertEquals(20, executor.getFinishedTasksCount());
+        Assert.assertEquals(0, executor.getTasksInProgressCount());
+        Assert.assertTrue("Max running tasks: " + maxRunning.get(), maxRunning.get() <= 2);
+    }
+
+    @Test(timeout = 10000)
+    public void testFirstFailurePropagated() throws Exception {
+        executor = new ExecutorHelper(2, TestSessionFactory.create(), TestSessionFactory.createConfig());
+        CountDownLatch secondFailureAllowed = new CountDownLatch(1);
+        AtomicInteger finished = new AtomicInteger();
+
+        executor.addTask(session -> {
+            finished.incrementAndGet();
+            throw new IllegalStateException("First failure");
+        });
+        // Remaining tasks are still executed after the failure
+        executor.addTask(session -> {
+            try {
+                secondFailureAllowed.await();
+            } catch (InterruptedException ie) {
+                throw new RuntimeException(ie);
+            }
+            finished.incrementAndGet();
+            throw new IllegalArgumentException("Second failure");
+        });
+        for (int i = 0; i < 5; i++) {
+            executor.addTask(session -> finished.incrementAndGet());
+        }
+
+        // Wait until the first failure is recorded before allowing the second one
+        while (executor.getFinishedTasksCount() < 1) {
+            Thread.sleep(10);
+        }
+        secondFailureAllowed.countDown();
+
+        try {
+            executor.waitForAllToFinish();
+            Assert.fail("Failure expected");
+        } catch (RuntimeException re) {
+            Assert.assertTrue(re.getCause() instanceof IllegalStateException);
+        }
+        // No task is running once waitForAllToFinish returns
+        Assert.assertEquals(7, finished.get());
+        Assert.assertEquals(7, executor.getFinishedTasksCount());
+        Assert.assertEquals(0, executor.getTasksInProgressCount());
+    }
+}
@@ -39,6 +39,20 @@ public class FinderTest {
         assertFinder(77581);
     }
 
+    @Test
+    public void testFinderWithKnownFreeIndex() {
+        // Valid known index is verified by just 2 lookups
+        CountingFinder finder = new CountingFinder(77581);
+        Assert.assertEquals(77582, ConfigUtil.findFreeEntityIndex(77582, finder));
+        Assert.assertEquals(2, finder.lookups);
+
+        // Stale or missing known index fallbacks to probing
+        Assert.assertEquals(264, ConfigUtil.findFreeEntityIndex(1000, new SimpleFinder(263)));
+        Assert.assertEquals(264, ConfigUtil.findFreeEntityIndex(100, new SimpleFinder(263)));
+        Assert.assertEquals(0, ConfigUtil.findFreeEntityIndex(5, new SimpleFinder(-1)));
+        Assert.assertEquals(42, ConfigUtil.findFreeEntityIndex(null, new SimpleFinder(41)));
+    }
+
     private void assertFinder(int index) {
         SimpleFinder simpleFinder = new SimpleFinder(index);
         Assert.assertEquals(index + 1, ConfigUtil.findFreeEntityIndex(simpleFinder));
@@ -59,5 +73,20 @@ public class FinderTest {
         }
     }
 
+    private static class CountingFinder extends SimpleFinder {
+
+        private int lookups;
+
+        public CountingFinder(int lastIndex) {
+            super(lastIndex);
+        }
+
+        @Override
+        public Boolean apply(Integer index) {
+            lookups++;
+            return super.apply(index);
+        }
+    }
+
 
 }
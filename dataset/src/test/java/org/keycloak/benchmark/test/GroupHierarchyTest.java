@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.benchmark.dataset.GroupHierarchy;
+
+public class GroupHierarchyTest {
+
+    @Test
+    public void testTreeSize() {
+        Assert.assertEquals(1, new GroupHierarchy(1, 5, new int[] { 0 }).getTreeSize());
+        Assert.assertEquals(7, new GroupHierarchy(3, 2, new int[] { 0 }).getTreeSize());
+        Assert.assertEquals(85, new GroupHierarchy(4, 4, new int[] { 0 }).getTreeSize());
+    }
+
+    @Test
+    public void testRolesPerLevel() {
+        GroupHierarchy hierarchy = new GroupHierarchy(4, 2, new int[] { 3, 1 });
+        Assert.assertEquals(3, hierarchy.getRolesPerGroup(0));
+        Assert.assertEquals(1, hierarchy.getRolesPerGroup(1));
+        Assert.assertEquals(1, hierarchy.getRolesPerGroup(3));
+        Assert.assertTrue(hierarchy.hasRoleMappings());
+        Assert.assertFalse(new GroupHierarchy(4, 2, new int[] { 0 }).hasRoleMappings());
+    }
+
+    @Test
+    public void testLeafGroups() {
+        GroupHierarchy hierarchy = new GroupHierarchy(3, 2, new int[] { 0 });
+        Assert.assertTrue(hierarchy.isLeafGroup("group-5.0.1", "group-"));
+        Assert.assertFalse(hierarchy.isLeafGroup("group-5.0", "group-"));
+        Assert.assertFalse(hierarchy.isLeafGroup("group-5", "group-"));
+        Assert.assertFalse(hierarchy.isLeafGroup("other-5.0.1", "group-"));
+        Assert.assertFalse(hierarchy.isLeafGroup("group-", "group-"));
+
+        GroupHierarchy flat = new GroupHierarchy(1, 1, new int[] { 0 });
+        Assert.assertTrue(flat.isLeafGroup("group-5", "group-"));
+        Assert.assertFalse(flat.isLeafGroup("group-5.0", "group-"));
+    }
+
+    @Test
+    public void testGroupNameComparator() {
+        List<String> names = Arrays.asList("group-10.0", "group-2.1", "group-2.0", "group-2", "group-1.10", "group-1.9");
+        names.sort(GroupHierarchy.groupNameComparator("group-"));
+        Assert.assertEquals(Arrays.asList("group-1.9", "group-1.10", "group-2", "group-2.0", "group-2.1", "group-10.0"), names);
+    }
+}
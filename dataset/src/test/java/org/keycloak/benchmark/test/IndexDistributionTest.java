@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.benchmark.dataset.IndexDistribution;
+import org.keycloak.benchmark.dataset.config.DatasetException;
+
+public class IndexDistributionTest {
+
+    @Test
+    public void testUniformIsRoundRobin() {
+        IndexDistribution distribution = IndexDistribution.parse("uniform");
+
+        List<Integer> picked = new ArrayList<>();
+        distribution.pick(3, 4, 10, picked::add);
+        Assert.assertEquals(Arrays.asList(2, 3, 4, 5), picked);
+
+        Assert.assertEquals(34, distribution.share(0, 3, 100));
+        Assert.assertEquals(33, distribution.share(2, 3, 100));
+    }
+
+    @Test
+    public void testZipfIsSkewed() {
+        IndexDistribution distribution = IndexDistribution.parse("zipf:1.2");
+
+        int[] counts = new int[100];
+        for (int user = 0; user < 10000; user++) {
+            List<Integer> picked = new ArrayList<>();
+            distribution.pick(user, 4, 100, index -> {
+                picked.add(index);
+                counts[index]++;
+            });
+            Assert.assertEquals(4, new HashSet<>(picked).size());
+        }
+
+        // First group is member of most of the users
+        Assert.assertTrue(counts[0] > 6000);
+        Assert.assertTrue(counts[0] > 10 * counts[50]);
+
+        // Same user always gets same indexes
+        List<Integer> first = new ArrayList<>();
+        List<Integer> second = new ArrayList<>();
+        distribution.pick(42, 4, 100, first::add);
+        distribution.pick(42, 4, 100, second::add);
+        Assert.assertEquals(first, second);
+    }
+
+    @Test
+    public void testShareSumsToTotal() {
+        for (String value : new String[] { "uniform", "zipf", "normal:0.1" }) {
+            IndexDistribution distribution = IndexDistribution.parse(value);
+            long sum = 0;
+            for (int realm = 0; realm < 37; realm++) {
+                sum += distribution.share(realm, 37, 1000003);
+            }
+            Assert.assertEquals(value, 1000003, sum);
+        }
+
+        IndexDistribution zipf = IndexDistribution.parse("zipf");
+        Assert.assertTrue(zipf.share(0, 37, 1000003) > zipf.share(36, 37, 1000003) * 30);
+    }
+
+    @Test
+    public void testInvalidValues() {
+        for (String value : new String[] { "pareto", "zipf:abc", "zipf:0", "normal:-1", "uniform:2", "zipf:1:2" }) {
+            try {
+                IndexDistribution.parse(value);
+                Assert.fail("Expected failure for '" + value + "'");
+            } catch (DatasetException expected) {
+            }
+        }
+    }
+}
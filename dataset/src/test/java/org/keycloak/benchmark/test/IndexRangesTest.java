@@ -0,0 +1,57 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.benchmark.dataset.IndexRanges;
+
+public class IndexRangesTest {
+
+    @Test
+    public void testMerge() {
+        IndexRanges ranges = new IndexRanges();
+        ranges.add(10, 20);
+        ranges.add(30, 40);
+        Assert.assertEquals("[[10, 20), [30, 40)]", ranges.getRanges().toString());
+
+        // Adjacent range is merged
+        ranges.add(20, 25);
+        Assert.assertEquals("[[10, 25), [30, 40)]", ranges.getRanges().toString());
+
+        // Range overlapping both is merged with both
+        ranges.add(22, 35);
+        Assert.assertEquals("[[10, 40)]", ranges.getRanges().toString());
+    }
+
+    @Test
+    public void testMissingRanges() {
+        IndexRanges ranges = new IndexRanges();
+        Assert.assertEquals("[[0, 100)]", ranges.getMissingRanges(0, 100).toString());
+
+        ranges.add(0, 10);
+        ranges.add(50, 60);
+        ranges.add(90, 120);
+        Assert.assertEquals("[[10, 50), [60, 90)]", ranges.getMissingRanges(0, 100).toString());
+
+        ranges.add(10, 50);
+        ranges.add(60, 90);
+        Assert.assertTrue(ranges.getMissingRanges(0, 100).isEmpty());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.benchmark.dataset.LatencyHistogram;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.getTotalCount());
+        Assert.assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testExactValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 20; i++) {
+            histogram.record(i);
+        }
+        Assert.assertEquals(20, histogram.getTotalCount());
+        Assert.assertEquals(10, histogram.getValueAtPercentile(50));
+        Assert.assertEquals(19, histogram.getValueAtPercentile(95));
+        Assert.assertEquals(20, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100000; i++) {
+            histogram.record(i);
+        }
+        assertWithinPrecision(50000, histogram.getValueAtPercentile(50));
+        assertWithinPrecision(95000, histogram.getValueAtPercentile(95));
+        assertWithinPrecision(99000, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testHugeValue() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+        Assert.assertTrue(histogram.getValueAtPercentile(50) > Integer.MAX_VALUE);
+    }
+
+    private void assertWithinPrecision(long expected, long actual) {
+        Assert.assertTrue("Expected " + expected + " but was " + actual, actual >= expected && actual <= expected * 1.07);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.test;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.keycloak.benchmark.dataset.ExecutorHelper;
+import org.keycloak.benchmark.dataset.PasswordHashingPipeline;
+
+/**
+ * Pipeline has just 2 permits in all the tests. If some failed batch did not release its permit, the next batches would block forever
+ */
+public class PasswordHashingPipelineTest {
+
+    private ExecutorHelper writers;
+    private PasswordHashingPipeline pipeline;
+
+    @Before
+    public void before() {
+        writers = new ExecutorHelper(2, TestSessionFactory.create(), TestSessionFactory.createConfig());
+        pipeline = new PasswordHashingPipeline(1, 1, writers);
+    }
+
+    @After
+    public void after() {
+        pipeline.shutDown();
+        writers.shutDown();
+    }
+
+    @Test(timeout = 10000)
+    public void testHashingFailure() {
+        AtomicInteger written = new AtomicInteger();
+        for (int i = 0; i < 10; i++) {
+            int batch = i;
+            pipeline.addTask(() -> {
+                if (batch % 2 == 0) {
+                    throw new IllegalStateException("Hashing of batch " + batch + " failed");
+                }
+                return batch;
+            }, (session, hashed) -> written.incrementAndGet());
+        }
+
+        RuntimeException failure = waitForFailure();
+        Assert.assertTrue(failure.getCause() instanceof IllegalStateException);
+        Assert.assertEquals(5, written.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testWriterFailure() {
+        AtomicInteger written = new AtomicInteger();
+        for (int i = 0; i < 10; i++) {
+            pipeline.addTask(() -> written.get(), (session, hashed) -> {
+                if (written.incrementAndGet() % 2 == 0) {
+                    throw new IllegalStateException("Writing failed");
+                }
+            });
+        }
+
+        RuntimeException failure = waitForFailure();
+        Assert.assertTrue(failure.getCause() instanceof IllegalStateException);
+        Assert.assertEquals(10, written.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testHandoffFailure() {
+        // Writers don't accept any task
+        writers.shutDown();
+        for (int i = 0; i < 10; i++) {
+            pipeline.addTask(() -> "hashed", (session, hashed) -> Assert.fail("Writer should not be called"));
+        }
+
+        RuntimeException failure = waitForFailure();
+        Assert.assertTrue(failure.getCause() instanceof RejectedExecutionException);
+    }
+
+    private RuntimeException waitForFailure() {
+        try {
+            pipeline.waitForAllToFinish();
+        } catch (RuntimeException re) {
+            return re;
+        }
+        throw new AssertionError("Expected failure of the pipeline");
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.keycloak.benchmark.test;
+
+import java.lang.reflect.Proxy;
+import java.util.function.Function;
+
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.keycloak.benchmark.dataset.config.ConfigUtil;
+import org.keycloak.benchmark.dataset.config.DatasetConfig;
+import org.keycloak.benchmark.dataset.config.DatasetOperation;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.KeycloakTransactionManager;
+
+/**
+ * Session factory, which allows to run the tasks through {@link org.keycloak.benchmark.dataset.ExecutorHelper} without the Keycloak server. Sessions do not
+ * provide anything except of the no-op transaction manager
+ */
+public class TestSessionFactory {
+
+    public static KeycloakSessionFactory create() {
+        KeycloakTransactionManager transactionManager = proxy(KeycloakTransactionManager.class, methodName -> null);
+        KeycloakSession session = proxy(KeycloakSession.class, methodName -> methodName.equals("getTransactionManager") ? transactionManager : null);
+        return proxy(KeycloakSessionFactory.class, methodName -> methodName.equals("create") ? session : null);
+    }
+
+    public static DatasetConfig createConfig(String... parameters) {
+        MultivaluedMap<String, String> queryParameters = new MultivaluedHashMap<>();
+        queryParameters.putSingle("realm-name", "realm-0");
+        queryParameters.putSingle("count", "1");
+        for (int i = 0; i < parameters.length; i += 2) {
+            queryParameters.putSingle(parameters[i], parameters[i + 1]);
+        }
+        return ConfigUtil.createConfigFromQueryParams(queryParameters, DatasetOperation.CREATE_USERS);
+    }
+
+    private static <T> T proxy(Class<T> type, Function<String, Object> results) {
+        Object proxy = Proxy.newProxyInstance(TestSessionFactory.class.getClassLoader(), new Class<?>[] { type }, (p, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(p);
+                case "equals":
+                    return p == args[0];
+                case "toString":
+                    return type.getSimpleName();
+            }
+            Object result = results.apply(method.getName());
+            if (result == null && method.getReturnType() == boolean.class) {
+                return false;
+            }
+            return result;
+        });
+        return type.cast(proxy);
+    }
+}